@@ -16,11 +16,18 @@ import javafx.stage.Stage;
 import javafx.stage.FileChooser;
 import com.example.models.Farmer;
 import com.example.models.Product;
+import javafx.beans.binding.Bindings;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
+import javafx.collections.ListChangeListener;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.value.ObservableValue;
 import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.text.Font;
 import javafx.scene.text.FontWeight;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextFlow;
+import javafx.concurrent.Task;
 import java.util.Optional;
 import java.io.File;
 import java.io.IOException;
@@ -28,15 +35,71 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import com.example.models.CartItem;
 import com.example.models.Customer;
-import javafx.animation.FadeTransition;
+import com.example.db.CartStore;
+import com.example.db.Database;
+import com.example.db.MessageStore;
+import com.example.models.Message;
+import com.example.ui.MessageListView;
+import com.example.ui.ToastManager;
+import com.example.ui.LiveFarmerDashboard;
+import com.example.ui.SalesChart;
+import com.example.ui.WindowedList;
+import com.example.services.FlashSaleInventory;
+import com.example.services.MessageSearchIndex;
+import com.example.services.AuthService;
+import com.example.services.AvailabilityChecker;
+import com.example.services.PasswordHasher;
+import com.example.db.AccountStore;
+import com.example.db.ProductStore;
+import com.example.db.OrderStore;
+import com.example.db.OrderQuery;
+import com.example.db.QueryCache;
+import com.example.db.ChangeFeed;
+import com.example.db.ActivityFeedStore;
+import com.example.db.RevenueRollupStore;
+import com.example.services.ActivityFeedService;
+import com.example.services.TableExport;
+import com.example.services.ProductImporter;
+import com.example.services.BulkProductEdit;
+import com.example.services.FulfillmentScheduler;
+import com.example.services.FarmLocator;
+import com.example.services.Gazetteer;
+import com.example.services.GeoGridIndex;
+import com.example.models.GeoPoint;
+import com.example.models.Order;
+import com.example.models.OrderStatus;
+import com.example.services.BatchLoader;
+import com.example.services.EntityCache;
+import com.example.services.DomainEvent;
+import com.example.services.EventBus;
+import com.example.net.RelayClient;
+import com.example.net.RelayServer;
+import javafx.application.Platform;
 import javafx.util.Duration;
 import javafx.scene.shape.Rectangle;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Comparator;
+import java.util.Collections;
+import java.util.Arrays;
+import java.time.LocalDateTime;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.Instant;
+import java.time.ZoneId;
 import java.sql.Connection;
-import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 public class Main extends Application {
 
@@ -47,55 +110,87 @@ public class Main extends Application {
     private ObservableList<Product> productsList;
     private TableView<Product> productsTable;
     private Farmer demoFarmer;
+    private Farmer currentFarmer;
 
     private static final String COLOR_PRIMARY_GREEN = "#22c55e"; // fresh green accent
     private static final String COLOR_BLACK = "#000000";
     private static final String COLOR_WHITE = "#ffffff";
     private static final String COLOR_GRAY_TEXT = "#6b7280";
 
-    private List<CartItem> cartItems = new ArrayList<>();
+    private static final int ENTITY_CACHE_SIZE = 1000;
+    private static final long NEGATIVE_CACHE_MILLIS = 30_000;
+    private static final int FEATURED_PRODUCT_LIMIT = 12;
+    private static final double NEARBY_RADIUS_KM = 80;
+    private static final int NEARBY_FARM_LIMIT = 500;
+    private static final int QUERY_CACHE_SIZE = 256;
+    private static final int EVENT_RING_SIZE = 1 << 14;
+    // Run with -Dfarmers.diagnostics=true to get login, cache and event statistics on stderr at exit
+    private static final boolean DIAGNOSTICS = Boolean.getBoolean("farmers.diagnostics");
+    private static final int DASHBOARD_ORDER_LIMIT = 10;
+    private static final int REVENUE_RECENT_DAYS = 7;
+    private static final int REVENUE_TOP_PRODUCTS = 5;
+    private static final int SALES_DETAIL_DAYS = 5;
+    private static final int ACTIVITY_PAGE_SIZE = 20;
+    private static final int ORDER_PAGE_SIZE = 100;
+    private static final int ORDER_WINDOW_PAGES = 10;
+    private static final int CUSTOMER_ORDER_LIMIT = 50;
+    private static final int PACK_NEXT_SIZE = 10;
+    private static final int DAILY_PACK_CAPACITY = 50;
+    private static final int FULFILLMENT_UPDATE_BATCH = 500;
+    private static final int MESSAGE_PAGE_SIZE = 20;
+    private static final int SEARCH_RESULT_LIMIT = 50;
+    private static final String STOCK_TOPIC = "stock";
+
+    private AccountStore accountStore;
+    private AuthService authService;
+    private AvailabilityChecker availability;
+    private QueryCache queryCache;
+    private ProductStore productStore;
+    private OrderStore orderStore;
+    // Rows of the orders page while it is shown
+    private WindowedList<Order> ordersWindow;
+    // Waiting orders on the orders page's fulfilment panel while it is shown, and its redraw
+    private FulfillmentScheduler fulfillment;
+    private Runnable fulfillmentRedraw;
+    private FulfillmentScheduler.Weights fulfillmentWeights = FulfillmentScheduler.Weights.DEFAULT;
+    private RevenueRollupStore revenueRollups;
+    private FarmLocator farmLocator;
+    private ChangeFeed changeFeed;
+    private ActivityFeedService activityFeed;
+    private EntityCache<String, Farmer> farmerCache;
+    private EntityCache<String, Product> productCache;
+    private BatchLoader<String, Farmer> farmerLoader;
+    private BatchLoader<String, Product> productLoader;
+    private CartStore cartStore;
+    private FlashSaleInventory flashSale;
+    private MessageStore messageStore;
+    private MessageSearchIndex messageSearch;
+    private RelayServer relayServer;
+    private RelayClient relay;
+    private String messagesTopic;
+    private String messagesRole;
+    private String messagesUsername;
+    private MessageListView openInbox;
+    private Label messagesBadge;
+    private ToastManager toasts;
+    private final EventBus events = new EventBus(EVENT_RING_SIZE);
+    // Events handled by type, counted on the bus's metrics thread when diagnostics are on
+    private final AtomicLongArray eventCounts = new AtomicLongArray(DomainEvent.Type.values().length);
+    private boolean cartBadgeStale;
+    private LiveFarmerDashboard liveDashboard;
     private Label cartBadge;
     private Customer currentCustomer;
+    // Newest status change to the signed-in customer's orders they have been told about
+    private long seenStatusChangeId;
+    // Orders on the customer's Order History page, while it is open
+    private VBox customerOrdersList;
 
     private static Connection dbConnection;
 
-    private static class CartItem {
-        private String name;
-        private double price;
-        private String unit;
-        private int quantity;
-
-        public CartItem(String name, double price, String unit, int quantity) {
-            this.name = name;
-            this.price = price;
-            this.unit = unit;
-            this.quantity = quantity;
-        }
-
-        public String getName() {
-            return name;
-        }
-
-        public double getPrice() {
-            return price;
-        }
-
-        public String getUnit() {
-            return unit;
-        }
-
-        public int getQuantity() {
-            return quantity;
-        }
-
-        public void setQuantity(int quantity) {
-            this.quantity = quantity;
-        }
-    }
-
     private void updateCartBadge() {
         if (cartBadge != null) {
-            int totalItems = cartItems.stream().mapToInt(CartItem::getQuantity).sum();
+            int totalItems = cartStore.items(currentCustomer.getUsername()).stream()
+                    .mapToInt(CartItem::getQuantity).sum();
             cartBadge.setText(String.valueOf(totalItems));
             cartBadge.setVisible(totalItems > 0);
         }
@@ -104,11 +199,16 @@ public class Main extends Application {
     @Override
     public void start(Stage primaryStage) {
         this.primaryStage = primaryStage;
+        this.toasts = new ToastManager(primaryStage);
+        events.subscribe(this::onUiEvent, Platform::runLater);
+        if (DIAGNOSTICS) {
+            events.subscribe("metrics", (event, endOfBatch) -> eventCounts.incrementAndGet(event.getType().ordinal()));
+        }
         this.productsList = FXCollections.observableArrayList();
 
         // Initialize H2 database connection
         try {
-            dbConnection = DriverManager.getConnection("jdbc:h2:~/farmers_customers_db;MODE=MySQL", "sa", "");
+            dbConnection = Database.open();
             System.out.println("H2 database connected successfully.");
 
             // Create tables if they do not exist
@@ -158,11 +258,52 @@ public class Main extends Application {
             dbConnection.createStatement().execute(createProductTable);
             dbConnection.createStatement().execute(createOrderTable);
             System.out.println("Tables created or already exist.");
+
+            accountStore = new AccountStore();
+            authService = new AuthService(accountStore, new PasswordHasher(PasswordHasher.DEFAULT_ITERATIONS));
+            availability = new AvailabilityChecker(accountStore);
+            queryCache = new QueryCache(QUERY_CACHE_SIZE);
+            productStore = new ProductStore(queryCache);
+            orderStore = new OrderStore(queryCache);
+            revenueRollups = new RevenueRollupStore();
+            activityFeed = new ActivityFeedService(new ActivityFeedStore());
+            farmerCache = new EntityCache<>(ENTITY_CACHE_SIZE, NEGATIVE_CACHE_MILLIS);
+            productCache = new EntityCache<>(ENTITY_CACHE_SIZE, NEGATIVE_CACHE_MILLIS);
+            farmerLoader = new BatchLoader<>("farmer", farmerCache, accountStore::findFarmersByIds, Platform::runLater);
+            productLoader = new BatchLoader<>("product", productCache, productStore::findByIds, Platform::runLater);
+            cartStore = new CartStore();
+            flashSale = new FlashSaleInventory(sold -> {
+                // The flush wrote stock to the Product table behind the store's back
+                queryCache.bump("Product");
+                Platform.runLater(() -> applySoldQuantities(sold));
+            });
+            messageStore = new MessageStore();
+            messageSearch = new MessageSearchIndex(messageStore);
+            changeFeed = new ChangeFeed();
+            changeFeed.subscribe(changeFeed.currentOffset(), this::onDataChanged);
         } catch (SQLException e) {
             System.err.println("Failed to connect to H2 database or create tables: " + e.getMessage());
             return;
         }
 
+        // The first app instance on this machine hosts the relay; the others just connect to it
+        try {
+            relayServer = RelayServer.startIfAbsent(RelayServer.DEFAULT_PORT);
+        } catch (IOException e) {
+            System.err.println("Failed to start relay server: " + e.getMessage());
+        }
+        relay = new RelayClient(RelayServer.DEFAULT_PORT, true,
+                (topic, offset, payload) -> Platform.runLater(() -> onRelayEvent(topic, payload)));
+        relay.subscribe(STOCK_TOPIC);
+        maintainRevenueRollups();
+
+        try {
+            farmLocator = new FarmLocator(accountStore, Gazetteer.bundled());
+            loadFarmLocations();
+        } catch (IOException e) {
+            System.err.println("Failed to load gazetteer: " + e.getMessage());
+        }
+
         // Create demo farmer
         this.demoFarmer = new Farmer(
                 "John Smith",
@@ -172,6 +313,7 @@ public class Main extends Application {
                 "Green Valley Organic Farm",
                 "123 Farm Road, Green Valley, CA 90210",
                 "password");
+        seedDemoFarmer();
 
         // Add a demo product
         Product demoProduct = new Product(
@@ -182,7 +324,7 @@ public class Main extends Application {
                 50,
                 demoFarmer.getId());
         demoProduct.setImagePath("/com/example/images/download.jpeg");
-        productsList.add(demoProduct);
+        seedDemoProduct(demoProduct);
 
         root = new BorderPane();
 
@@ -443,15 +585,7 @@ public class Main extends Application {
         passwordField.setMaxWidth(Double.MAX_VALUE);
         passwordField.setPrefHeight(32);
 
-        final TextField farmNameField = "Farmer".equals(role) ? new TextField() : null;
-        if (farmNameField != null) {
-            farmNameField.setPromptText("Farm Name");
-            farmNameField.setMaxWidth(Double.MAX_VALUE);
-            farmNameField.setPrefHeight(32);
-            container.getChildren().addAll(header, usernameField, farmNameField, passwordField);
-        } else {
-            container.getChildren().addAll(header, usernameField, passwordField);
-        }
+        container.getChildren().addAll(header, usernameField, passwordField);
 
         Button loginBtn = new Button("Sign In");
         loginBtn.getStyleClass().add("button-black");
@@ -460,27 +594,32 @@ public class Main extends Application {
         loginBtn.setPrefHeight(34);
         VBox.setMargin(loginBtn, new Insets(10, 0, 0, 0));
 
-        // Add login button action
+        // Password checks run on the auth pool; the button stays disabled until one finishes
         loginBtn.setOnAction(e -> {
-            if ("Farmer".equals(role)) {
-                Farmer farmer = new Farmer(
-                        "Demo Farmer",
-                        usernameField.getText(),
-                        "demo@farm.com",
-                        "1234567890",
-                        farmNameField != null ? farmNameField.getText() : "Demo Farm",
-                        "Demo Location",
-                        passwordField.getText());
-                showFarmerDashboard(farmer);
-            } else {
-                Customer customer = new Customer(
-                        "Demo Customer",
-                        usernameField.getText(),
-                        "demo@customer.com",
-                        "0987654321",
-                        passwordField.getText());
-                showCustomerDashboard(customer);
+            String username = usernameField.getText().trim();
+            char[] password = passwordField.getText().toCharArray();
+            if (username.isEmpty() || password.length == 0) {
+                showError("Sign In", "Please enter your username and password.");
+                return;
             }
+            loginBtn.setDisable(true);
+            CompletableFuture<?> login = "Farmer".equals(role)
+                    ? authService.loginFarmer(username, password)
+                    : authService.loginCustomer(username, password);
+            login.whenComplete((account, error) -> Platform.runLater(() -> {
+                loginBtn.setDisable(false);
+                passwordField.clear();
+                if (error != null) {
+                    Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                    showError("Sign In", cause instanceof AuthService.AuthenticationException
+                            ? cause.getMessage()
+                            : "Could not sign in: " + cause.getMessage());
+                } else if (account instanceof Farmer) {
+                    showFarmerDashboard((Farmer) account);
+                } else {
+                    showCustomerDashboard((Customer) account);
+                }
+            }));
         });
 
         Label backLink = new Label("← Back");
@@ -550,6 +689,9 @@ public class Main extends Application {
         email.setPromptText("Email");
         email.setMaxWidth(Double.MAX_VALUE);
 
+        Label usernameStatus = createAvailabilityFeedback(username, "Username", availability::isUsernameTaken);
+        Label emailStatus = createAvailabilityFeedback(email, "Email", availability::isEmailTaken);
+
         TextField phoneNumber = new TextField();
         phoneNumber.setPromptText("Phone Number");
         phoneNumber.setMaxWidth(Double.MAX_VALUE);
@@ -592,27 +734,85 @@ public class Main extends Application {
         signUpButtonContainer.setMaxWidth(Double.MAX_VALUE);
 
         signUpBtn.setOnAction(e -> {
-            if (validateSignUpForm(fullName, username, email, phoneNumber, farmName, farmLocation,
+            if (!validateSignUpForm(fullName, username, email, phoneNumber, farmName, farmLocation,
                     password, confirmPassword, roleGroup)) {
+                return;
+            }
+            // The database may have to confirm, so ask off the FX thread
+            String wantedUsername = username.getText().trim();
+            String wantedEmail = email.getText();
+            Task<String> availabilityCheck = new Task<>() {
+                @Override
+                protected String call() throws Exception {
+                    if (availability.isUsernameTaken(wantedUsername)) {
+                        return "That username is already taken";
+                    }
+                    if (availability.isEmailTaken(wantedEmail)) {
+                        return "An account with that email already exists";
+                    }
+                    return null;
+                }
+            };
+            Runnable register = () -> {
+                String role = farmerRadio.isSelected() ? "Farmer" : "Customer";
+                char[] secret = password.getText().toCharArray();
+                CompletableFuture<?> registration;
                 if (farmerRadio.isSelected()) {
                     Farmer farmer = new Farmer(
                             fullName.getText(),
-                            username.getText(),
-                            email.getText(),
+                            wantedUsername,
+                            AvailabilityChecker.normalizeEmail(wantedEmail),
                             phoneNumber.getText(),
                             farmName.getText(),
                             farmLocation.getText(),
-                            password.getText());
-                    showAlert("Success", "Farmer account created successfully!");
-                    // Switch to login form after successful signup
-                    swapLeftContent(createLoginForm("Farmer"));
+                            null);
+                    registration = authService.registerFarmer(farmer, secret);
                 } else {
-                    // Handle customer signup
-                    showAlert("Success", "Customer account created successfully!");
+                    Customer customer = new Customer(
+                            fullName.getText(),
+                            wantedUsername,
+                            AvailabilityChecker.normalizeEmail(wantedEmail),
+                            phoneNumber.getText(),
+                            farmLocation.getText());
+                    registration = authService.registerCustomer(customer, secret);
+                }
+                signUpBtn.setDisable(true);
+                registration.whenComplete((account, error) -> Platform.runLater(() -> {
+                    signUpBtn.setDisable(false);
+                    if (error != null) {
+                        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+                        showAlert("Error", cause instanceof SQLIntegrityConstraintViolationException
+                                ? "That username is already taken"
+                                : "Could not create account: " + cause.getMessage());
+                        return;
+                    }
+                    try {
+                        availability.recordSignup(wantedUsername, wantedEmail);
+                    } catch (SQLException ex) {
+                        System.err.println("Failed to refresh availability filters: " + ex.getMessage());
+                    }
+                    showAlert("Success", role + " account created successfully!");
                     // Switch to login form after successful signup
-                    swapLeftContent(createLoginForm("Customer"));
+                    swapLeftContent(createLoginForm(role));
+                }));
+            };
+            availabilityCheck.setOnSucceeded(done -> {
+                if (availabilityCheck.getValue() != null) {
+                    signUpBtn.setDisable(false);
+                    showAlert("Error", availabilityCheck.getValue());
+                } else {
+                    register.run();
                 }
-            }
+            });
+            availabilityCheck.setOnFailed(done -> {
+                // The unique constraints still catch a taken username
+                System.err.println("Availability check failed: " + availabilityCheck.getException().getMessage());
+                register.run();
+            });
+            signUpBtn.setDisable(true);
+            Thread thread = new Thread(availabilityCheck, "signup-availability");
+            thread.setDaemon(true);
+            thread.start();
         });
 
         container.getChildren().addAll(
@@ -620,7 +820,9 @@ public class Main extends Application {
                 header,
                 fullName,
                 username,
+                usernameStatus,
                 email,
+                emailStatus,
                 phoneNumber,
                 farmName,
                 farmLocation,
@@ -645,6 +847,52 @@ public class Main extends Application {
         // Reminder: Add modern scrollbar styles to styles.css for .modern-scroll-pane
     }
 
+    private interface TakenCheck {
+        boolean isTaken(String value) throws SQLException;
+    }
+
+    // Live "taken / available" hint under a sign-up field, checked after a short pause in typing
+    private Label createAvailabilityFeedback(TextField field, String what, TakenCheck check) {
+        Label status = new Label();
+        status.setStyle("-fx-font-size: 12px;");
+        status.setManaged(false);
+        status.setVisible(false);
+        javafx.animation.PauseTransition debounce = new javafx.animation.PauseTransition(Duration.millis(200));
+        // The check may go to the database, so it runs off the FX thread; answers for text
+        // that has changed since are dropped
+        debounce.setOnFinished(e -> {
+            String value = field.getText().trim();
+            Task<Boolean> task = new Task<>() {
+                @Override
+                protected Boolean call() throws Exception {
+                    return check.isTaken(value);
+                }
+            };
+            task.setOnSucceeded(done -> {
+                if (value.equals(field.getText().trim())) {
+                    boolean taken = task.getValue();
+                    status.setText(taken ? "✗ " + what + " is already taken" : "✓ " + what + " is available");
+                    status.setTextFill(Color.web(taken ? "#FF5252" : COLOR_PRIMARY_GREEN));
+                }
+            });
+            task.setOnFailed(done -> status.setText(""));
+            Thread thread = new Thread(task, "availability-check");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        field.textProperty().addListener((obs, old, text) -> {
+            boolean show = !text.trim().isEmpty();
+            status.setManaged(show);
+            status.setVisible(show);
+            if (show) {
+                debounce.playFromStart();
+            } else {
+                debounce.stop();
+            }
+        });
+        return status;
+    }
+
     private boolean validateSignUpForm(TextField fullName, TextField username, TextField email,
             TextField phoneNumber, TextField farmName, TextField farmLocation,
             PasswordField password, PasswordField confirmPassword,
@@ -679,6 +927,10 @@ public class Main extends Application {
     }
 
     private void showFarmerDashboard(Farmer farmer) {
+        this.currentFarmer = farmer;
+        farmerCache.put(farmer.getId(), farmer);
+        loadFarmerProducts(farmer);
+        listenForMessages(Message.FARMER, farmer.getUsername());
         BorderPane dashboardRoot = new BorderPane();
         dashboardRoot.setStyle("-fx-background-color: #f5f5f5;");
 
@@ -796,6 +1048,8 @@ public class Main extends Application {
         editProfile.setOnAction(e -> showEditProfileDialog(farmer));
         settings.setOnAction(e -> showSettingsDialog());
         logout.setOnAction(e -> {
+            closeLiveDashboard();
+            listenForMessages(null, null);
             primaryStage.setScene(scene);
             primaryStage.setTitle("Farmers & Customers Interaction App");
         });
@@ -966,7 +1220,7 @@ public class Main extends Application {
 
             // Show dashboard page
             BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-            ScrollPane scrollPane = new ScrollPane(createDashboardContent(demoFarmer));
+            ScrollPane scrollPane = new ScrollPane(createDashboardContent(currentFarmer));
             scrollPane.setFitToWidth(true);
             scrollPane.setFitToHeight(true);
             scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
@@ -990,7 +1244,7 @@ public class Main extends Application {
 
             // Show products page
             BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-            ScrollPane scrollPane = new ScrollPane(createMainContent(demoFarmer));
+            ScrollPane scrollPane = new ScrollPane(createMainContent(currentFarmer));
             scrollPane.setFitToWidth(true);
             scrollPane.setFitToHeight(true);
             scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
@@ -1014,7 +1268,7 @@ public class Main extends Application {
 
             // Show orders page
             BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-            ScrollPane scrollPane = new ScrollPane(createOrdersPage(demoFarmer));
+            ScrollPane scrollPane = new ScrollPane(createOrdersPage(currentFarmer));
             scrollPane.setFitToWidth(true);
             scrollPane.setFitToHeight(true);
             scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
@@ -1038,7 +1292,7 @@ public class Main extends Application {
 
             // Show messages page
             BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-            ScrollPane scrollPane = new ScrollPane(createMessagesPage());
+            ScrollPane scrollPane = new ScrollPane(createMessagesPage(currentFarmer));
             scrollPane.setFitToWidth(true);
             scrollPane.setFitToHeight(true);
             scrollPane.setHbarPolicy(ScrollPane.ScrollBarPolicy.AS_NEEDED);
@@ -1078,6 +1332,8 @@ public class Main extends Application {
         logoutBtn.getStyleClass().add("button-danger");
         logoutBtn.setMaxWidth(Double.MAX_VALUE);
         logoutBtn.setOnAction(e -> {
+            closeLiveDashboard();
+            listenForMessages(null, null);
             primaryStage.setScene(scene);
             primaryStage.setTitle("Farmers & Customers Interaction App");
         });
@@ -1131,7 +1387,28 @@ public class Main extends Application {
         addProductBtn.getStyleClass().add("button-primary");
         addProductBtn.setFont(Font.font("Roboto", 14));
 
-        header.getChildren().addAll(title, spacer, addProductBtn);
+        Button flashSaleBtn = new Button("Start Flash Sale");
+        flashSaleBtn.getStyleClass().add("button-secondary");
+        flashSaleBtn.setFont(Font.font("Roboto", 14));
+
+        Button exportProductsBtn = new Button("Export");
+        exportProductsBtn.getStyleClass().add("button-secondary");
+        exportProductsBtn.setFont(Font.font("Roboto", 14));
+        exportProductsBtn.setOnAction(
+                e -> exportTable("products", sink -> productStore.exportForFarmer(farmer.getId(), sink)));
+
+        Button importProductsBtn = new Button("Import");
+        importProductsBtn.getStyleClass().add("button-secondary");
+        importProductsBtn.setFont(Font.font("Roboto", 14));
+        importProductsBtn.setOnAction(e -> importProducts(farmer));
+
+        Button bulkEditBtn = new Button("Bulk Edit");
+        bulkEditBtn.getStyleClass().add("button-secondary");
+        bulkEditBtn.setFont(Font.font("Roboto", 14));
+
+        header.setSpacing(10);
+        header.getChildren().addAll(title, spacer, bulkEditBtn, importProductsBtn, exportProductsBtn, flashSaleBtn,
+                addProductBtn);
 
         // Products Table
         productsTable = new TableView<>();
@@ -1214,6 +1491,8 @@ public class Main extends Application {
                 buttons.setAlignment(Pos.CENTER);
                 editBtn.setFont(Font.font("Roboto", 12));
                 deleteBtn.setFont(Font.font("Roboto", 12));
+                editBtn.setOnAction(e -> showEditProductDialog(getTableView().getItems().get(getIndex())));
+                deleteBtn.setOnAction(e -> deleteProduct(getTableView().getItems().get(getIndex())));
             }
 
             @Override
@@ -1235,10 +1514,39 @@ public class Main extends Application {
 
         productsTable.getColumns().addAll(nameCol, priceCol, unitCol, quantityCol, actionsCol);
         productsTable.setItems(productsList);
+        // Shift/Ctrl-click picks several products for Bulk Edit
+        productsTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        bulkEditBtn.disableProperty().bind(Bindings.isEmpty(productsTable.getSelectionModel().getSelectedItems()));
+        bulkEditBtn.setOnAction(e -> showBulkEditDialog(farmer,
+                new ArrayList<>(productsTable.getSelectionModel().getSelectedItems())));
 
         // Add Product Dialog
         addProductBtn.setOnAction(e -> showAddProductDialog(farmer));
 
+        // Flash sale: hold the selected product's stock in memory for concurrent reservations,
+        // or end the sale if it is already on one
+        flashSaleBtn.setOnAction(e -> {
+            Product selected = productsTable.getSelectionModel().getSelectedItem();
+            if (selected == null) {
+                showError("Flash Sale", "Select a product to put on flash sale.");
+                return;
+            }
+            if (!flashSale.startSale(selected.getId(), selected.getQuantity())) {
+                Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, selected.getName() + " is on flash sale with "
+                        + flashSale.available(selected.getId()) + " " + selected.getUnit() + " left. End the sale?",
+                        ButtonType.OK, ButtonType.CANCEL);
+                confirm.setHeaderText(null);
+                if (confirm.showAndWait().orElse(ButtonType.CANCEL) == ButtonType.OK) {
+                    int unreserved = flashSale.stopSale(selected.getId());
+                    showAlert("Flash Sale", "The flash sale of " + selected.getName() + " has ended; "
+                            + unreserved + " " + selected.getUnit() + " went back to regular stock.");
+                }
+                return;
+            }
+            showAlert("Flash Sale", selected.getName() + " is now on flash sale with "
+                    + selected.getQuantity() + " " + selected.getUnit() + " available.");
+        });
+
         productsSection.getChildren().addAll(header, productsTable);
         mainContent.getChildren().add(productsSection);
 
@@ -1313,13 +1621,167 @@ public class Main extends Application {
 
         Optional<Product> result = dialog.showAndWait();
         result.ifPresent(product -> {
+            try {
+                productStore.insert(product);
+            } catch (SQLException ex) {
+                showError("Error", "Could not save product: " + ex.getMessage());
+                return;
+            }
+            productCache.put(product.getId(), product);
             productsList.add(product);
             farmer.addProduct(product);
+            activityFeed.recordForFollowers(farmer.getId(),
+                    "New product from " + farmer.getFarmName() + ": " + product.getName());
+        });
+    }
+
+    private void showEditProductDialog(Product product) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Edit Product");
+        dialog.setHeaderText("Update " + product.getName());
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+
+        TextField priceField = new TextField(String.valueOf(product.getPrice()));
+        TextField quantityField = new TextField(String.valueOf(product.getQuantity()));
+        grid.add(new Label("Price:"), 0, 0);
+        grid.add(priceField, 1, 0);
+        grid.add(new Label("Quantity:"), 0, 1);
+        grid.add(quantityField, 1, 1);
+
+        dialog.getDialogPane().setContent(grid);
+        ButtonType saveButtonType = new ButtonType("Save", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(saveButtonType, ButtonType.CANCEL);
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != saveButtonType) {
+            return;
+        }
+        double oldPrice = product.getPrice();
+        int oldQuantity = product.getQuantity();
+        try {
+            product.setPrice(Double.parseDouble(priceField.getText().trim()));
+            product.setQuantity(Integer.parseInt(quantityField.getText().trim()));
+            productStore.update(product);
+        } catch (NumberFormatException ex) {
+            product.setPrice(oldPrice);
+            product.setQuantity(oldQuantity);
+            showError("Invalid Input", "Please enter valid numbers for price and quantity.");
+            return;
+        } catch (SQLException ex) {
+            product.setPrice(oldPrice);
+            product.setQuantity(oldQuantity);
+            showError("Error", "Could not update product: " + ex.getMessage());
+            return;
+        }
+        productsTable.refresh();
+        if (product.getPrice() != oldPrice) {
+            activityFeed.recordForFollowers(product.getFarmerId(), String.format("Price update: %s is now $%.2f/%s",
+                    product.getName(), product.getPrice(), product.getUnit()));
+        }
+        if (product.getQuantity() != oldQuantity) {
+            relay.publish(STOCK_TOPIC, product.getId() + ":" + product.getQuantity());
+            events.publish(DomainEvent.Type.STOCK_CHANGED, product.getId(), product.getQuantity());
+        }
+    }
+
+    // One edit for every selected product, saved in one transaction. The table gets a single
+    // list change rather than a refresh per row.
+    private void showBulkEditDialog(Farmer farmer, List<Product> selected) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Bulk Edit");
+        dialog.setHeaderText("Edit " + selected.size() + " selected products");
+
+        ChoiceBox<BulkProductEdit.Operation> operationBox = new ChoiceBox<>(
+                FXCollections.observableArrayList(BulkProductEdit.Operation.values()));
+        operationBox.setValue(BulkProductEdit.Operation.CHANGE_PRICE_PERCENT);
+        TextField valueField = new TextField();
+        valueField.setPromptText("e.g. 10 or -15");
+        valueField.disableProperty().bind(operationBox.valueProperty().isEqualTo(BulkProductEdit.Operation.DELETE));
+        operationBox.valueProperty().addListener((obs, oldOperation, operation) -> {
+            valueField.clear();
+            valueField.setPromptText(operation == BulkProductEdit.Operation.SET_UNIT ? "e.g. kg"
+                    : operation == BulkProductEdit.Operation.CHANGE_PRICE_PERCENT ? "e.g. 10 or -15"
+                    : operation == BulkProductEdit.Operation.ADJUST_STOCK ? "e.g. 20 or -5" : "e.g. 100");
         });
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+        grid.add(new Label("Operation:"), 0, 0);
+        grid.add(operationBox, 1, 0);
+        grid.add(new Label("Value:"), 0, 1);
+        grid.add(valueField, 1, 1);
+        dialog.getDialogPane().setContent(grid);
+        ButtonType applyButtonType = new ButtonType("Apply", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(applyButtonType, ButtonType.CANCEL);
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != applyButtonType) {
+            return;
+        }
+        BulkProductEdit edit;
+        try {
+            edit = new BulkProductEdit(operationBox.getValue(), valueField.getText());
+        } catch (IllegalArgumentException ex) {
+            showError("Invalid Input", ex.getMessage());
+            return;
+        }
+        if (edit.getOperation() == BulkProductEdit.Operation.DELETE) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete " + selected.size() + " products?",
+                    ButtonType.OK, ButtonType.CANCEL);
+            confirm.setHeaderText(null);
+            if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+                return;
+            }
+        }
+        BulkProductEdit.Result result;
+        try {
+            result = edit.apply(productStore, selected);
+        } catch (SQLException | NumberFormatException ex) {
+            showError("Error", "Could not update products: " + ex.getMessage());
+            return;
+        }
+
+        if (edit.getOperation() == BulkProductEdit.Operation.DELETE) {
+            for (Product product : result.getChanged()) {
+                productCache.putMissing(product.getId());
+            }
+            productsList.removeAll(result.getChanged());
+        } else if (!result.getChanged().isEmpty()) {
+            // The models were changed in place; one setAll redraws them all, then the selection is restored
+            productsList.setAll(new ArrayList<>(productsList));
+            for (Product product : selected) {
+                productsTable.getSelectionModel().select(product);
+            }
+        }
+        if (result.getPriceChanged().size() == 1) {
+            Product product = result.getPriceChanged().get(0);
+            activityFeed.recordForFollowers(farmer.getId(), String.format("Price update: %s is now $%.2f/%s",
+                    product.getName(), product.getPrice(), product.getUnit()));
+        } else if (result.getPriceChanged().size() > 1) {
+            activityFeed.recordForFollowers(farmer.getId(),
+                    "Price update: " + farmer.getFarmName() + " changed " + result.getPriceChanged().size() + " prices");
+        }
+        for (Product product : result.getStockChanged()) {
+            relay.publish(STOCK_TOPIC, product.getId() + ":" + product.getQuantity());
+            events.publish(DomainEvent.Type.STOCK_CHANGED, product.getId(), product.getQuantity());
+        }
+        toasts.show(edit.getOperation() == BulkProductEdit.Operation.DELETE
+                ? "Deleted " + result.getChanged().size() + " products"
+                : "Updated " + result.getChanged().size() + " products");
     }
 
     private void showCustomerDashboard(Customer customer) {
         this.currentCustomer = customer;
+        try {
+            seenStatusChangeId = orderStore.latestStatusChangeId(customer.getId());
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to read order status changes: " + e.getMessage());
+        }
+        listenForMessages(Message.CUSTOMER, customer.getUsername());
         BorderPane dashboard = new BorderPane();
         dashboard.setStyle("-fx-background-color: white;");
 
@@ -1367,10 +1829,11 @@ public class Main extends Application {
         messagesBtn.setStyle(
                 "-fx-background-color: #2E7D32; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 8px 15px; -fx-background-radius: 5px;");
 
-        Label messagesBadge = new Label("2");
+        int unreadMessages = unreadMessageCount(Message.CUSTOMER, customer.getUsername());
+        messagesBadge = new Label(String.valueOf(unreadMessages));
         messagesBadge.setStyle(
                 "-fx-background-color: #FF5252; -fx-text-fill: white; -fx-font-size: 12px; -fx-font-weight: bold; -fx-padding: 2px 6px; -fx-background-radius: 10px;");
-        messagesBadge.setVisible(true);
+        messagesBadge.setVisible(unreadMessages > 0);
 
         StackPane.setAlignment(messagesBadge, Pos.TOP_RIGHT);
         StackPane.setMargin(messagesBadge, new Insets(-5, -5, 0, 0));
@@ -1395,6 +1858,14 @@ public class Main extends Application {
         cartButtonContainer.getChildren().addAll(cartButton, cartBadge);
         cartButton.setOnAction(e -> showCart());
 
+        // Restore the customer's saved cart
+        try {
+            cartStore.restore(customer.getUsername());
+        } catch (SQLException ex) {
+            System.err.println("Failed to restore cart: " + ex.getMessage());
+        }
+        updateCartBadge();
+
         // Profile Button with Menu
         StackPane profileContainer = new StackPane();
         Button profileBtn = new Button("Profile");
@@ -1424,6 +1895,10 @@ public class Main extends Application {
         logoutBtn.setStyle(
                 "-fx-background-color: #FF5252; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 8px 15px; -fx-background-radius: 5px;");
         logoutBtn.setOnAction(e -> {
+            cartStore.flushLater(customer.getUsername());
+            listenForMessages(null, null);
+            currentCustomer = null;
+            customerOrdersList = null;
             primaryStage.setScene(scene);
             primaryStage.setTitle("Farmers & Customers Interaction App");
         });
@@ -1455,22 +1930,18 @@ public class Main extends Application {
         Label titleLabel = new Label("Messages");
         titleLabel.setStyle("-fx-font-size: 24px; -fx-font-weight: bold; -fx-text-fill: #2E7D32;");
 
-        VBox messagesList = new VBox(10);
+        MessageListView messagesList = createInbox(Message.CUSTOMER, customer.getUsername());
         messagesList.setStyle("-fx-background-color: #F5F5F5; -fx-padding: 15px; -fx-background-radius: 10px;");
-
-        // Add sample messages
-        messagesList.getChildren().addAll(
-                createMessageItem("John's Organic Farm", "Your order #1001 has been delivered!", "2 hours ago", true),
-                createMessageItem("Green Valley Farm", "New organic products available!", "5 hours ago", true),
-                createMessageItem("Fresh Harvest Co.", "Thank you for your recent order!", "1 day ago", false),
-                createMessageItem("Local Farmers Market", "Special weekend discounts available!", "2 days ago", false));
+        TextField searchField = new TextField();
+        StackPane messagesArea = withMessageSearch(Message.CUSTOMER, customer.getUsername(), messagesList,
+                searchField);
 
         Button newMessageBtn = new Button("New Message");
         newMessageBtn.setStyle(
                 "-fx-background-color: #2E7D32; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 10px 20px; -fx-background-radius: 5px;");
         newMessageBtn.setOnAction(e -> showNewMessageDialog(customer));
 
-        messagesContent.getChildren().addAll(titleLabel, messagesList, newMessageBtn);
+        messagesContent.getChildren().addAll(titleLabel, searchField, messagesArea, newMessageBtn);
 
         // Update the main content area
         BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
@@ -1489,12 +1960,26 @@ public class Main extends Application {
         VBox content = new VBox(15);
         content.setPadding(new Insets(20));
 
+        Map<String, String> farms;
+        try {
+            farms = messageStore.farmerDirectory();
+        } catch (SQLException ex) {
+            showError("Error", "Could not load farmers: " + ex.getMessage());
+            return;
+        }
         ComboBox<String> farmerComboBox = new ComboBox<>();
-        farmerComboBox.getItems().addAll(
-                "John's Organic Farm",
-                "Green Valley Farm",
-                "Fresh Harvest Co.",
-                "Local Farmers Market");
+        farmerComboBox.getItems().addAll(farms.keySet());
+        farmerComboBox.setConverter(new javafx.util.StringConverter<>() {
+            @Override
+            public String toString(String username) {
+                return username == null ? null : farms.get(username) + " (" + username + ")";
+            }
+
+            @Override
+            public String fromString(String text) {
+                return text;
+            }
+        });
         farmerComboBox.setPromptText("Select Farmer");
         farmerComboBox.setStyle("-fx-padding: 8px; -fx-background-radius: 5px;");
 
@@ -1520,8 +2005,15 @@ public class Main extends Application {
                 String message = messageArea.getText();
 
                 if (selectedFarmer != null && !message.trim().isEmpty()) {
-                    // In a real app, this would send the message to the selected farmer
-                    showNotification("Message sent to " + selectedFarmer);
+                    try {
+                        messageStore.send(Message.CUSTOMER, customer.getUsername(), customer.getFullName(),
+                                Message.FARMER, selectedFarmer, message.trim());
+                        relay.publish(messagesTopic(Message.FARMER, selectedFarmer), "new");
+                        events.publish(DomainEvent.Type.MESSAGE_SENT, selectedFarmer, 1);
+                        showNotification("Message sent to " + farms.get(selectedFarmer));
+                    } catch (SQLException ex) {
+                        showError("Error", "Could not send message: " + ex.getMessage());
+                    }
                     return null;
                 } else {
                     showError("Error", "Please select a farmer and enter a message.");
@@ -1648,39 +2140,132 @@ public class Main extends Application {
 
         VBox ordersList = new VBox(10);
         ordersList.setStyle("-fx-background-color: #F5F5F5; -fx-padding: 15px; -fx-background-radius: 10px;");
+        fillCustomerOrderHistory(customer, ordersList);
+        // Status changes pushed while the page is open redraw it
+        customerOrdersList = ordersList;
+
+        orderHistoryContent.getChildren().addAll(titleLabel, ordersList);
+
+        // Update the main content area
+        BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
+        ScrollPane scrollPane = new ScrollPane(orderHistoryContent);
+        scrollPane.setFitToWidth(true);
+        scrollPane.setFitToHeight(true);
+        scrollPane.setStyle("-fx-background-color: transparent; -fx-background: transparent;");
+        dashboardRoot.setCenter(scrollPane);
+    }
 
-        // Add sample orders (in a real app, these would come from a database)
-        for (int i = 0; i < 5; i++) {
+    private void fillCustomerOrderHistory(Customer customer, VBox ordersList) {
+        List<Order> orders;
+        try {
+            orders = orderStore.findForCustomer(customer.getId(), CUSTOMER_ORDER_LIMIT);
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to load order history: " + e.getMessage());
+            orders = List.of();
+        }
+        ordersList.getChildren().clear();
+        if (orders.isEmpty()) {
+            Label empty = new Label("You have not placed any orders yet.");
+            empty.setStyle("-fx-text-fill: #666;");
+            ordersList.getChildren().add(empty);
+            return;
+        }
+        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("d MMM yyyy, HH:mm");
+        for (Order order : orders) {
             HBox orderItem = new HBox(15);
             orderItem.setAlignment(Pos.CENTER_LEFT);
             orderItem.setStyle("-fx-background-color: white; -fx-padding: 15px; -fx-background-radius: 8px;");
 
-            Label orderTitle = new Label("Order #" + (1000 + i));
+            Label orderTitle = new Label("Order #" + order.getId());
             orderTitle.setStyle("-fx-font-weight: bold; -fx-font-size: 16px;");
 
-            Label orderStatus = new Label(i == 0 ? "Delivered" : (i == 1 ? "In Transit" : "Processing"));
-            orderStatus.setStyle("-fx-text-fill: " + (i == 0 ? "#2E7D32" : (i == 1 ? "#1976D2" : "#F57C00")) + ";");
+            // customerName carries the farm name on the customer's side
+            Label orderProduct = new Label(order.getQuantity() + " × " + order.getProductName()
+                    + (order.getCustomerName() != null ? " from " + order.getCustomerName() : ""));
 
-            Label orderDate = new Label("2024-03-" + (10 + i));
+            Label orderStatus = new Label(order.getStatus().getLabel());
+            orderStatus.setStyle("-fx-text-fill: " + statusColor(order.getStatus()) + ";");
+
+            Label orderDate = new Label(order.getOrderDate() != null ? order.getOrderDate().format(dateFormat) : "");
             orderDate.setStyle("-fx-text-fill: #666;");
 
-            Button viewDetailsBtn = new Button("View Details");
-            viewDetailsBtn.setStyle(
-                    "-fx-background-color: #2E7D32; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 5px 10px; -fx-background-radius: 5px;");
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            orderItem.getChildren().addAll(orderTitle, orderProduct, orderStatus, orderDate, spacer);
 
-            orderItem.getChildren().addAll(orderTitle, orderStatus, orderDate, viewDetailsBtn);
+            if (order.getStatus().canBecome(OrderStatus.CANCELLED)) {
+                Button cancelBtn = new Button("Cancel");
+                cancelBtn.getStyleClass().add("button-danger");
+                cancelBtn.setOnAction(e -> {
+                    try {
+                        if (!orderStore.cancelForCustomer(customer.getId(), order.getId())) {
+                            showAlert("Order History", "This order can no longer be cancelled.");
+                        }
+                    } catch (SQLException ex) {
+                        System.err.println("Failed to cancel order: " + ex.getMessage());
+                        showError("Error", "Could not cancel the order: " + ex.getMessage());
+                    }
+                    fillCustomerOrderHistory(customer, ordersList);
+                });
+                orderItem.getChildren().add(cancelBtn);
+            }
             ordersList.getChildren().add(orderItem);
         }
+    }
 
-        orderHistoryContent.getChildren().addAll(titleLabel, ordersList);
+    private static String statusColor(OrderStatus status) {
+        switch (status) {
+            case DELIVERED:
+                return "#2E7D32";
+            case PACKED:
+            case ACCEPTED:
+                return "#1976D2";
+            case PENDING:
+                return "#F57C00";
+            default:
+                return "#C62828";
+        }
+    }
 
-        // Update the main content area
-        BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-        ScrollPane scrollPane = new ScrollPane(orderHistoryContent);
-        scrollPane.setFitToWidth(true);
-        scrollPane.setFitToHeight(true);
-        scrollPane.setStyle("-fx-background-color: transparent; -fx-background: transparent;");
-        dashboardRoot.setCenter(scrollPane);
+    // Tells the signed-in customer about status changes to their orders since the last
+    // check, from this client or any other, and redraws the order history if it is open
+    private void checkOrderStatusChanges() {
+        Customer customer = currentCustomer;
+        long after = seenStatusChangeId;
+        Task<List<OrderStore.StatusChange>> task = new Task<>() {
+            @Override
+            protected List<OrderStore.StatusChange> call() throws Exception {
+                return orderStore.statusChangesForCustomer(customer.getId(), after, CUSTOMER_ORDER_LIMIT);
+            }
+        };
+        task.setOnSucceeded(done -> {
+            if (customer != currentCustomer) {
+                return;
+            }
+            int news = 0;
+            for (OrderStore.StatusChange change : task.getValue()) {
+                // Checks can overlap; each change is told once
+                if (change.getId() <= seenStatusChangeId) {
+                    continue;
+                }
+                seenStatusChangeId = change.getId();
+                news++;
+                // Customers cancel their own orders; no need to tell them
+                if (change.getTo() != OrderStatus.CANCELLED) {
+                    toasts.show("order-status", count -> count == 1
+                            ? "Order #" + change.getOrderId() + " (" + change.getProductName() + ") is now "
+                                    + change.getTo().getLabel()
+                            : count + " of your orders changed status");
+                }
+            }
+            if (news > 0 && customerOrdersList != null && customerOrdersList.getScene() != null) {
+                fillCustomerOrderHistory(customer, customerOrdersList);
+            }
+        });
+        task.setOnFailed(done -> System.err.println("Failed to check order status: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "order-status");
+        thread.setDaemon(true);
+        thread.start();
     }
 
     private void showCustomerPreferences(Customer customer) {
@@ -1778,10 +2363,12 @@ public class Main extends Application {
                 () -> showFavoriteProducts(customer));
 
         // Recent Activity Card
+        LocalDateTime newSince = LocalDateTime.now().minusDays(1);
         VBox recentActivityCard = createStatCard(
                 "Recent Activity",
-                "3",
-                "New updates",
+                String.valueOf(recentActivity(customer).stream()
+                        .filter(entry -> entry.getCreatedAt().isAfter(newSince)).count()),
+                "Updates in the last day",
                 "🔄",
                 () -> showRecentActivity(customer));
 
@@ -1789,6 +2376,7 @@ public class Main extends Application {
 
         // Featured Products Section
         Label featuredTitle = new Label("Featured Products");
+        Map<Long, Double> nearbyFarms = nearbyFarms(customer);
         featuredTitle.setStyle("-fx-font-size: 20px; -fx-font-weight: bold; -fx-text-fill: #2E7D32;");
 
         FlowPane featuredProducts = new FlowPane();
@@ -1796,14 +2384,45 @@ public class Main extends Application {
         featuredProducts.setVgap(20);
         featuredProducts.setPrefWrapLength(800);
 
-        // Add some sample featured products
-        for (int i = 0; i < 4; i++) {
-            VBox productCard = createProductCard(
-                    "Organic " + (i % 2 == 0 ? "Tomatoes" : "Potatoes"),
-                    "Fresh from local farms",
-                    (i + 1) * 5.99,
-                    "kg");
-            featuredProducts.getChildren().add(productCard);
+        // Flash sale products come first
+        for (Product product : productsList) {
+            if (flashSale.isOnSale(product.getId())) {
+                featuredProducts.getChildren().add(createProductCard(
+                        product.getId(),
+                        product.getName(),
+                        "Flash sale: " + flashSale.available(product.getId()) + " " + product.getUnit() + " left",
+                        product.getPrice(),
+                        product.getUnit()));
+            }
+        }
+
+        // Newest products from farms near the customer, nearest farm first, or else from every
+        // farm; farm names for all cards arrive in one batched query
+        try {
+            List<Product> featured = nearbyFarms.isEmpty() ? List.of()
+                    : new ArrayList<>(productStore.findNewestByFarmers(nearbyFarms.keySet(), FEATURED_PRODUCT_LIMIT));
+            if (featured.isEmpty()) {
+                featured = productStore.findNewest(FEATURED_PRODUCT_LIMIT);
+            } else {
+                featuredTitle.setText("Featured Products Near You");
+                featured.sort(Comparator.comparingDouble(
+                        product -> nearbyFarms.get(Long.parseLong(product.getFarmerId()))));
+            }
+            for (Product product : featured) {
+                if (!flashSale.isOnSale(product.getId())) {
+                    productCache.put(product.getId(), product);
+                    VBox card = createCatalogCard(product);
+                    Double distance = nearbyFarms.get(Long.parseLong(product.getFarmerId()));
+                    if (distance != null) {
+                        Label distanceLabel = new Label(String.format("%.0f km away", distance));
+                        distanceLabel.setStyle("-fx-font-size: 12px; -fx-text-fill: #757575;");
+                        card.getChildren().add(3, distanceLabel);
+                    }
+                    featuredProducts.getChildren().add(card);
+                }
+            }
+        } catch (SQLException ex) {
+            System.err.println("Failed to load featured products: " + ex.getMessage());
         }
 
         // Recent Orders Section
@@ -1882,6 +2501,15 @@ public class Main extends Application {
         dashboardRoot.setCenter(scrollPane);
     }
 
+    private List<ActivityFeedStore.Entry> recentActivity(Customer customer) {
+        try {
+            return activityFeed.recent(customer.getId(), ACTIVITY_PAGE_SIZE);
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to load activity feed: " + e.getMessage());
+            return List.of();
+        }
+    }
+
     private void showRecentActivity(Customer customer) {
         VBox activityContent = new VBox(20);
         activityContent.setPadding(new Insets(20));
@@ -1893,12 +2521,15 @@ public class Main extends Application {
         VBox activityList = new VBox(10);
         activityList.setStyle("-fx-background-color: #F5F5F5; -fx-padding: 15px; -fx-background-radius: 10px;");
 
-        // Add sample activities
-        activityList.getChildren().addAll(
-                createActivityItem("Order #1001 has been delivered", "2 hours ago", true),
-                createActivityItem("New product available: Organic Apples", "5 hours ago", true),
-                createActivityItem("Order #1000 has been shipped", "1 day ago", false),
-                createActivityItem("Price update: Organic Tomatoes", "2 days ago", false));
+        List<ActivityFeedStore.Entry> entries = recentActivity(customer);
+        LocalDateTime newSince = LocalDateTime.now().minusDays(1);
+        for (ActivityFeedStore.Entry entry : entries) {
+            activityList.getChildren().add(createActivityItem(entry.getText(), formatTimeAgo(entry.getCreatedAt()),
+                    entry.getCreatedAt().isAfter(newSince)));
+        }
+        if (entries.isEmpty()) {
+            activityList.getChildren().add(new Label("No activity yet. Follow a farm to hear about its new products."));
+        }
 
         activityContent.getChildren().addAll(titleLabel, activityList);
 
@@ -1931,7 +2562,8 @@ public class Main extends Application {
         cartItems.setStyle("-fx-background-color: #F5F5F5; -fx-padding: 15px; -fx-background-radius: 10px;");
 
         // Add cart items
-        for (CartItem item : this.cartItems) {
+        List<CartItem> lines = cartStore.items(currentCustomer.getUsername());
+        for (CartItem item : lines) {
             cartItems.getChildren().add(createCartItem(item));
         }
 
@@ -1940,7 +2572,7 @@ public class Main extends Application {
         summary.setStyle(
                 "-fx-background-color: white; -fx-padding: 20px; -fx-background-radius: 10px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
 
-        double subtotal = this.cartItems.stream()
+        double subtotal = lines.stream()
                 .mapToDouble(item -> item.getPrice() * item.getQuantity())
                 .sum();
         double shipping = 5.99;
@@ -1997,28 +2629,51 @@ public class Main extends Application {
 
         minusBtn.setOnAction(e -> {
             if (item.getQuantity() > 1) {
-                item.setQuantity(item.getQuantity() - 1);
+                if (flashSale.isOnSale(item.getProductId())) {
+                    flashSale.release(currentCustomer.getUsername(), item.getProductId(), 1);
+                }
+                cartStore.setQuantity(currentCustomer.getUsername(), item, item.getQuantity() - 1);
                 quantityLabel.setText(String.valueOf(item.getQuantity()));
-                updateCartBadge();
+                events.publish(DomainEvent.Type.CART_CHANGED, currentCustomer.getUsername(), -1);
             }
         });
 
         plusBtn.setOnAction(e -> {
-            item.setQuantity(item.getQuantity() + 1);
+            if (flashSale.isOnSale(item.getProductId())
+                    && !flashSale.reserve(currentCustomer.getUsername(), item.getProductId(), 1)) {
+                showNotification("Sorry, " + item.getName() + " is sold out");
+                return;
+            }
+            cartStore.setQuantity(currentCustomer.getUsername(), item, item.getQuantity() + 1);
             quantityLabel.setText(String.valueOf(item.getQuantity()));
-            updateCartBadge();
+            events.publish(DomainEvent.Type.CART_CHANGED, currentCustomer.getUsername(), 1);
         });
 
         removeBtn.setOnAction(e -> {
-            cartItems.remove(item);
+            if (flashSale.isOnSale(item.getProductId())) {
+                flashSale.release(currentCustomer.getUsername(), item.getProductId(), item.getQuantity());
+            }
+            cartStore.remove(currentCustomer.getUsername(), item);
             itemBox.setVisible(false);
             itemBox.setManaged(false);
-            updateCartBadge();
+            events.publish(DomainEvent.Type.CART_CHANGED, currentCustomer.getUsername(), -item.getQuantity());
         });
 
         itemHeader.getChildren().addAll(nameLabel, priceLabel);
         itemBox.getChildren().addAll(itemHeader, quantityBox, removeBtn);
 
+        // Lines for saved products are checked in one batch per cart render
+        if (item.getProductId() != null) {
+            productLoader.load(item.getProductId()).whenComplete((product, error) -> Platform.runLater(() -> {
+                if (error == null && product.isEmpty()) {
+                    Label unavailable = new Label("No longer available");
+                    unavailable.setStyle("-fx-text-fill: #FF5252; -fx-font-weight: bold;");
+                    itemHeader.getChildren().add(unavailable);
+                    plusBtn.setDisable(true);
+                }
+            }));
+        }
+
         return itemBox;
     }
 
@@ -2066,7 +2721,21 @@ public class Main extends Application {
         dialog.setResultConverter(dialogButton -> {
             if (dialogButton == confirmButtonType) {
                 // Process the order
-                showOrderConfirmation();
+                // Holds are kept through the insert and only counted as sold once it commits
+                List<CartItem> held = holdFlashSaleReservations();
+                if (held == null) {
+                    return null;
+                }
+                if (placeOrder(addressField.getText().trim())) {
+                    for (CartItem item : held) {
+                        flashSale.confirm(currentCustomer.getUsername(), item.getProductId());
+                    }
+                    showOrderConfirmation();
+                } else {
+                    for (CartItem item : held) {
+                        flashSale.release(currentCustomer.getUsername(), item.getProductId(), item.getQuantity());
+                    }
+                }
                 return null;
             }
             return null;
@@ -2075,9 +2744,69 @@ public class Main extends Application {
         dialog.showAndWait();
     }
 
+    // Keeps the cart's flash-sale holds from expiring during checkout and returns their lines,
+    // or null if some had already expired; those are dropped from the cart and the rest
+    // start running out again
+    private List<CartItem> holdFlashSaleReservations() {
+        String customer = currentCustomer.getUsername();
+        List<CartItem> held = new ArrayList<>();
+        List<String> expired = new ArrayList<>();
+        for (CartItem item : cartStore.items(customer)) {
+            if (!flashSale.isOnSale(item.getProductId())) {
+                continue;
+            }
+            if (flashSale.holdForCheckout(customer, item.getProductId())) {
+                held.add(item);
+            } else {
+                cartStore.remove(customer, item);
+                expired.add(item.getName());
+            }
+        }
+        if (!expired.isEmpty()) {
+            for (CartItem item : held) {
+                flashSale.cancelCheckout(customer, item.getProductId());
+            }
+            updateCartBadge();
+            showError("Reservation Expired", "Your reservation ran out for: " + String.join(", ", expired)
+                    + ". These items were removed from your cart.");
+            return null;
+        }
+        return held;
+    }
+
+    private void applySoldQuantities(Map<String, Integer> sold) {
+        for (Product product : productsList) {
+            Integer quantity = sold.get(product.getId());
+            if (quantity != null) {
+                product.setQuantity(product.getQuantity() - quantity);
+                // Absolute quantities, so replays and our own echo are harmless
+                relay.publish(STOCK_TOPIC, product.getId() + ":" + product.getQuantity());
+                events.publish(DomainEvent.Type.STOCK_CHANGED, product.getId(), product.getQuantity());
+            }
+        }
+        if (productsTable != null) {
+            productsTable.refresh();
+        }
+    }
+
+    private boolean placeOrder(String deliveryAddress) {
+        String address = deliveryAddress.isEmpty() ? currentCustomer.getLocation() : deliveryAddress;
+        try {
+            int placed = orderStore.placeOrder(currentCustomer.getId(), address,
+                    cartStore.items(currentCustomer.getUsername()));
+            events.publish(DomainEvent.Type.ORDER_PLACED, currentCustomer.getUsername(), placed);
+            activityFeed.recordForCustomer(currentCustomer.getId(),
+                    "Order placed: " + placed + (placed == 1 ? " item" : " items") + " to " + address);
+            return true;
+        } catch (SQLException | NumberFormatException e) {
+            showError("Order Failed", "Could not place your order: " + e.getMessage());
+            return false;
+        }
+    }
+
     private void showOrderConfirmation() {
         // Clear the cart
-        cartItems.clear();
+        cartStore.clear(currentCustomer.getUsername());
         updateCartBadge();
 
         // Show confirmation message
@@ -2091,6 +2820,34 @@ public class Main extends Application {
         showCustomerDashboard(currentCustomer);
     }
 
+    // New products and price changes from followed farms show up in the customer's activity feed
+    private Button createFollowButton(Farmer farmer) {
+        Button followButton = new Button();
+        followButton.getStyleClass().add("button-secondary");
+        followButton.setMaxWidth(Double.MAX_VALUE);
+        boolean[] following = new boolean[1];
+        try {
+            following[0] = activityFeed.isFollowing(currentCustomer.getId(), farmer.getId());
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to read follow state: " + e.getMessage());
+        }
+        followButton.setText(following[0] ? "Following ✓" : "Follow Farm");
+        followButton.setOnAction(e -> {
+            try {
+                if (following[0]) {
+                    activityFeed.unfollow(currentCustomer.getId(), farmer.getId());
+                } else {
+                    activityFeed.follow(currentCustomer.getId(), farmer.getId());
+                }
+                following[0] = !following[0];
+                followButton.setText(following[0] ? "Following ✓" : "Follow Farm");
+            } catch (SQLException | NumberFormatException ex) {
+                showError("Error", "Could not update follow: " + ex.getMessage());
+            }
+        });
+        return followButton;
+    }
+
     private void showFarmerDetails(Product product, VBox farmerDetails) {
         System.out.println("Showing farmer details for product: " + product.getName());
         System.out.println("Product farmer ID: " + product.getFarmerId());
@@ -2133,6 +2890,9 @@ public class Main extends Application {
             });
 
             farmerDetails.getChildren().addAll(farmerName, farmName, contact, email, location, contactButton);
+            if (currentCustomer != null) {
+                farmerDetails.getChildren().add(createFollowButton(farmer));
+            }
             farmerDetails.setVisible(true);
             farmerDetails.setManaged(true);
 
@@ -2146,15 +2906,283 @@ public class Main extends Application {
     }
 
     private Farmer findFarmerById(String farmerId) {
-        // Return the demo farmer for the demo product
-        return demoFarmer;
+        Optional<Farmer> cached = farmerCache.get(farmerId);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+        try {
+            Farmer farmer = accountStore.findFarmersByIds(List.of(farmerId)).get(farmerId);
+            if (farmer != null) {
+                farmerCache.put(farmerId, farmer);
+            } else {
+                farmerCache.putMissing(farmerId);
+            }
+            return farmer;
+        } catch (SQLException e) {
+            System.err.println("Failed to load farmer: " + e.getMessage());
+            return null;
+        }
     }
 
-    private void showError(String title, String content) {
-        Alert alert = new Alert(Alert.AlertType.ERROR);
-        alert.setTitle(title);
-        alert.setHeaderText(null);
-        alert.setContentText(content);
+    // Farmer id -> distance for the farms within reach of the customer's address, nearest
+    // first; empty when the address or the farms are not located yet
+    private Map<Long, Double> nearbyFarms(Customer customer) {
+        Map<Long, Double> farms = new LinkedHashMap<>();
+        if (farmLocator == null || !farmLocator.isLoaded()) {
+            return farms;
+        }
+        GeoPoint home = farmLocator.locate(customer.getLocation());
+        if (home == null) {
+            return farms;
+        }
+        for (GeoGridIndex.Hit hit : farmLocator.farmsNear(home, NEARBY_RADIUS_KM, NEARBY_FARM_LIMIT)) {
+            farms.put(hit.getId(), hit.getDistanceKm());
+        }
+        return farms;
+    }
+
+    // Product card with the owning farm's name; clicking the name shows the farmer's details
+    private VBox createCatalogCard(Product product) {
+        VBox card = createProductCard(product.getId(), product.getName(), product.getDescription(),
+                product.getPrice(), product.getUnit());
+        Label farmLabel = new Label("Loading farm...");
+        farmLabel.getStyleClass().add("link-label");
+        farmLabel.setStyle("-fx-font-size: 13px;");
+        VBox farmerDetails = new VBox();
+        farmerDetails.setVisible(false);
+        farmerDetails.setManaged(false);
+        farmerLoader.load(product.getFarmerId()).whenComplete((farmer, error) -> Platform.runLater(() -> {
+            if (error != null || farmer.isEmpty()) {
+                farmLabel.setText("");
+                return;
+            }
+            farmLabel.setText("From " + farmer.get().getFarmName());
+            farmLabel.setOnMouseClicked(e -> {
+                if (farmerDetails.isVisible()) {
+                    farmerDetails.setVisible(false);
+                    farmerDetails.setManaged(false);
+                } else {
+                    showFarmerDetails(product, farmerDetails);
+                }
+            });
+        }));
+        card.getChildren().add(2, farmLabel);
+        card.getChildren().add(farmerDetails);
+        return card;
+    }
+
+    // Rows changed by this or any other client: drop what the caches hold for them
+    private void onDataChanged(List<ChangeFeed.Change> changes) {
+        Map<String, Integer> tables = new HashMap<>();
+        List<Long> orderIds = new ArrayList<>();
+        List<String> farmerIds = new ArrayList<>();
+        for (ChangeFeed.Change change : changes) {
+            tables.merge(change.getTable(), 1, Integer::sum);
+            if (change.getTable().equals("Product")) {
+                productCache.invalidate(change.getRowId());
+            } else if (change.getTable().equals("Farmer")) {
+                farmerCache.invalidate(change.getRowId());
+                farmerIds.add(change.getRowId());
+            } else if (change.getTable().equals("Orders")) {
+                orderIds.add(Long.valueOf(change.getRowId()));
+            }
+        }
+        if (!orderIds.isEmpty()) {
+            Platform.runLater(() -> updateFulfillment(orderIds));
+        }
+        if (!farmerIds.isEmpty() && farmLocator != null) {
+            try {
+                farmLocator.refresh(farmerIds);
+            } catch (SQLException e) {
+                System.err.println("Failed to update farm locations: " + e.getMessage());
+            }
+        }
+        queryCache.bump(tables.keySet().toArray(new String[0]));
+        for (Map.Entry<String, Integer> table : tables.entrySet()) {
+            events.publish(DomainEvent.Type.ROWS_CHANGED, table.getKey(), table.getValue());
+        }
+    }
+
+    private void loadFarmerProducts(Farmer farmer) {
+        try {
+            List<Product> products = productStore.findByFarmer(farmer.getId());
+            for (Product product : products) {
+                productCache.put(product.getId(), product);
+            }
+            productsList.setAll(products);
+        } catch (SQLException e) {
+            System.err.println("Failed to load products: " + e.getMessage());
+        }
+    }
+
+    private void deleteProduct(Product product) {
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, "Delete " + product.getName() + "?",
+                ButtonType.OK, ButtonType.CANCEL);
+        confirm.setHeaderText(null);
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
+        }
+        try {
+            productStore.delete(product.getId());
+        } catch (SQLException e) {
+            showError("Error", "Could not delete product: " + e.getMessage());
+            return;
+        }
+        productCache.putMissing(product.getId());
+        productsList.remove(product);
+    }
+
+    // Saves the demo product for the demo farmer the first time the app runs
+    private void seedDemoProduct(Product demoProduct) {
+        try {
+            if (productStore.findByFarmer(demoFarmer.getId()).isEmpty()) {
+                productStore.insert(demoProduct);
+            }
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to save demo product: " + e.getMessage());
+        }
+    }
+
+    // Asks where to save, then streams the export on a background thread behind a progress
+    // dialog that can cancel it. The format follows the chosen file's extension.
+    private void exportTable(String name, TableExport.Source source) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Export " + name);
+        fileChooser.setInitialFileName(name + "-" + LocalDate.now() + ".csv");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV", "*.csv"),
+                new FileChooser.ExtensionFilter("JSON", "*.json"));
+        File file = fileChooser.showSaveDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        Path path = file.toPath();
+        if (fileChooser.getSelectedExtensionFilter() != null
+                && fileChooser.getSelectedExtensionFilter().getDescription().equals("JSON")
+                && !file.getName().toLowerCase().endsWith(".json")) {
+            path = path.resolveSibling(file.getName().replaceFirst("\\.csv$", "") + ".json");
+        }
+        Path target = path;
+        TableExport.Format format = TableExport.Format.forFile(target);
+
+        Task<Long> task = new Task<>() {
+            @Override
+            protected Long call() throws Exception {
+                return TableExport.write(target, format, source, (rows, total) -> {
+                    updateProgress(rows, Math.max(total, 1));
+                    updateMessage(String.format("%,d of %,d rows", rows, total));
+                });
+            }
+        };
+        task.setOnSucceeded(e -> toasts.show(
+                String.format("Exported %,d %s to %s", task.getValue(), name, target.getFileName())));
+        task.setOnFailed(e -> {
+            System.err.println("Failed to export " + name + ": " + task.getException().getMessage());
+            showError("Export Failed", "Could not export " + name + ": " + task.getException().getMessage());
+        });
+        runWithProgress(task, "Export " + name, "Exporting " + name + " to " + target.getFileName());
+    }
+
+    // Asks for a CSV or TSV file and imports its products in the background; the table
+    // gets all of them in one change when the import is done, or stops early, since the
+    // products saved before a cancel or failure stay in the database
+    private void importProducts(Farmer farmer) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Import products");
+        fileChooser.getExtensionFilters().addAll(
+                new FileChooser.ExtensionFilter("CSV or TSV", "*.csv", "*.tsv", "*.txt"),
+                new FileChooser.ExtensionFilter("All files", "*.*"));
+        File file = fileChooser.showOpenDialog(primaryStage);
+        if (file == null) {
+            return;
+        }
+        Task<ProductImporter.Result> task = new Task<>() {
+            @Override
+            protected ProductImporter.Result call() throws Exception {
+                // The row count is not known up front, so the bar stays indeterminate
+                ProductImporter.Result result = new ProductImporter(productStore).importFile(file.toPath(),
+                        farmer.getId(), (rows, imported) -> updateMessage(
+                                String.format("%,d rows read, %,d products imported", rows, imported)));
+                if (isCancelled()) {
+                    // A cancelled task's value is dropped, but what was saved must still show
+                    Platform.runLater(() -> showImportResult(farmer, result));
+                }
+                return result;
+            }
+        };
+        task.setOnSucceeded(e -> showImportResult(farmer, task.getValue()));
+        task.setOnFailed(e -> {
+            System.err.println("Failed to import products: " + task.getException().getMessage());
+            showError("Import Failed", "Could not import products: " + task.getException().getMessage());
+        });
+        runWithProgress(task, "Import products", "Importing products from " + file.getName());
+    }
+
+    // Adds the imported products to the table and reports what was imported and skipped
+    private void showImportResult(Farmer farmer, ProductImporter.Result result) {
+        List<Product> imported = result.getImported();
+        for (Product product : imported) {
+            productCache.put(product.getId(), product);
+            farmer.addProduct(product);
+        }
+        productsList.addAll(imported);
+        if (!imported.isEmpty()) {
+            activityFeed.recordForFollowers(farmer.getId(), farmer.getFarmName() + " added "
+                    + imported.size() + " new products");
+        }
+        StringBuilder report = new StringBuilder(result.getStopReason() == null
+                ? String.format("Imported %,d products.", imported.size())
+                : String.format("Import stopped after %,d products were saved. %s.", imported.size(),
+                        result.getStopReason()));
+        if (result.getFailedRows() > 0) {
+            report.append(String.format("%n%,d rows were skipped:", result.getFailedRows()));
+            for (ProductImporter.RowError error : result.getErrors()) {
+                report.append(String.format("%nLine %d: %s", error.getLine(), error.getMessage()));
+            }
+            if (result.getErrors().size() < result.getFailedRows()) {
+                report.append(String.format("%n…and %,d more", result.getFailedRows() - result.getErrors().size()));
+            }
+        }
+        Alert alert = new Alert(result.getFailedRows() > 0 || result.getStopReason() != null
+                ? Alert.AlertType.WARNING : Alert.AlertType.INFORMATION);
+        alert.setTitle("Import Products");
+        alert.setHeaderText(null);
+        TextArea reportArea = new TextArea(report.toString());
+        reportArea.setEditable(false);
+        reportArea.setWrapText(true);
+        alert.getDialogPane().setContent(reportArea);
+        alert.showAndWait();
+    }
+
+    // Runs a task on its own thread behind a dialog showing its progress and message;
+    // closing the dialog cancels the task
+    private void runWithProgress(Task<?> task, String title, String header) {
+        ProgressBar progressBar = new ProgressBar();
+        progressBar.setPrefWidth(320);
+        progressBar.progressProperty().bind(task.progressProperty());
+        Label progressLabel = new Label();
+        progressLabel.textProperty().bind(task.messageProperty());
+        Alert dialog = new Alert(Alert.AlertType.NONE, null, ButtonType.CANCEL);
+        dialog.setTitle(title);
+        dialog.setHeaderText(header);
+        dialog.getDialogPane().setContent(new VBox(10, progressBar, progressLabel));
+        dialog.setOnHidden(e -> task.cancel());
+        task.runningProperty().addListener((obs, wasRunning, running) -> {
+            if (!running) {
+                dialog.close();
+            }
+        });
+        Thread thread = new Thread(task, title.toLowerCase().replace(' ', '-'));
+        thread.setDaemon(true);
+        thread.start();
+        dialog.show();
+    }
+
+    private void showError(String title, String content) {
+        Alert alert = new Alert(Alert.AlertType.ERROR);
+        alert.setTitle(title);
+        alert.setHeaderText(null);
+        alert.setContentText(content);
         alert.showAndWait();
     }
 
@@ -2172,7 +3200,24 @@ public class Main extends Application {
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        header.getChildren().addAll(title, spacer);
+        Button exportBtn = new Button("Export");
+        exportBtn.getStyleClass().add("button-secondary");
+        exportBtn.setFont(Font.font("Roboto", 14));
+        exportBtn.setOnAction(e -> exportTable("orders", sink -> orderStore.exportForFarmer(farmer.getId(), sink)));
+
+        TextField searchField = new TextField();
+        searchField.setPromptText("Search customer, product, status or address");
+        searchField.setPrefWidth(300);
+
+        Button acceptSelectedBtn = new Button("Accept Selected");
+        acceptSelectedBtn.getStyleClass().add("button-primary");
+        acceptSelectedBtn.setFont(Font.font("Roboto", 14));
+        Button rejectSelectedBtn = new Button("Reject Selected");
+        rejectSelectedBtn.getStyleClass().add("button-danger");
+        rejectSelectedBtn.setFont(Font.font("Roboto", 14));
+
+        header.setSpacing(10);
+        header.getChildren().addAll(title, spacer, searchField, acceptSelectedBtn, rejectSelectedBtn, exportBtn);
 
         // Create Orders Table
         TableView<Order> ordersTable = new TableView<>();
@@ -2248,46 +3293,74 @@ public class Main extends Application {
         });
 
         // Status Column
-        TableColumn<Order, String> statusCol = new TableColumn<>("Status");
+        TableColumn<Order, OrderStatus> statusCol = new TableColumn<>("Status");
         statusCol.setCellValueFactory(new PropertyValueFactory<>("status"));
         statusCol.setCellFactory(tc -> new TableCell<>() {
             @Override
-            protected void updateItem(String item, boolean empty) {
+            protected void updateItem(OrderStatus item, boolean empty) {
                 super.updateItem(item, empty);
                 if (empty || item == null) {
                     setText(null);
                 } else {
-                    setText(item);
+                    setText(item.getLabel());
                     setAlignment(Pos.CENTER);
                     setFont(Font.font("Roboto", 14));
                 }
             }
         });
 
-        // Actions Column
+        // Actions Column: the next steps the order's status allows
         TableColumn<Order, String> actionsCol = new TableColumn<>("Actions");
         actionsCol.setCellFactory(col -> new TableCell<>() {
             private final Button acceptBtn = new Button("Accept");
             private final Button rejectBtn = new Button("Reject");
-            private final HBox buttons = new HBox(10, acceptBtn, rejectBtn);
+            private final Button packBtn = new Button("Packed");
+            private final Button deliverBtn = new Button("Delivered");
+            private final HBox buttons = new HBox(10);
 
             {
                 acceptBtn.getStyleClass().add("button-primary");
                 rejectBtn.getStyleClass().add("button-danger");
+                packBtn.getStyleClass().add("button-secondary");
+                deliverBtn.getStyleClass().add("button-secondary");
                 buttons.setAlignment(Pos.CENTER);
-                acceptBtn.setFont(Font.font("Roboto", 12));
-                rejectBtn.setFont(Font.font("Roboto", 12));
+                for (Button button : List.of(acceptBtn, rejectBtn, packBtn, deliverBtn)) {
+                    button.setFont(Font.font("Roboto", 12));
+                }
+                acceptBtn.setOnAction(e -> changeOrderStatus(farmer, List.of(getTableRow().getItem()),
+                        OrderStatus.ACCEPTED));
+                rejectBtn.setOnAction(e -> changeOrderStatus(farmer, List.of(getTableRow().getItem()),
+                        OrderStatus.REJECTED));
+                packBtn.setOnAction(e -> changeOrderStatus(farmer, List.of(getTableRow().getItem()),
+                        OrderStatus.PACKED));
+                deliverBtn.setOnAction(e -> changeOrderStatus(farmer, List.of(getTableRow().getItem()),
+                        OrderStatus.DELIVERED));
             }
 
             @Override
             protected void updateItem(String item, boolean empty) {
                 super.updateItem(item, empty);
-                if (empty) {
+                // Rows that are still loading have no order yet
+                if (empty || getTableRow() == null || getTableRow().getItem() == null) {
                     setGraphic(null);
-                } else {
-                    setGraphic(buttons);
-                    setAlignment(Pos.CENTER);
+                    return;
                 }
+                OrderStatus status = getTableRow().getItem().getStatus();
+                buttons.getChildren().clear();
+                if (status.canBecome(OrderStatus.ACCEPTED)) {
+                    buttons.getChildren().add(acceptBtn);
+                }
+                if (status.canBecome(OrderStatus.REJECTED)) {
+                    buttons.getChildren().add(rejectBtn);
+                }
+                if (status.canBecome(OrderStatus.PACKED)) {
+                    buttons.getChildren().add(packBtn);
+                }
+                if (status.canBecome(OrderStatus.DELIVERED)) {
+                    buttons.getChildren().add(deliverBtn);
+                }
+                setGraphic(buttons);
+                setAlignment(Pos.CENTER);
             }
         });
 
@@ -2299,52 +3372,486 @@ public class Main extends Application {
         ordersTable.getColumns().addAll(customerNameCol, locationCol, productNameCol, quantityCol, statusCol,
                 actionsCol);
 
-        // Add sample orders (in a real app, this would come from a database)
-        ObservableList<Order> orders = FXCollections.observableArrayList(
-                new Order("John Doe", "123 Main St, City", "Organic Tomatoes", 5, "Pending"),
-                new Order("Jane Smith", "456 Oak Ave, Town", "Fresh Lettuce", 3, "Pending"),
-                new Order("Mike Johnson", "789 Pine Rd, Village", "Organic Carrots", 2, "Pending"));
+        // Rows are paged in from the database as the table scrolls; sorting and search run in
+        // SQL, so neither needs every order in memory
+        customerNameCol.setUserData(OrderStore.SortKey.CUSTOMER);
+        locationCol.setUserData(OrderStore.SortKey.LOCATION);
+        productNameCol.setUserData(OrderStore.SortKey.PRODUCT);
+        quantityCol.setUserData(OrderStore.SortKey.QUANTITY);
+        statusCol.setUserData(OrderStore.SortKey.STATUS);
+        actionsCol.setSortable(false);
+        OrderQuery query = new OrderQuery();
+        WindowedList<Order> orders = new WindowedList<>(orderSource(farmer, query.copy()), ORDER_PAGE_SIZE,
+                ORDER_WINDOW_PAGES);
+        ordersTable.setSortPolicy(table -> {
+            OrderQuery before = query.copy();
+            if (table.getSortOrder().isEmpty()) {
+                query.setSort(OrderStore.SortKey.DATE, false);
+            } else {
+                TableColumn<Order, ?> column = table.getSortOrder().get(0);
+                query.setSort((OrderStore.SortKey) column.getUserData(),
+                        column.getSortType() == TableColumn.SortType.ASCENDING);
+            }
+            if (!query.equals(before)) {
+                orders.setSource(orderSource(farmer, query.copy()));
+            }
+            return true;
+        });
+
+        // Filter chips; every change re-runs the query in SQL from the first page
+        FlowPane filters = new FlowPane(8, 8);
+        filters.setAlignment(Pos.CENTER_LEFT);
+        Label statusLabel = new Label("Status:");
+        statusLabel.setFont(Font.font("Roboto", 14));
+        filters.getChildren().add(statusLabel);
+        List<ToggleButton> statusChips = new ArrayList<>();
+        for (OrderStatus status : OrderStatus.values()) {
+            ToggleButton chip = new ToggleButton(status.getLabel());
+            chip.getStyleClass().add("button-secondary");
+            chip.setFont(Font.font("Roboto", 12));
+            statusChips.add(chip);
+        }
+        filters.getChildren().addAll(statusChips);
+
+        DatePicker fromPicker = new DatePicker();
+        fromPicker.setPromptText("From");
+        fromPicker.setPrefWidth(130);
+        DatePicker toPicker = new DatePicker();
+        toPicker.setPromptText("To");
+        toPicker.setPrefWidth(130);
+
+        ComboBox<Product> productBox = new ComboBox<>(productsList.filtered(
+                product -> !Database.parseIds(List.of(product.getId())).isEmpty()));
+        productBox.setPromptText("All products");
+        productBox.setConverter(new javafx.util.StringConverter<>() {
+            @Override
+            public String toString(Product product) {
+                return product == null ? "" : product.getName();
+            }
+
+            @Override
+            public Product fromString(String name) {
+                return null;
+            }
+        });
+
+        TextField locationField = new TextField();
+        locationField.setPromptText("Location");
+        locationField.setPrefWidth(160);
+
+        Button clearFiltersBtn = new Button("Clear");
+        clearFiltersBtn.getStyleClass().add("button-secondary");
+        clearFiltersBtn.setFont(Font.font("Roboto", 12));
+
+        Label matchCount = new Label();
+        matchCount.setFont(Font.font("Roboto", 12));
+        matchCount.setTextFill(Color.web("#6b7280"));
+        matchCount.textProperty().bind(Bindings.size(orders).asString("%,d orders"));
+
+        filters.getChildren().addAll(fromPicker, toPicker, productBox, locationField, clearFiltersBtn, matchCount);
+
+        Runnable applyFilters = () -> {
+            OrderQuery before = query.copy();
+            query.setText(searchField.getText());
+            List<String> statuses = new ArrayList<>();
+            for (ToggleButton chip : statusChips) {
+                if (chip.isSelected()) {
+                    statuses.add(chip.getText());
+                }
+            }
+            query.setStatuses(statuses);
+            query.setFrom(fromPicker.getValue());
+            query.setTo(toPicker.getValue());
+            Product product = productBox.getValue();
+            query.setProductId(product == null ? null : Long.valueOf(product.getId()));
+            query.setLocation(locationField.getText());
+            clearFiltersBtn.setDisable(!query.isFiltered());
+            if (!query.equals(before)) {
+                orders.setSource(orderSource(farmer, query.copy()));
+            }
+        };
+        clearFiltersBtn.setDisable(true);
+        for (ToggleButton chip : statusChips) {
+            chip.selectedProperty().addListener((obs, wasSelected, selected) -> applyFilters.run());
+        }
+        fromPicker.valueProperty().addListener((obs, oldDate, newDate) -> applyFilters.run());
+        toPicker.valueProperty().addListener((obs, oldDate, newDate) -> applyFilters.run());
+        productBox.valueProperty().addListener((obs, oldProduct, newProduct) -> applyFilters.run());
+        javafx.animation.PauseTransition typingDelay = new javafx.animation.PauseTransition(Duration.millis(300));
+        typingDelay.setOnFinished(e -> applyFilters.run());
+        searchField.textProperty().addListener((obs, oldText, newText) -> typingDelay.playFromStart());
+        locationField.textProperty().addListener((obs, oldText, newText) -> typingDelay.playFromStart());
+        clearFiltersBtn.setOnAction(e -> {
+            searchField.clear();
+            locationField.clear();
+            statusChips.forEach(chip -> chip.setSelected(false));
+            fromPicker.setValue(null);
+            toPicker.setValue(null);
+            productBox.setValue(null);
+            typingDelay.stop();
+            applyFilters.run();
+        });
+
         ordersTable.setItems(orders);
+        // Shift/Ctrl-click picks several orders to accept or reject together, including rows
+        // scrolled out of the loaded window
+        ordersTable.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        acceptSelectedBtn.disableProperty().bind(Bindings.isEmpty(ordersTable.getSelectionModel().getSelectedIndices()));
+        rejectSelectedBtn.disableProperty().bind(Bindings.isEmpty(ordersTable.getSelectionModel().getSelectedIndices()));
+        acceptSelectedBtn.setOnAction(e -> changeSelectedOrderStatus(farmer, query.copy(), orders,
+                ordersTable.getSelectionModel(), OrderStatus.ACCEPTED));
+        rejectSelectedBtn.setOnAction(e -> changeSelectedOrderStatus(farmer, query.copy(), orders,
+                ordersTable.getSelectionModel(), OrderStatus.REJECTED));
+        // Rows changed by any client reload the visible window while the page is shown
+        ordersSection.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                ordersWindow = orders;
+            } else if (ordersWindow == orders) {
+                ordersWindow = null;
+            }
+        });
 
-        ordersSection.getChildren().addAll(header, ordersTable);
+        ordersSection.getChildren().addAll(header, createFulfillmentPanel(farmer), filters, ordersTable);
         return ordersSection;
     }
 
-    // Order class to represent order data
-    public static class Order {
-        private final String customerName;
-        private final String location;
-        private final String productName;
-        private final int quantity;
-        private final String status;
+    // What to pack next and the day's pick list, from the farmer's waiting orders. The
+    // orders are loaded once; after that only orders the change feed reports are re-read.
+    private TitledPane createFulfillmentPanel(Farmer farmer) {
+        // Straight-line distance from the farm to the delivery address, where the gazetteer
+        // knows both
+        GeoPoint farm = farmLocator == null ? null : farmLocator.locate(farmer.getFarmLocation());
+        FulfillmentScheduler scheduler = new FulfillmentScheduler(fulfillmentWeights, order -> {
+            GeoPoint delivery = farm == null ? null : farmLocator.locate(order.getLocation());
+            return delivery == null ? Double.NaN : farm.distanceKm(delivery);
+        });
+
+        ListView<Order> packNextList = new ListView<>();
+        packNextList.setPrefHeight(220);
+        packNextList.setPlaceholder(new Label("Nothing waiting to be packed"));
+        packNextList.setCellFactory(list -> new ListCell<>() {
+            private final Label text = new Label();
+            private final Button packedBtn = new Button("Packed");
+            private final Region spacer = new Region();
+            private final HBox row = new HBox(10, text, spacer, packedBtn);
 
-        public Order(String customerName, String location, String productName, int quantity, String status) {
-            this.customerName = customerName;
-            this.location = location;
-            this.productName = productName;
-            this.quantity = quantity;
-            this.status = status;
-        }
+            {
+                HBox.setHgrow(spacer, Priority.ALWAYS);
+                row.setAlignment(Pos.CENTER_LEFT);
+                text.setFont(Font.font("Roboto", 13));
+                packedBtn.getStyleClass().add("button-secondary");
+                packedBtn.setFont(Font.font("Roboto", 12));
+                packedBtn.setOnAction(e -> changeOrderStatus(farmer, List.of(getItem()), OrderStatus.PACKED));
+            }
+
+            @Override
+            protected void updateItem(Order order, boolean empty) {
+                super.updateItem(order, empty);
+                if (empty || order == null) {
+                    setGraphic(null);
+                    return;
+                }
+                text.setText("#" + order.getId() + "  " + order.getQuantity() + " × " + order.getProductName()
+                        + " for " + order.getCustomerName() + " (" + order.getStatus().getLabel() + ")");
+                // Pending orders have to be accepted first
+                packedBtn.setVisible(order.getStatus().canBecome(OrderStatus.PACKED));
+                setGraphic(row);
+            }
+        });
+
+        ListView<FulfillmentScheduler.PickLine> pickListView = new ListView<>();
+        pickListView.setPrefHeight(220);
+        pickListView.setPlaceholder(new Label("Nothing to pick"));
+        pickListView.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(FulfillmentScheduler.PickLine line, boolean empty) {
+                super.updateItem(line, empty);
+                setFont(Font.font("Roboto", 13));
+                setText(empty || line == null ? null : line.getProductName() + ": " + line.getQuantity()
+                        + (line.getOrders() == 1 ? " (1 order)" : " (" + line.getOrders() + " orders)"));
+            }
+        });
+
+        Spinner<Integer> capacitySpinner = new Spinner<>(1, 10000, DAILY_PACK_CAPACITY);
+        capacitySpinner.setEditable(true);
+        capacitySpinner.setPrefWidth(100);
+        Label waitingLabel = new Label("Loading orders…");
+        waitingLabel.setFont(Font.font("Roboto", 13));
+        waitingLabel.setTextFill(Color.web("#6b7280"));
+        Button prioritiesBtn = new Button("Priorities…");
+        prioritiesBtn.getStyleClass().add("button-secondary");
+        prioritiesBtn.setFont(Font.font("Roboto", 12));
+
+        Runnable redraw = () -> {
+            packNextList.getItems().setAll(scheduler.packNext(PACK_NEXT_SIZE));
+            pickListView.getItems().setAll(scheduler.pickList(capacitySpinner.getValue()));
+            waitingLabel.setText(scheduler.size() == 1 ? "1 order waiting" : scheduler.size() + " orders waiting");
+        };
+        capacitySpinner.valueProperty().addListener((obs, oldValue, newValue) -> redraw.run());
+        prioritiesBtn.setOnAction(e -> {
+            FulfillmentScheduler.Weights weights = showFulfillmentWeightsDialog(scheduler.getWeights());
+            if (weights != null) {
+                fulfillmentWeights = weights;
+                scheduler.setWeights(weights);
+                redraw.run();
+            }
+        });
+
+        Label packNextTitle = new Label("Pack next");
+        packNextTitle.setFont(Font.font("Roboto", FontWeight.BOLD, 14));
+        VBox packNextBox = new VBox(8, packNextTitle, packNextList);
+        HBox.setHgrow(packNextBox, Priority.ALWAYS);
+        Label pickListTitle = new Label("Pick list for the next");
+        pickListTitle.setFont(Font.font("Roboto", FontWeight.BOLD, 14));
+        Label pickListUnit = new Label("orders");
+        pickListUnit.setFont(Font.font("Roboto", FontWeight.BOLD, 14));
+        HBox pickListHeader = new HBox(8, pickListTitle, capacitySpinner, pickListUnit);
+        pickListHeader.setAlignment(Pos.CENTER_LEFT);
+        VBox pickListBox = new VBox(8, pickListHeader, pickListView);
+        pickListBox.setPrefWidth(360);
+        HBox lists = new HBox(20, packNextBox, pickListBox);
+        HBox footer = new HBox(10, waitingLabel, prioritiesBtn);
+        footer.setAlignment(Pos.CENTER_LEFT);
+
+        TitledPane panel = new TitledPane("Fulfillment", new VBox(10, lists, footer));
+        panel.setFont(Font.font("Roboto", FontWeight.BOLD, 14));
+
+        Task<List<Order>> load = new Task<>() {
+            @Override
+            protected List<Order> call() throws Exception {
+                return orderStore.findForFarmerByStatus(farmer.getId(),
+                        List.of(OrderStatus.PENDING, OrderStatus.ACCEPTED));
+            }
+        };
+        load.setOnSucceeded(e -> {
+            for (Order order : load.getValue()) {
+                scheduler.update(order);
+            }
+            redraw.run();
+        });
+        load.setOnFailed(e -> {
+            System.err.println("Failed to load waiting orders: " + load.getException().getMessage());
+            waitingLabel.setText("Could not load orders");
+        });
+        Thread thread = new Thread(load, "fulfillment-load");
+        thread.setDaemon(true);
+        thread.start();
+
+        panel.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene != null) {
+                fulfillment = scheduler;
+                fulfillmentRedraw = redraw;
+            } else if (fulfillment == scheduler) {
+                fulfillment = null;
+                fulfillmentRedraw = null;
+            }
+        });
+        return panel;
+    }
 
-        public String getCustomerName() {
-            return customerName;
+    // Re-reads the changed orders into the fulfilment panel, if it is shown. Each order
+    // moves in or out of the queue in O(log n), whatever the number waiting.
+    private void updateFulfillment(List<Long> orderIds) {
+        FulfillmentScheduler scheduler = fulfillment;
+        Runnable redraw = fulfillmentRedraw;
+        Farmer farmer = currentFarmer;
+        if (scheduler == null || farmer == null) {
+            return;
         }
+        // Large batches, e.g. after a bulk accept, are read in slices
+        Task<List<Order>> task = new Task<>() {
+            @Override
+            protected List<Order> call() throws Exception {
+                List<Order> orders = new ArrayList<>();
+                for (int from = 0; from < orderIds.size(); from += FULFILLMENT_UPDATE_BATCH) {
+                    orders.addAll(orderStore.findForFarmerByIds(farmer.getId(),
+                            orderIds.subList(from, Math.min(from + FULFILLMENT_UPDATE_BATCH, orderIds.size()))));
+                }
+                return orders;
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (fulfillment != scheduler) {
+                return;
+            }
+            // Ids not returned belong to other farmers or were deleted
+            for (long id : orderIds) {
+                scheduler.remove(id);
+            }
+            for (Order order : task.getValue()) {
+                scheduler.update(order);
+            }
+            redraw.run();
+        });
+        task.setOnFailed(e -> System.err.println("Failed to update waiting orders: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "fulfillment-update");
+        thread.setDaemon(true);
+        thread.start();
+    }
 
-        public String getLocation() {
-            return location;
+    // Returns the new weights, or null if cancelled or invalid
+    private FulfillmentScheduler.Weights showFulfillmentWeightsDialog(FulfillmentScheduler.Weights weights) {
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Fulfillment Priorities");
+        dialog.setHeaderText("Points each factor adds to an order's priority.\n"
+                + "The highest total is packed first; a negative value favours the opposite.");
+
+        TextField ageField = new TextField(String.valueOf(weights.getPerHourWaiting()));
+        TextField distanceField = new TextField(String.valueOf(weights.getPerKilometre()));
+        TextField perishabilityField = new TextField(String.valueOf(weights.getPerishability()));
+        TextField quantityField = new TextField(String.valueOf(weights.getPerUnit()));
+
+        GridPane grid = new GridPane();
+        grid.setHgap(10);
+        grid.setVgap(10);
+        grid.setPadding(new Insets(20, 150, 10, 10));
+        grid.add(new Label("Per hour waiting:"), 0, 0);
+        grid.add(ageField, 1, 0);
+        grid.add(new Label("Per km to the customer:"), 0, 1);
+        grid.add(distanceField, 1, 1);
+        grid.add(new Label("For highly perishable produce:"), 0, 2);
+        grid.add(perishabilityField, 1, 2);
+        grid.add(new Label("Per unit ordered:"), 0, 3);
+        grid.add(quantityField, 1, 3);
+        dialog.getDialogPane().setContent(grid);
+        ButtonType applyButtonType = new ButtonType("Apply", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(applyButtonType, ButtonType.CANCEL);
+
+        if (dialog.showAndWait().orElse(ButtonType.CANCEL) != applyButtonType) {
+            return null;
+        }
+        double[] values = new double[4];
+        TextField[] fields = {ageField, distanceField, perishabilityField, quantityField};
+        for (int i = 0; i < fields.length; i++) {
+            try {
+                values[i] = Double.parseDouble(fields[i].getText().trim());
+            } catch (NumberFormatException ex) {
+                values[i] = Double.NaN;
+            }
+            if (!Double.isFinite(values[i])) {
+                showError("Invalid Input", "Please enter a number for each factor");
+                return null;
+            }
         }
+        return new FulfillmentScheduler.Weights(values[0], values[1], values[2], values[3]);
+    }
 
-        public String getProductName() {
-            return productName;
+    // Moves the selected rows of the windowed orders table to 'status'. The ids of rows whose
+    // page is not in memory are read from the same query the table shows, one query per run
+    // of adjacent rows.
+    private void changeSelectedOrderStatus(Farmer farmer, OrderQuery query, WindowedList<Order> orders,
+            MultipleSelectionModel<Order> selection, OrderStatus status) {
+        List<Integer> indices = new ArrayList<>(selection.getSelectedIndices());
+        Collections.sort(indices);
+        List<Long> ids = new ArrayList<>();
+        List<Order> shown = new ArrayList<>();
+        try {
+            int i = 0;
+            while (i < indices.size()) {
+                Order order = orders.getLoaded(indices.get(i));
+                if (order != null) {
+                    ids.add(order.getId());
+                    shown.add(order);
+                    i++;
+                    continue;
+                }
+                int end = i + 1;
+                while (end < indices.size() && indices.get(end) == indices.get(end - 1) + 1
+                        && orders.getLoaded(indices.get(end)) == null) {
+                    end++;
+                }
+                ids.addAll(orderStore.idsForFarmer(farmer.getId(), query, indices.get(i), end - i));
+                i = end;
+            }
+        } catch (SQLException ex) {
+            System.err.println("Failed to read selected orders: " + ex.getMessage());
+            showError("Error", "Could not read the selected orders: " + ex.getMessage());
+            return;
         }
+        changeOrderStatus(farmer, ids, shown, status);
+        selection.clearSelection();
+    }
 
-        public int getQuantity() {
-            return quantity;
+    private void changeOrderStatus(Farmer farmer, List<Order> orders, OrderStatus status) {
+        List<Long> ids = new ArrayList<>();
+        for (Order order : orders) {
+            if (order != null) {
+                ids.add(order.getId());
+            }
         }
+        changeOrderStatus(farmer, ids, orders, status);
+    }
 
-        public String getStatus() {
-            return status;
+    // Moves the orders to 'status' in one transaction and refreshes the table. Orders whose
+    // status does not allow the move, e.g. already rejected, are left as they are. 'shown'
+    // are the loaded rows among 'ids', updated at once while the table reloads.
+    private void changeOrderStatus(Farmer farmer, List<Long> ids, List<Order> shown, OrderStatus status) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        if (status == OrderStatus.REJECTED) {
+            Alert confirm = new Alert(Alert.AlertType.CONFIRMATION,
+                    ids.size() == 1 ? "Reject this order?" : "Reject " + ids.size() + " orders?",
+                    ButtonType.OK, ButtonType.CANCEL);
+            confirm.setHeaderText(null);
+            if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+                return;
+            }
+        }
+        OrderStore.StatusUpdate update;
+        try {
+            update = orderStore.changeStatusForFarmer(farmer.getId(), ids, status);
+        } catch (SQLException | IllegalArgumentException ex) {
+            System.err.println("Failed to update orders: " + ex.getMessage());
+            showError("Error", "Could not update orders: " + ex.getMessage());
+            return;
+        }
+        // Shown at once; the refresh below brings in the saved rows
+        for (Order order : new ArrayList<>(shown)) {
+            if (order != null && update.getChanged().contains(order.getId())) {
+                order.setStatus(status);
+            }
+        }
+        if (ordersWindow != null) {
+            ordersWindow.refresh();
+        }
+        if (status == OrderStatus.DELIVERED) {
+            for (long id : update.getChanged()) {
+                activityFeed.recordForCustomer(String.valueOf(update.getCustomerId(id)),
+                        "Order #" + id + " has been delivered");
+            }
         }
+        if (!update.getChanged().isEmpty()) {
+            toasts.show(update.getChanged().size() == 1
+                    ? "Order marked " + status.getLabel()
+                    : update.getChanged().size() + " orders marked " + status.getLabel());
+        }
+        if (!update.getRefused().isEmpty()) {
+            showAlert("Orders Not Changed", update.getRefused().size() + " of the selected orders could not be marked "
+                    + status.getLabel() + " from their current status.");
+        }
+    }
+
+    // Loads pages of the orders table, carrying on from a neighbouring page by key when one is
+    // loaded and counting rows only when the table jumps into the middle of the list
+    private WindowedList.Source<Order> orderSource(Farmer farmer, OrderQuery query) {
+        return new WindowedList.Source<>() {
+            @Override
+            public int count() throws SQLException {
+                return orderStore.countForFarmer(farmer.getId(), query);
+            }
+
+            @Override
+            public List<Order> load(int offset, int limit, Order previous, Order next) throws SQLException {
+                if (previous != null) {
+                    return orderStore.pageAfter(farmer.getId(), query, previous, limit);
+                }
+                if (next != null) {
+                    return orderStore.pageBefore(farmer.getId(), query, next, limit);
+                }
+                return orderStore.pageForFarmer(farmer.getId(), query, offset, limit);
+            }
+        };
     }
 
     private VBox createDashboardContent(Farmer farmer) {
@@ -2374,10 +3881,15 @@ public class Main extends Application {
         statsGrid.setVgap(20);
         statsGrid.setPadding(new Insets(20));
 
+        // Every number below is bound to the live dashboard and updates in place
+        LiveFarmerDashboard dashboard = new LiveFarmerDashboard(() -> loadDashboardSnapshot(farmer));
+        dashboard.setProductCount(productsList.size());
+        ListChangeListener<Product> productCountListener = change -> dashboard.setProductCount(productsList.size());
+
         // Total Products Card
         VBox totalProductsCard = createStatCard(
                 "Total Products",
-                String.valueOf(productsList.size()),
+                dashboard.productCountProperty(),
                 "Products listed in your store",
                 "📦",
                 () -> showProductDetails());
@@ -2385,7 +3897,7 @@ public class Main extends Application {
         // Pending Orders Card
         VBox pendingOrdersCard = createStatCard(
                 "Pending Orders",
-                "3",
+                dashboard.pendingOrdersProperty(),
                 "Orders awaiting your response",
                 "⏳",
                 () -> showPendingOrders());
@@ -2393,7 +3905,7 @@ public class Main extends Application {
         // Fulfilled Orders Card
         VBox fulfilledOrdersCard = createStatCard(
                 "Fulfilled Orders",
-                "12",
+                dashboard.fulfilledOrdersProperty(),
                 "Successfully completed orders",
                 "✅",
                 () -> showFulfilledOrders());
@@ -2401,7 +3913,7 @@ public class Main extends Application {
         // Total Revenue Card
         VBox totalRevenueCard = createStatCard(
                 "Total Revenue",
-                "$1,234.56",
+                dashboard.revenueProperty(),
                 "Total earnings from all orders",
                 "💰",
                 () -> showRevenueDetails());
@@ -2409,7 +3921,7 @@ public class Main extends Application {
         // New Revenue Card
         VBox newRevenueCard = createStatCard(
                 "New Revenue",
-                "$234.56",
+                dashboard.recentRevenueProperty(),
                 "Earnings from last 7 days",
                 "📈",
                 () -> showNewRevenueDetails());
@@ -2417,7 +3929,7 @@ public class Main extends Application {
         // New Messages Card
         VBox newMessagesCard = createStatCard(
                 "New Messages",
-                "5",
+                dashboard.unreadMessagesProperty(),
                 "Unread customer inquiries",
                 "📩",
                 () -> showMessages());
@@ -2430,6 +3942,19 @@ public class Main extends Application {
         statsGrid.add(newRevenueCard, 1, 1);
         statsGrid.add(newMessagesCard, 2, 1);
 
+        // Sales chart; it reloads whenever the revenue total moves
+        VBox salesSection = new VBox(10);
+        salesSection.setPadding(new Insets(20));
+        salesSection.setStyle(
+                "-fx-background-color: white; -fx-background-radius: 10; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
+        Label salesTitle = new Label("Sales");
+        salesTitle.setFont(Font.font("Roboto", FontWeight.BOLD, 24));
+        Label salesHint = new Label("Scroll to zoom, drag to pan, double-click to see everything");
+        salesHint.setTextFill(Color.web(COLOR_GRAY_TEXT));
+        SalesChart salesChart = createSalesChart(farmer);
+        dashboard.revenueProperty().addListener((obs, oldValue, newValue) -> salesChart.reload());
+        salesSection.getChildren().addAll(salesTitle, salesHint, salesChart);
+
         // Recent Activity Section with refresh
         VBox recentActivitySection = new VBox(10);
         recentActivitySection.setPadding(new Insets(20));
@@ -2443,24 +3968,74 @@ public class Main extends Application {
         Button refreshActivityBtn = new Button("↻");
         refreshActivityBtn.setStyle("-fx-background-color: " + COLOR_PRIMARY_GREEN
                 + "; -fx-text-fill: white; -fx-font-size: 14px; -fx-min-width: 30px; -fx-min-height: 30px; -fx-background-radius: 15;");
-        refreshActivityBtn.setOnAction(e -> refreshRecentActivity());
+        refreshActivityBtn.setOnAction(e -> dashboard.dataChanged());
 
         activityHeader.getChildren().addAll(recentActivityTitle, refreshActivityBtn);
 
-        // Sample recent activities
+        // One row per activity entry; rows are added and dropped as entries come and go
         VBox activitiesList = new VBox(10);
-        activitiesList.getChildren().addAll(
-                createActivityItem("New order received from John Doe", "2 minutes ago", true),
-                createActivityItem("Product 'Organic Tomatoes' stock updated", "1 hour ago", false),
-                createActivityItem("New message from Jane Smith", "3 hours ago", true));
+        dashboard.getActivity().addListener((ListChangeListener<LiveFarmerDashboard.Activity>) change -> {
+            while (change.next()) {
+                if (change.wasRemoved()) {
+                    activitiesList.getChildren().remove(change.getFrom(), change.getFrom() + change.getRemovedSize());
+                }
+                if (change.wasAdded()) {
+                    List<Node> rows = new ArrayList<>();
+                    for (LiveFarmerDashboard.Activity activity : change.getAddedSubList()) {
+                        HBox row = createActivityItem(activity.getText(), formatTimeAgo(activity.getTime()),
+                                activity.isHighlighted());
+                        row.setUserData(activity);
+                        rows.add(row);
+                    }
+                    activitiesList.getChildren().addAll(change.getFrom(), rows);
+                }
+            }
+        });
+        // "2 minutes ago" labels only need to move on about once a minute
+        javafx.animation.Timeline activityClock = new javafx.animation.Timeline(
+                new javafx.animation.KeyFrame(Duration.seconds(30), e -> {
+                    for (Node row : activitiesList.getChildren()) {
+                        LiveFarmerDashboard.Activity activity = (LiveFarmerDashboard.Activity) row.getUserData();
+                        ((Label) ((HBox) row).getChildren().get(2)).setText(formatTimeAgo(activity.getTime()));
+                    }
+                }));
+        activityClock.setCycleCount(javafx.animation.Animation.INDEFINITE);
+
+        // Live from the moment it is shown until the page is left or the farmer logs out
+        dashboard.setOnDispose(() -> {
+            if (liveDashboard == dashboard) {
+                liveDashboard = null;
+            }
+            productsList.removeListener(productCountListener);
+            activityClock.stop();
+        });
+        dashboardSection.sceneProperty().addListener((obs, oldScene, newScene) -> {
+            if (newScene == null) {
+                dashboard.dispose();
+            } else if (liveDashboard != dashboard) {
+                if (liveDashboard != null) {
+                    liveDashboard.dispose();
+                }
+                liveDashboard = dashboard;
+                productsList.addListener(productCountListener);
+                activityClock.play();
+                dashboard.dataChanged();
+            }
+        });
 
         recentActivitySection.getChildren().addAll(activityHeader, activitiesList);
 
-        dashboardSection.getChildren().addAll(header, statsGrid, recentActivitySection);
+        dashboardSection.getChildren().addAll(header, statsGrid, salesSection, recentActivitySection);
         return dashboardSection;
     }
 
     private VBox createStatCard(String title, String value, String description, String icon, Runnable onClick) {
+        return createStatCard(title, new SimpleStringProperty(value), description, icon, onClick);
+    }
+
+    // Card whose value label follows 'value'
+    private VBox createStatCard(String title, ObservableValue<String> value, String description, String icon,
+            Runnable onClick) {
         VBox card = new VBox(10);
         card.setStyle(
                 "-fx-background-color: white; -fx-background-radius: 10; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
@@ -2487,7 +4062,8 @@ public class Main extends Application {
         iconLabel.setFont(Font.font("System", 36));
         iconLabel.setStyle("-fx-padding: 0 0 10 0;");
 
-        Label valueLabel = new Label(value);
+        Label valueLabel = new Label();
+        valueLabel.textProperty().bind(value);
         valueLabel.setFont(Font.font("Roboto", FontWeight.BOLD, 20));
 
         Label titleLabel = new Label(title);
@@ -2549,7 +4125,7 @@ public class Main extends Application {
     private void showProductDetails() {
         // Switch to products page
         BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-        ScrollPane scrollPane = new ScrollPane(createMainContent(demoFarmer));
+        ScrollPane scrollPane = new ScrollPane(createMainContent(currentFarmer));
         scrollPane.setFitToWidth(true);
         scrollPane.setFitToHeight(true);
         dashboardRoot.setCenter(scrollPane);
@@ -2560,7 +4136,8 @@ public class Main extends Application {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Pending Orders");
         alert.setHeaderText("Orders Awaiting Response");
-        alert.setContentText("You have 3 pending orders that need your attention.");
+        alert.setContentText("You have " + (liveDashboard != null ? liveDashboard.pendingOrdersProperty().get() : "no")
+                + " pending orders that need your attention.");
         alert.showAndWait();
     }
 
@@ -2569,59 +4146,163 @@ public class Main extends Application {
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Fulfilled Orders");
         alert.setHeaderText("Completed Orders");
-        alert.setContentText("You have successfully completed 12 orders.");
+        alert.setContentText("You have successfully completed "
+                + (liveDashboard != null ? liveDashboard.fulfilledOrdersProperty().get() : "no") + " orders.");
         alert.showAndWait();
     }
 
     private void showRevenueDetails() {
-        // Show revenue details dialog
+        // Totals come from the revenue rollups, so this stays cheap however many orders there are
+        StringBuilder text = new StringBuilder();
+        try {
+            double total = revenueRollups.totalRevenue(currentFarmer.getId());
+            text.append(String.format("Total Revenue: $%,.2f%nBreakdown by product:", total));
+            List<RevenueRollupStore.ProductRevenue> products = revenueRollups.revenueByProduct(currentFarmer.getId());
+            double other = total;
+            for (RevenueRollupStore.ProductRevenue product : products.subList(0,
+                    Math.min(REVENUE_TOP_PRODUCTS, products.size()))) {
+                text.append(String.format("%n- %s: $%,.2f", product.getProductName(), product.getRevenue()));
+                other -= product.getRevenue();
+            }
+            if (products.size() > REVENUE_TOP_PRODUCTS) {
+                text.append(String.format("%n- Other: $%,.2f", other));
+            } else if (products.isEmpty()) {
+                text.append(String.format("%n- No orders yet"));
+            }
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to load revenue: " + e.getMessage());
+            showError("Database Error", "Could not load revenue details.");
+            return;
+        }
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("Revenue Details");
         alert.setHeaderText("Total Revenue Breakdown");
-        alert.setContentText(
-                "Total Revenue: $1,234.56\nBreakdown by product category:\n- Vegetables: $500.00\n- Fruits: $400.00\n- Other: $334.56");
+        alert.setContentText(text.toString());
         alert.showAndWait();
     }
 
     private void showNewRevenueDetails() {
-        // Show new revenue details dialog
+        StringBuilder text = new StringBuilder();
+        try {
+            double recent = revenueRollups.windowRevenue(currentFarmer.getId(),
+                    java.time.Duration.ofDays(REVENUE_RECENT_DAYS));
+            text.append(String.format("New Revenue: $%,.2f%nDaily breakdown:", recent));
+            List<Map.Entry<LocalDate, Double>> days = new ArrayList<>(
+                    revenueRollups.dailyRevenue(currentFarmer.getId(), REVENUE_RECENT_DAYS).entrySet());
+            LocalDate today = LocalDate.now();
+            for (int i = days.size() - 1; i >= 0; i--) {
+                LocalDate day = days.get(i).getKey();
+                String label = day.equals(today) ? "Today"
+                        : day.equals(today.minusDays(1)) ? "Yesterday"
+                        : day.format(DateTimeFormatter.ofPattern("EEE d MMM"));
+                text.append(String.format("%n- %s: $%,.2f", label, days.get(i).getValue()));
+            }
+        } catch (SQLException | NumberFormatException e) {
+            System.err.println("Failed to load revenue: " + e.getMessage());
+            showError("Database Error", "Could not load revenue details.");
+            return;
+        }
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("New Revenue");
-        alert.setHeaderText("Last 7 Days Revenue");
-        alert.setContentText(
-                "New Revenue: $234.56\nDaily breakdown:\n- Today: $50.00\n- Yesterday: $45.00\n- Previous days: $139.56");
+        alert.setHeaderText("Last " + REVENUE_RECENT_DAYS + " Days Revenue");
+        alert.setContentText(text.toString());
         alert.showAndWait();
     }
 
+    // Geocodes every farm into the locator in the background; until it is done the featured
+    // products are the newest from anywhere
+    private void loadFarmLocations() {
+        Thread thread = new Thread(() -> {
+            try {
+                farmLocator.loadAll();
+            } catch (SQLException e) {
+                System.err.println("Failed to load farm locations: " + e.getMessage());
+            }
+        }, "farm-locations");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    // Fills the rollups from existing orders the first time they are needed, and drops
+    // expired hour buckets. Runs in the background; the dashboard reloads when it is done.
+    private void maintainRevenueRollups() {
+        Thread thread = new Thread(() -> {
+            try {
+                if (revenueRollups.needsBackfill()) {
+                    revenueRollups.rebuild();
+                    Platform.runLater(this::refreshDashboard);
+                }
+                revenueRollups.pruneHourBuckets();
+            } catch (SQLException e) {
+                System.err.println("Failed to maintain revenue rollups: " + e.getMessage());
+            }
+        }, "revenue-rollups");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
     private void showMessages() {
         // Show messages dialog
         Alert alert = new Alert(Alert.AlertType.INFORMATION);
         alert.setTitle("New Messages");
         alert.setHeaderText("Unread Messages");
-        alert.setContentText("You have 5 unread messages from customers.");
+        alert.setContentText("You have " + unreadMessageCount(Message.FARMER, currentFarmer.getUsername())
+                + " unread messages from customers.");
         alert.showAndWait();
     }
 
     private void refreshDashboard() {
-        // Refresh all dashboard data
-        BorderPane dashboardRoot = (BorderPane) primaryStage.getScene().getRoot();
-        ScrollPane scrollPane = new ScrollPane(createDashboardContent(demoFarmer));
-        scrollPane.setFitToWidth(true);
-        scrollPane.setFitToHeight(true);
-        dashboardRoot.setCenter(scrollPane);
+        // The dashboard updates itself; this only forces a reload now
+        if (liveDashboard != null) {
+            liveDashboard.dataChanged();
+        }
     }
 
-    private void refreshRecentActivity() {
-        // Refresh recent activity section
-        // In a real app, this would fetch new data from the server
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Refresh");
-        alert.setHeaderText("Recent Activity Updated");
-        alert.setContentText("Recent activity has been refreshed.");
-        alert.showAndWait();
+    private void closeLiveDashboard() {
+        if (liveDashboard != null) {
+            liveDashboard.dispose();
+        }
     }
 
-    private VBox createMessagesPage() {
+    // Day buckets for the whole history; hour buckets once zoomed in to a few days, as far
+    // back as they are kept
+    private SalesChart createSalesChart(Farmer farmer) {
+        return new SalesChart(new SalesChart.Source() {
+            @Override
+            public SalesChart.Series loadOverview() throws SQLException {
+                return toChartSeries(revenueRollups.series(farmer.getId(), RevenueRollupStore.Grain.DAY,
+                        null, LocalDate.now().plusDays(1).atStartOfDay()));
+            }
+
+            @Override
+            public SalesChart.Series loadDetail(long from, long to) throws SQLException {
+                LocalDateTime start = LocalDateTime.ofInstant(Instant.ofEpochMilli(from), ZoneId.systemDefault());
+                LocalDateTime end = LocalDateTime.ofInstant(Instant.ofEpochMilli(to), ZoneId.systemDefault());
+                if (start.isBefore(LocalDate.now().minusDays(RevenueRollupStore.HOUR_RETENTION_DAYS).atStartOfDay())) {
+                    return null;
+                }
+                return toChartSeries(revenueRollups.series(farmer.getId(), RevenueRollupStore.Grain.HOUR, start, end));
+            }
+        }, java.time.Duration.ofDays(SALES_DETAIL_DAYS));
+    }
+
+    private static SalesChart.Series toChartSeries(RevenueRollupStore.Series series) {
+        return new SalesChart.Series(series.getBucketStarts(), series.getRevenue());
+    }
+
+    // Runs on the dashboard's background thread; the stores are safe to call from there
+    private LiveFarmerDashboard.Snapshot loadDashboardSnapshot(Farmer farmer) throws SQLException {
+        OrderStore.Summary summary = orderStore.summarizeForFarmer(farmer.getId());
+        double revenue = revenueRollups.totalRevenue(farmer.getId());
+        double recentRevenue = revenueRollups.windowRevenue(farmer.getId(), java.time.Duration.ofDays(REVENUE_RECENT_DAYS));
+        List<Order> latestOrders = orderStore.findForFarmer(farmer.getId(), DASHBOARD_ORDER_LIMIT);
+        List<Message> latestMessages = messageStore.inbox(Message.FARMER, farmer.getUsername(), null, 1);
+        return new LiveFarmerDashboard.Snapshot(summary.getPending(), summary.getFulfilled(), revenue,
+                recentRevenue, messageStore.unreadCount(Message.FARMER, farmer.getUsername()),
+                latestOrders, latestMessages.isEmpty() ? null : latestMessages.get(0));
+    }
+
+    private VBox createMessagesPage(Farmer farmer) {
         VBox messagesSection = new VBox(20);
         messagesSection.setStyle("-fx-background-color: white; -fx-background-radius: 10;");
         messagesSection.setPadding(new Insets(20));
@@ -2636,83 +4317,66 @@ public class Main extends Application {
         Button refreshBtn = new Button("↻");
         refreshBtn.setStyle("-fx-background-color: " + COLOR_PRIMARY_GREEN
                 + "; -fx-text-fill: white; -fx-font-size: 16px; -fx-min-width: 40px; -fx-min-height: 40px; -fx-background-radius: 20;");
-        refreshBtn.setOnAction(e -> refreshMessages());
-
         Region spacer = new Region();
         HBox.setHgrow(spacer, Priority.ALWAYS);
 
-        header.getChildren().addAll(title, refreshBtn, spacer);
+        TextField searchField = new TextField();
+        searchField.setPrefWidth(280);
+        header.getChildren().addAll(title, refreshBtn, spacer, searchField);
 
         // Messages List
-        VBox messagesList = new VBox(15);
-        messagesList.setPadding(new Insets(10));
-
-        // Sample messages (in a real app, these would come from a database)
-        messagesList.getChildren().addAll(
-                createMessageItem("John Doe", "I'm interested in your organic tomatoes. Do you have any available?",
-                        "2 hours ago", true),
-                createMessageItem("Jane Smith", "What's the minimum order quantity for your products?", "5 hours ago",
-                        true),
-                createMessageItem("Mike Johnson", "Can you deliver to Accra Central?", "1 day ago", false),
-                createMessageItem("Sarah Wilson", "Do you offer bulk discounts?", "2 days ago", false));
-
-        messagesSection.getChildren().addAll(header, messagesList);
+        MessageListView inbox = createInbox(Message.FARMER, farmer.getUsername());
+        refreshBtn.setOnAction(e -> refreshMessages(inbox, Message.FARMER, farmer.getUsername()));
+        StackPane messagesArea = withMessageSearch(Message.FARMER, farmer.getUsername(), inbox, searchField);
+
+        messagesSection.getChildren().addAll(header, messagesArea);
         return messagesSection;
     }
 
-    private VBox createMessageItem(String sender, String message, String time, boolean isUnread) {
-        VBox messageItem = new VBox(10);
-        messageItem.setStyle("-fx-background-color: " + (isUnread ? "#f0fdf4" : "white")
-                + "; -fx-background-radius: 10; -fx-padding: 15;");
-
-        // Add hover effect
-        messageItem.setOnMouseEntered(e -> {
-            messageItem.setStyle("-fx-background-color: " + (isUnread ? "#dcfce7" : "#f8f9fa")
-                    + "; -fx-background-radius: 10; -fx-cursor: hand;");
-        });
-        messageItem.setOnMouseExited(e -> {
-            messageItem.setStyle(
-                    "-fx-background-color: " + (isUnread ? "#f0fdf4" : "white") + "; -fx-background-radius: 10;");
-        });
-
-        HBox header = new HBox(10);
-        header.setAlignment(Pos.CENTER_LEFT);
-
-        Label senderLabel = new Label(sender);
-        senderLabel.setFont(Font.font("Roboto", FontWeight.BOLD, 19)); // Increased from 14
-        senderLabel.setTextFill(Color.BLACK);
-
-        if (isUnread) {
-            Label unreadLabel = new Label("•");
-            unreadLabel.setTextFill(Color.web(COLOR_PRIMARY_GREEN));
-            unreadLabel.setFont(Font.font("Roboto", FontWeight.BOLD, 25)); // Increased from 20
-            header.getChildren().add(unreadLabel);
+    private int unreadMessageCount(String role, String username) {
+        try {
+            return messageStore.unreadCount(role, username);
+        } catch (SQLException e) {
+            System.err.println("Failed to read unread counter: " + e.getMessage());
+            return 0;
         }
+    }
 
-        Region spacer = new Region();
-        HBox.setHgrow(spacer, Priority.ALWAYS);
-
-        Label timeLabel = new Label(time);
-        timeLabel.setFont(Font.font("Roboto", 17)); // Increased from 12
-        timeLabel.setTextFill(Color.BLACK);
-
-        header.getChildren().addAll(senderLabel, spacer, timeLabel);
-
-        Label messageLabel = new Label(message);
-        messageLabel.setFont(Font.font("Roboto", 19)); // Increased from 14
-        messageLabel.setTextFill(Color.BLACK);
-        messageLabel.setWrapText(true);
-
-        Button replyBtn = new Button("Reply");
-        replyBtn.getStyleClass().add("button-primary");
-        replyBtn.setMaxWidth(100);
-        replyBtn.setOnAction(e -> showReplyDialog(sender));
+    private String formatTimeAgo(LocalDateTime time) {
+        java.time.Duration age = java.time.Duration.between(time, LocalDateTime.now());
+        if (age.toMinutes() < 1) {
+            return "just now";
+        } else if (age.toHours() < 1) {
+            return age.toMinutes() + (age.toMinutes() == 1 ? " minute ago" : " minutes ago");
+        } else if (age.toDays() < 1) {
+            return age.toHours() + (age.toHours() == 1 ? " hour ago" : " hours ago");
+        }
+        return age.toDays() + (age.toDays() == 1 ? " day ago" : " days ago");
+    }
 
-        messageItem.getChildren().addAll(header, messageLabel, replyBtn);
-        return messageItem;
+    private MessageListView createInbox(String role, String username) {
+        MessageListView inbox = new MessageListView(
+                (before, limit) -> messageStore.inbox(role, username, before, limit),
+                MESSAGE_PAGE_SIZE,
+                this::formatTimeAgo,
+                message -> {
+                    // Opening a message marks it read
+                    try {
+                        messageStore.markRead(message);
+                    } catch (SQLException ex) {
+                        System.err.println("Failed to mark message read: " + ex.getMessage());
+                    }
+                },
+                this::showReplyDialog);
+        inbox.setMinHeight(400);
+        VBox.setVgrow(inbox, Priority.ALWAYS);
+        // Only one inbox is on screen at a time; pushed messages go to it
+        openInbox = inbox;
+        return inbox;
     }
 
-    private void showReplyDialog(String recipient) {
+    private void showReplyDialog(Message original) {
+        String recipient = original.getSenderName();
         Dialog<String> dialog = new Dialog<>();
         dialog.setTitle("Reply to " + recipient);
         dialog.setHeaderText("Write your reply");
@@ -2735,18 +4399,174 @@ public class Main extends Application {
         });
 
         Optional<String> result = dialog.showAndWait();
-        result.ifPresent(reply -> {
-            showAlert("Message Sent", "Your reply has been sent to " + recipient);
+        result.filter(reply -> !reply.trim().isEmpty()).ifPresent(reply -> {
+            // The replier is whoever received the original message
+            String senderName = Message.FARMER.equals(original.getRecipientRole())
+                    ? currentFarmer.getFarmName()
+                    : currentCustomer.getFullName();
+            try {
+                messageStore.send(original.getRecipientRole(), original.getRecipientUsername(), senderName,
+                        original.getSenderRole(), original.getSenderUsername(), reply.trim());
+                relay.publish(messagesTopic(original.getSenderRole(), original.getSenderUsername()), "new");
+                events.publish(DomainEvent.Type.MESSAGE_SENT, original.getSenderUsername(), 1);
+                messageStore.markRead(original);
+                showAlert("Message Sent", "Your reply has been sent to " + recipient);
+            } catch (SQLException ex) {
+                showError("Error", "Could not send reply: " + ex.getMessage());
+            }
         });
     }
 
-    private void refreshMessages() {
-        // In a real app, this would fetch new messages from the server
-        Alert alert = new Alert(Alert.AlertType.INFORMATION);
-        alert.setTitle("Refresh");
-        alert.setHeaderText("Messages Updated");
-        alert.setContentText("Messages have been refreshed.");
-        alert.showAndWait();
+    // Adds messages that arrived since the newest one shown to the top of the inbox
+    private void refreshMessages(MessageListView inbox, String role, String username) {
+        try {
+            inbox.addNewest(messageStore.inboxAfter(role, username, inbox.newest(), MESSAGE_PAGE_SIZE));
+        } catch (SQLException ex) {
+            showError("Error", "Could not refresh messages: " + ex.getMessage());
+        }
+    }
+
+    // Wires 'searchField' to the user's message history. While the field has text the inbox
+    // is swapped for ranked results with the matched words highlighted.
+    private StackPane withMessageSearch(String role, String username, MessageListView inbox, TextField searchField) {
+        searchField.setPromptText("Search messages...");
+        ListView<MessageSearchIndex.Hit> results = new ListView<>();
+        results.setPlaceholder(new Label("No matching messages."));
+        results.setVisible(false);
+        results.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(MessageSearchIndex.Hit hit, boolean empty) {
+                super.updateItem(hit, empty);
+                if (empty || hit == null) {
+                    setGraphic(null);
+                    return;
+                }
+                Message message = hit.getMessage();
+                Label header = new Label(message.getSenderName() + " · " + formatTimeAgo(message.getSentAt()));
+                header.setFont(Font.font("Roboto", FontWeight.BOLD, 16));
+                setGraphic(new VBox(5, header, highlightedText(message.getBody(), hit.getHighlights())));
+            }
+        });
+        results.setOnMouseClicked(e -> {
+            MessageSearchIndex.Hit hit = results.getSelectionModel().getSelectedItem();
+            if (e.getClickCount() == 2 && hit != null && username.equals(hit.getMessage().getRecipientUsername())
+                    && role.equals(hit.getMessage().getRecipientRole())) {
+                showReplyDialog(hit.getMessage());
+            }
+        });
+        VBox.setVgrow(results, Priority.ALWAYS);
+
+        // Wait for a pause in typing, and drop answers to queries that are no longer current
+        javafx.animation.PauseTransition debounce = new javafx.animation.PauseTransition(Duration.millis(150));
+        debounce.setOnFinished(e -> {
+            String query = searchField.getText();
+            Task<List<MessageSearchIndex.Hit>> task = new Task<>() {
+                @Override
+                protected List<MessageSearchIndex.Hit> call() throws Exception {
+                    return messageSearch.search(role, username, query, SEARCH_RESULT_LIMIT);
+                }
+            };
+            task.setOnSucceeded(done -> {
+                if (query.equals(searchField.getText())) {
+                    results.getItems().setAll(task.getValue());
+                }
+            });
+            task.setOnFailed(done -> System.err.println("Message search failed: " + task.getException().getMessage()));
+            Thread thread = new Thread(task, "message-search");
+            thread.setDaemon(true);
+            thread.start();
+        });
+        searchField.textProperty().addListener((obs, old, text) -> {
+            boolean searching = !text.trim().isEmpty();
+            inbox.setVisible(!searching);
+            results.setVisible(searching);
+            if (searching) {
+                debounce.playFromStart();
+            } else {
+                debounce.stop();
+                results.getItems().clear();
+            }
+        });
+
+        StackPane area = new StackPane(inbox, results);
+        VBox.setVgrow(area, Priority.ALWAYS);
+        return area;
+    }
+
+    private TextFlow highlightedText(String body, List<int[]> highlights) {
+        TextFlow flow = new TextFlow();
+        int position = 0;
+        for (int[] range : highlights) {
+            if (range[0] > position) {
+                flow.getChildren().add(new Text(body.substring(position, range[0])));
+            }
+            Text match = new Text(body.substring(range[0], range[1]));
+            match.setFont(Font.font("Roboto", FontWeight.BOLD, 14));
+            match.setFill(Color.web(COLOR_PRIMARY_GREEN));
+            flow.getChildren().add(match);
+            position = range[1];
+        }
+        if (position < body.length()) {
+            flow.getChildren().add(new Text(body.substring(position)));
+        }
+        return flow;
+    }
+
+    // Topic names are a single token on the relay wire, so the username is URL-encoded
+    private static String messagesTopic(String role, String username) {
+        return "messages/" + role + "/" + URLEncoder.encode(username, StandardCharsets.UTF_8);
+    }
+
+    // Switches the relay subscription to the signed-in user's inbox; nulls just unsubscribe
+    private void listenForMessages(String role, String username) {
+        if (messagesTopic != null) {
+            relay.unsubscribe(messagesTopic);
+            messageSearch.evict(messagesRole, messagesUsername);
+        }
+        openInbox = null;
+        messagesRole = role;
+        messagesUsername = username;
+        messagesTopic = role == null ? null : messagesTopic(role, username);
+        if (messagesTopic != null) {
+            relay.subscribe(messagesTopic);
+        }
+    }
+
+    private void onRelayEvent(String topic, String payload) {
+        if (STOCK_TOPIC.equals(topic)) {
+            int separator = payload.lastIndexOf(':');
+            if (separator < 0) {
+                return;
+            }
+            String productId = payload.substring(0, separator);
+            int quantity;
+            try {
+                quantity = Integer.parseInt(payload.substring(separator + 1));
+            } catch (NumberFormatException e) {
+                return;
+            }
+            for (Product product : productsList) {
+                if (productId.equals(product.getId()) && product.getQuantity() != quantity) {
+                    product.setQuantity(quantity);
+                    events.publish(DomainEvent.Type.STOCK_CHANGED, productId, quantity);
+                    if (productsTable != null) {
+                        productsTable.refresh();
+                    }
+                }
+            }
+        } else if (topic.equals(messagesTopic)) {
+            // The message may come from another client, past this one's cached unread count
+            messageStore.forgetUnreadCount(messagesRole, messagesUsername);
+            events.publish(DomainEvent.Type.MESSAGE_RECEIVED, messagesUsername, 1);
+            if (openInbox != null && openInbox.getScene() != null) {
+                refreshMessages(openInbox, messagesRole, messagesUsername);
+            }
+            if (Message.CUSTOMER.equals(messagesRole) && messagesBadge != null) {
+                int unread = unreadMessageCount(messagesRole, messagesUsername);
+                messagesBadge.setText(String.valueOf(unread));
+                messagesBadge.setVisible(unread > 0);
+            }
+        }
     }
 
     private VBox createSettingsPage() {
@@ -2905,7 +4725,7 @@ public class Main extends Application {
             Image image = new Image(getClass().getResourceAsStream("/com/example/images/farmer-profile.png"));
             profileImage.setImage(image);
         } catch (Exception e) {
-            Label initials = new Label(demoFarmer.getFullName().substring(0, 1));
+            Label initials = new Label(currentFarmer.getFullName().substring(0, 1));
             initials.setFont(Font.font("Roboto", FontWeight.BOLD, 32));
             initials.setTextFill(Color.WHITE);
             profilePicture.getChildren().add(initials);
@@ -2928,9 +4748,9 @@ public class Main extends Application {
         personalInfo.setHgap(10);
         personalInfo.setVgap(10);
 
-        TextField fullNameField = new TextField(demoFarmer.getFullName());
-        TextField emailField = new TextField(demoFarmer.getEmail());
-        TextField phoneField = new TextField(demoFarmer.getPhoneNumber());
+        TextField fullNameField = new TextField(currentFarmer.getFullName());
+        TextField emailField = new TextField(currentFarmer.getEmail());
+        TextField phoneField = new TextField(currentFarmer.getPhoneNumber());
         PasswordField passwordField = new PasswordField();
         passwordField.setPromptText("Enter new password");
 
@@ -2981,7 +4801,7 @@ public class Main extends Application {
         content.setMaxWidth(420);
         content.setStyle("-fx-background-color: white; -fx-background-radius: 10; -fx-padding: 30;");
 
-        TextField farmNameField = new TextField(demoFarmer.getFarmName());
+        TextField farmNameField = new TextField(currentFarmer.getFarmName());
         farmNameField.setPromptText("Farm Name");
 
         Label farmNameLabel = new Label("Farm Name:");
@@ -3248,6 +5068,10 @@ public class Main extends Application {
     }
 
     private VBox createProductCard(String name, String description, double price, String unit) {
+        return createProductCard(null, name, description, price, unit);
+    }
+
+    private VBox createProductCard(String productId, String name, String description, double price, String unit) {
         VBox card = new VBox(10);
         card.setStyle(
                 "-fx-background-color: white; -fx-padding: 15px; -fx-background-radius: 10px; -fx-effect: dropshadow(gaussian, rgba(0,0,0,0.1), 10, 0, 0, 2);");
@@ -3275,45 +5099,142 @@ public class Main extends Application {
                 "-fx-background-color: #2E7D32; -fx-text-fill: white; -fx-font-weight: bold; -fx-padding: 8px 15px; -fx-background-radius: 5px;");
         addToCartBtn.setOnAction(e -> {
             // Add to cart logic
-            cartItems.add(new CartItem(name, price, unit, 1));
-            updateCartBadge();
-            showNotification("Added to cart: " + name);
+            if (flashSale.isOnSale(productId) && !flashSale.reserve(currentCustomer.getUsername(), productId, 1)) {
+                showNotification("Sorry, " + name + " is sold out");
+                return;
+            }
+            cartStore.add(currentCustomer.getUsername(), new CartItem(productId, name, price, unit, 1));
+            events.publish(DomainEvent.Type.ITEM_ADDED_TO_CART, name, 1);
         });
 
         card.getChildren().addAll(imagePlaceholder, nameLabel, descLabel, priceLabel, addToCartBtn);
         return card;
     }
 
-    private void showNotification(String message) {
-        VBox notification = new VBox();
-        notification.setStyle("-fx-background-color: #2E7D32; -fx-padding: 15px; -fx-background-radius: 5px;");
-        notification.setMaxWidth(300);
-
-        Label messageLabel = new Label(message);
-        messageLabel.setStyle("-fx-text-fill: white; -fx-font-size: 14px;");
-
-        notification.getChildren().add(messageLabel);
-
-        StackPane.setAlignment(notification, Pos.TOP_RIGHT);
-        StackPane.setMargin(notification, new Insets(20));
-
-        // Add to the root stack pane
-        root.getChildren().add(notification);
-
-        // Animate and remove after 3 seconds
-        FadeTransition fadeIn = new FadeTransition(Duration.millis(500), notification);
-        fadeIn.setFromValue(0);
-        fadeIn.setToValue(1);
+    // FX-side reactions to domain events; runs once per pulse with everything published since
+    private void onUiEvent(DomainEvent event, boolean endOfBatch) {
+        switch (event.getType()) {
+            case ITEM_ADDED_TO_CART:
+                String name = event.getSubject();
+                toasts.show("cart-add", count -> count == 1 ? "Added to cart: " + name : "Added " + count + " items to cart");
+                cartBadgeStale = true;
+                break;
+            case CART_CHANGED:
+                cartBadgeStale = true;
+                break;
+            case ORDER_PLACED:
+                cartBadgeStale = true;
+                if (liveDashboard != null) {
+                    liveDashboard.dataChanged();
+                }
+                break;
+            case STOCK_CHANGED:
+                if (liveDashboard != null) {
+                    for (Product product : productsList) {
+                        if (event.getSubject().equals(product.getId())) {
+                            liveDashboard.stockChanged(product.getName(), event.getQuantity());
+                        }
+                    }
+                }
+                break;
+            case MESSAGE_SENT:
+            case MESSAGE_RECEIVED:
+                if (liveDashboard != null) {
+                    liveDashboard.dataChanged();
+                }
+                break;
+            case ROWS_CHANGED:
+                if (event.getSubject().equals("Orders")) {
+                    if (liveDashboard != null) {
+                        liveDashboard.dataChanged();
+                    }
+                    if (ordersWindow != null) {
+                        ordersWindow.refresh();
+                    }
+                    if (currentCustomer != null) {
+                        checkOrderStatusChanges();
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        if (endOfBatch && cartBadgeStale && currentCustomer != null) {
+            cartBadgeStale = false;
+            updateCartBadge();
+        }
+    }
 
-        FadeTransition fadeOut = new FadeTransition(Duration.millis(500), notification);
-        fadeOut.setFromValue(1);
-        fadeOut.setToValue(0);
-        fadeOut.setDelay(Duration.seconds(2.5));
+    private void showNotification(String message) {
+        toasts.show(message);
+    }
 
-        fadeIn.play();
-        fadeOut.play();
+    // The demo farmer from earlier builds is a real account, so its products have an owner row
+    private void seedDemoFarmer() {
+        try {
+            Farmer saved = accountStore.findFarmer(demoFarmer.getUsername());
+            if (saved != null) {
+                demoFarmer.setId(saved.getId());
+            } else {
+                // First run only: waits for one password hash
+                authService.registerFarmer(demoFarmer, demoFarmer.getPassword().toCharArray()).join();
+            }
+        } catch (SQLException | CompletionException e) {
+            System.err.println("Failed to save demo farmer: " + e.getMessage());
+        }
+    }
 
-        fadeOut.setOnFinished(e -> root.getChildren().remove(notification));
+    @Override
+    public void stop() {
+        if (authService != null) {
+            authService.close();
+            if (DIAGNOSTICS) {
+                System.err.println("Auth: " + authService.metrics());
+            }
+        }
+        if (accountStore != null) {
+            accountStore.close();
+        }
+        if (farmerLoader != null) {
+            farmerLoader.close();
+            productLoader.close();
+        }
+        if (productStore != null) {
+            productStore.close();
+            orderStore.close();
+            if (DIAGNOSTICS) {
+                System.err.println("Query cache: " + queryCache);
+            }
+        }
+        if (cartStore != null) {
+            cartStore.close();
+        }
+        if (flashSale != null) {
+            flashSale.close();
+        }
+        if (messageStore != null) {
+            messageStore.close();
+        }
+        if (changeFeed != null) {
+            changeFeed.close();
+        }
+        if (activityFeed != null) {
+            activityFeed.close();
+        }
+        if (revenueRollups != null) {
+            revenueRollups.close();
+        }
+        events.close();
+        if (DIAGNOSTICS) {
+            System.err.println("Events: " + events.getPublished() + " published, by type "
+                    + Arrays.toString(DomainEvent.Type.values()) + " = " + eventCounts);
+        }
+        if (relay != null) {
+            relay.close();
+        }
+        if (relayServer != null) {
+            relayServer.close();
+        }
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,241 @@
+package com.example.db;
+
+import com.example.models.Customer;
+import com.example.models.Farmer;
+import com.example.models.Message;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+// Farmer and Customer accounts. Sign-in looks accounts up by username through a unique
+// index, and the password column only ever holds a PasswordHasher hash.
+public class AccountStore {
+    private final Connection connection;
+
+    public AccountStore() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_farmer_username ON Farmer (username)");
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_customer_username ON Customer (username)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_farmer_email ON Farmer (email)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_customer_email ON Customer (email)");
+        }
+    }
+
+    public Farmer findFarmer(String username) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, name, username, email, phone, farmName, farmLocation, password " +
+                            "FROM Farmer WHERE username = ?")) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next() ? readFarmer(rs) : null;
+                }
+            }
+        }
+    }
+
+    // One query for any number of farmers: id -> farmer for the ids that exist
+    public Map<String, Farmer> findFarmersByIds(Collection<String> ids) throws SQLException {
+        List<Long> numericIds = Database.parseIds(ids);
+        Map<String, Farmer> farmers = new HashMap<>();
+        if (numericIds.isEmpty()) {
+            return farmers;
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, name, username, email, phone, farmName, farmLocation, password " +
+                            "FROM Farmer WHERE id IN (" + Database.placeholders(numericIds.size()) + ")")) {
+                for (int i = 0; i < numericIds.size(); i++) {
+                    ps.setLong(i + 1, numericIds.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Farmer farmer = readFarmer(rs);
+                        farmers.put(farmer.getId(), farmer);
+                    }
+                }
+            }
+        }
+        return farmers;
+    }
+
+    public Customer findCustomer(String username) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, name, username, email, phone, address, password FROM Customer WHERE username = ?")) {
+                ps.setString(1, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    Customer customer = new Customer(
+                            rs.getString("name"),
+                            rs.getString("username"),
+                            rs.getString("email"),
+                            rs.getString("phone"),
+                            rs.getString("address"));
+                    customer.setPassword(rs.getString("password"));
+                    customer.setId(String.valueOf(rs.getLong("id")));
+                    return customer;
+                }
+            }
+        }
+    }
+
+    // Inserts the farmer and replaces its id with the generated row id. A taken username
+    // fails with SQLIntegrityConstraintViolationException.
+    public void insertFarmer(Farmer farmer) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO Farmer (name, username, email, phone, farmName, farmLocation, password) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, farmer.getFullName());
+                ps.setString(2, farmer.getUsername());
+                ps.setString(3, farmer.getEmail());
+                ps.setString(4, farmer.getPhoneNumber());
+                ps.setString(5, farmer.getFarmName());
+                ps.setString(6, farmer.getFarmLocation());
+                ps.setString(7, farmer.getPassword());
+                ps.executeUpdate();
+                farmer.setId(generatedId(ps));
+            }
+        }
+    }
+
+    public void insertCustomer(Customer customer) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO Customer (name, username, email, phone, address, password) VALUES (?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, customer.getFullName());
+                ps.setString(2, customer.getUsername());
+                ps.setString(3, customer.getEmail());
+                ps.setString(4, customer.getPhoneNumber());
+                ps.setString(5, customer.getLocation());
+                ps.setString(6, customer.getPassword());
+                ps.executeUpdate();
+                customer.setId(generatedId(ps));
+            }
+        }
+    }
+
+    // Streams the username and email of every account, farmers and customers alike
+    public void forEachAccount(BiConsumer<String, String> usernameAndEmail) throws SQLException {
+        synchronized (connection) {
+            try (Statement st = connection.createStatement();
+                    ResultSet rs = st.executeQuery(
+                            "SELECT username, email FROM Farmer UNION ALL SELECT username, email FROM Customer")) {
+                while (rs.next()) {
+                    usernameAndEmail.accept(rs.getString(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    // Streams the id and free-text farm location of every farmer
+    public void forEachFarmLocation(BiConsumer<Long, String> idAndLocation) throws SQLException {
+        synchronized (connection) {
+            try (Statement st = connection.createStatement();
+                    ResultSet rs = st.executeQuery("SELECT id, farmLocation FROM Farmer")) {
+                while (rs.next()) {
+                    idAndLocation.accept(rs.getLong(1), rs.getString(2));
+                }
+            }
+        }
+    }
+
+    // id -> farm location for the farmers that exist; a location may be null
+    public Map<Long, String> findFarmLocations(Collection<String> ids) throws SQLException {
+        List<Long> numericIds = Database.parseIds(ids);
+        Map<Long, String> locations = new HashMap<>();
+        if (numericIds.isEmpty()) {
+            return locations;
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT id, farmLocation FROM Farmer WHERE id IN (" + Database.placeholders(numericIds.size()) + ")")) {
+                for (int i = 0; i < numericIds.size(); i++) {
+                    ps.setLong(i + 1, numericIds.get(i));
+                }
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        locations.put(rs.getLong(1), rs.getString(2));
+                    }
+                }
+            }
+        }
+        return locations;
+    }
+
+    // True if either account table already has this value in 'column' (username or email).
+    // Emails are compared in lower case, since accounts made before sign-up normalized them
+    // may be stored in mixed case; pass the email lower-cased.
+    public boolean exists(String column, String value) throws SQLException {
+        if (!"username".equals(column) && !"email".equals(column)) {
+            throw new IllegalArgumentException("Unknown account column: " + column);
+        }
+        String compared = "email".equals(column) ? "LOWER(email)" : column;
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT 1 FROM Farmer WHERE " + compared + " = ? " +
+                            "UNION ALL SELECT 1 FROM Customer WHERE " + compared + " = ? LIMIT 1")) {
+                ps.setString(1, value);
+                ps.setString(2, value);
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+    }
+
+    // 'role' is Message.FARMER or Message.CUSTOMER
+    public void updatePasswordHash(String role, String id, String passwordHash) throws SQLException {
+        String table = Message.FARMER.equals(role) ? "Farmer" : "Customer";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE " + table + " SET password = ? WHERE id = ?")) {
+                ps.setString(1, passwordHash);
+                ps.setLong(2, Long.parseLong(id));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close account store: " + e.getMessage());
+        }
+    }
+
+    private static Farmer readFarmer(ResultSet rs) throws SQLException {
+        Farmer farmer = new Farmer(
+                rs.getString("name"),
+                rs.getString("username"),
+                rs.getString("email"),
+                rs.getString("phone"),
+                rs.getString("farmName"),
+                rs.getString("farmLocation"),
+                rs.getString("password"));
+        farmer.setId(String.valueOf(rs.getLong("id")));
+        return farmer;
+    }
+
+    private static String generatedId(PreparedStatement ps) throws SQLException {
+        try (ResultSet keys = ps.getGeneratedKeys()) {
+            keys.next();
+            return String.valueOf(keys.getLong(1));
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Per-customer activity feeds and the farm follows that feed them. Each feed is a ring of
+// FEED_CAPACITY slots: entry n goes into slot n % FEED_CAPACITY, overwriting the oldest,
+// so a feed never grows and reading it touches at most FEED_CAPACITY rows.
+public class ActivityFeedStore {
+    public static final int FEED_CAPACITY = 50;
+
+    public static final class Entry {
+        private final long sequence;
+        private final String text;
+        private final LocalDateTime createdAt;
+
+        private Entry(long sequence, String text, LocalDateTime createdAt) {
+            this.sequence = sequence;
+            this.text = text;
+            this.createdAt = createdAt;
+        }
+
+        public long getSequence() {
+            return sequence;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public LocalDateTime getCreatedAt() {
+            return createdAt;
+        }
+    }
+
+    private final Connection connection;
+
+    public ActivityFeedStore() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS FarmFollow (" +
+                    "farmerId BIGINT, " +
+                    "customerId BIGINT, " +
+                    "PRIMARY KEY (farmerId, customerId)" +
+                    ")");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_follow_customer ON FarmFollow (customerId, farmerId)");
+            // Sequence number of the newest entry in each customer's ring
+            st.execute("CREATE TABLE IF NOT EXISTS FeedHead (" +
+                    "customerId BIGINT PRIMARY KEY, " +
+                    "headSeq BIGINT" +
+                    ")");
+            st.execute("CREATE TABLE IF NOT EXISTS FeedEntry (" +
+                    "customerId BIGINT, " +
+                    "slot INT, " +
+                    "seq BIGINT, " +
+                    "text VARCHAR(512), " +
+                    "createdAt TIMESTAMP, " +
+                    "PRIMARY KEY (customerId, slot)" +
+                    ")");
+        }
+    }
+
+    public void follow(String customerId, String farmerId) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "MERGE INTO FarmFollow (farmerId, customerId) KEY (farmerId, customerId) VALUES (?, ?)")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setLong(2, Long.parseLong(customerId));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    public void unfollow(String customerId, String farmerId) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM FarmFollow WHERE farmerId = ? AND customerId = ?")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setLong(2, Long.parseLong(customerId));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    public boolean isFollowing(String customerId, String farmerId) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT 1 FROM FarmFollow WHERE farmerId = ? AND customerId = ?")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setLong(2, Long.parseLong(customerId));
+                try (ResultSet rs = ps.executeQuery()) {
+                    return rs.next();
+                }
+            }
+        }
+    }
+
+    // One page of a farm's followers in id order; pass the last id of the previous page
+    public List<Long> followers(String farmerId, long afterCustomerId, int limit) throws SQLException {
+        List<Long> customerIds = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT customerId FROM FarmFollow WHERE farmerId = ? AND customerId > ? " +
+                            "ORDER BY customerId LIMIT ?")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setLong(2, afterCustomerId);
+                ps.setInt(3, limit);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        customerIds.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return customerIds;
+    }
+
+    // Writes the same entry into every listed feed in one transaction
+    public void append(List<Long> customerIds, String text, LocalDateTime createdAt) throws SQLException {
+        if (customerIds.isEmpty()) {
+            return;
+        }
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try {
+                Map<Long, Long> heads = readHeads(customerIds);
+                try (PreparedStatement head = connection.prepareStatement(
+                        "MERGE INTO FeedHead (customerId, headSeq) KEY (customerId) VALUES (?, ?)");
+                        PreparedStatement entry = connection.prepareStatement(
+                                "MERGE INTO FeedEntry (customerId, slot, seq, text, createdAt) " +
+                                        "KEY (customerId, slot) VALUES (?, ?, ?, ?, ?)")) {
+                    for (Long customerId : customerIds) {
+                        long seq = heads.getOrDefault(customerId, 0L) + 1;
+                        head.setLong(1, customerId);
+                        head.setLong(2, seq);
+                        head.addBatch();
+                        entry.setLong(1, customerId);
+                        entry.setInt(2, (int) (seq % FEED_CAPACITY));
+                        entry.setLong(3, seq);
+                        entry.setString(4, text);
+                        entry.setTimestamp(5, Timestamp.valueOf(createdAt));
+                        entry.addBatch();
+                    }
+                    head.executeBatch();
+                    entry.executeBatch();
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Newest first; never reads more than the ring holds
+    public List<Entry> recent(String customerId, int limit) throws SQLException {
+        List<Entry> entries = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT seq, text, createdAt FROM FeedEntry WHERE customerId = ? ORDER BY seq DESC LIMIT ?")) {
+                ps.setLong(1, Long.parseLong(customerId));
+                ps.setInt(2, Math.min(limit, FEED_CAPACITY));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        entries.add(new Entry(rs.getLong("seq"), rs.getString("text"),
+                                rs.getTimestamp("createdAt").toLocalDateTime()));
+                    }
+                }
+            }
+        }
+        return entries;
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close activity feed store: " + e.getMessage());
+        }
+    }
+
+    private Map<Long, Long> readHeads(List<Long> customerIds) throws SQLException {
+        Map<Long, Long> heads = new HashMap<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT customerId, headSeq FROM FeedHead WHERE customerId IN (" +
+                        Database.placeholders(customerIds.size()) + ") FOR UPDATE")) {
+            for (int i = 0; i < customerIds.size(); i++) {
+                ps.setLong(i + 1, customerIds.get(i));
+            }
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    heads.put(rs.getLong(1), rs.getLong(2));
+                }
+            }
+        }
+        return heads;
+    }
+}
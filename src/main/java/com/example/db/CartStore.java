@@ -0,0 +1,289 @@
+package com.example.db;
+
+import com.example.models.CartItem;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Keeps every customer's cart in memory and writes changes behind to the CartItem table.
+// Clicks only mark a line dirty; the flusher writes each dirty line once with its latest
+// quantity, so ten "+" clicks between flushes cost a single row write.
+public class CartStore {
+    private static final long FLUSH_INTERVAL_SECONDS = 5;
+
+    private final Connection connection;
+    private final Map<String, Cart> carts = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "cart-flusher");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static class Cart {
+        private final List<CartItem> items = new ArrayList<>();
+        private final Set<String> dirty = new LinkedHashSet<>();
+        // Whether the saved lines have been read into 'items' yet
+        private boolean restored;
+
+        private CartItem find(String name) {
+            for (CartItem item : items) {
+                if (item.getName().equals(name)) {
+                    return item;
+                }
+            }
+            return null;
+        }
+    }
+
+    // Snapshot of one dirty line taken under the cart lock; quantity 0 means delete
+    private static class PendingWrite {
+        private final String customer;
+        private final String name;
+        private final CartItem item;
+
+        private PendingWrite(String customer, String name, CartItem item) {
+            this.customer = customer;
+            this.name = name;
+            this.item = item == null ? null
+                    : new CartItem(item.getProductId(), item.getName(), item.getPrice(), item.getUnit(),
+                            item.getQuantity());
+        }
+    }
+
+    public CartStore() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS CartItem (" +
+                    "customerUsername VARCHAR(255) NOT NULL, " +
+                    "name VARCHAR(255) NOT NULL, " +
+                    "productId VARCHAR(64), " +
+                    "price DOUBLE, " +
+                    "unit VARCHAR(50), " +
+                    "quantity INT, " +
+                    "updatedAt TIMESTAMP, " +
+                    "PRIMARY KEY (customerUsername, name)" +
+                    ")");
+        }
+        flusher.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_SECONDS, FLUSH_INTERVAL_SECONDS,
+                TimeUnit.SECONDS);
+    }
+
+    // Loads the customer's cart with a single primary-key range query. Later calls return
+    // the in-memory cart, which is always at least as new as the table. Changes made before
+    // the first restore are merged into the saved lines: an added line adds to the saved
+    // quantity and a removed one stays removed.
+    public List<CartItem> restore(String customer) throws SQLException {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            if (cart.restored) {
+                return Collections.unmodifiableList(new ArrayList<>(cart.items));
+            }
+        }
+        List<CartItem> saved = new ArrayList<>();
+        String sql = "SELECT name, productId, price, unit, quantity FROM CartItem " +
+                "WHERE customerUsername = ? ORDER BY name";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                ps.setString(1, customer);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        saved.add(new CartItem(rs.getString("productId"), rs.getString("name"),
+                                rs.getDouble("price"), rs.getString("unit"), rs.getInt("quantity")));
+                    }
+                }
+            }
+        }
+        synchronized (cart) {
+            // Another restore may have got here first
+            if (!cart.restored) {
+                List<CartItem> merged = new ArrayList<>();
+                for (CartItem item : saved) {
+                    CartItem line = cart.find(item.getName());
+                    if (line != null) {
+                        line.setQuantity(line.getQuantity() + item.getQuantity());
+                    } else if (!cart.dirty.contains(item.getName())) {
+                        merged.add(item);
+                    }
+                }
+                cart.items.addAll(0, merged);
+                cart.restored = true;
+            }
+            return Collections.unmodifiableList(new ArrayList<>(cart.items));
+        }
+    }
+
+    // Adds the item, merging it into an existing line with the same name
+    public CartItem add(String customer, CartItem item) {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            CartItem line = cart.find(item.getName());
+            if (line == null) {
+                line = item;
+                cart.items.add(line);
+            } else {
+                line.setQuantity(line.getQuantity() + item.getQuantity());
+            }
+            cart.dirty.add(line.getName());
+            return line;
+        }
+    }
+
+    public void setQuantity(String customer, CartItem item, int quantity) {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            item.setQuantity(quantity);
+            cart.dirty.add(item.getName());
+        }
+    }
+
+    public void remove(String customer, CartItem item) {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            cart.items.remove(item);
+            cart.dirty.add(item.getName());
+        }
+    }
+
+    public void clear(String customer) {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            for (CartItem item : cart.items) {
+                cart.dirty.add(item.getName());
+            }
+            cart.items.clear();
+        }
+    }
+
+    public List<CartItem> items(String customer) {
+        Cart cart = cartOf(customer);
+        synchronized (cart) {
+            return Collections.unmodifiableList(new ArrayList<>(cart.items));
+        }
+    }
+
+    // Schedules an immediate flush of one customer's cart, e.g. on logout
+    public void flushLater(String customer) {
+        flusher.execute(() -> {
+            try {
+                flush(Collections.singleton(customer));
+            } catch (SQLException e) {
+                System.err.println("Failed to flush cart for " + customer + ": " + e.getMessage());
+            }
+        });
+    }
+
+    // Flushes everything and stops the background flusher
+    public void close() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+            flush(carts.keySet());
+            connection.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            System.err.println("Failed to flush carts on shutdown: " + e.getMessage());
+        }
+    }
+
+    private Cart cartOf(String customer) {
+        return carts.computeIfAbsent(customer, k -> new Cart());
+    }
+
+    private void flushQuietly() {
+        try {
+            flush(carts.keySet());
+        } catch (SQLException e) {
+            System.err.println("Failed to flush carts: " + e.getMessage());
+        }
+    }
+
+    private void flush(Set<String> customers) throws SQLException {
+        List<PendingWrite> writes = new ArrayList<>();
+        for (String customer : customers) {
+            Cart cart = carts.get(customer);
+            if (cart == null) {
+                continue;
+            }
+            boolean restored;
+            synchronized (cart) {
+                restored = cart.restored;
+            }
+            if (!restored) {
+                // Writing lines changed before the restore would overwrite the saved quantities
+                restore(customer);
+            }
+            synchronized (cart) {
+                for (String name : cart.dirty) {
+                    writes.add(new PendingWrite(customer, name, cart.find(name)));
+                }
+                cart.dirty.clear();
+            }
+        }
+        if (writes.isEmpty()) {
+            return;
+        }
+
+        String upsert = "MERGE INTO CartItem (customerUsername, name, productId, price, unit, quantity, updatedAt) " +
+                "KEY (customerUsername, name) VALUES (?, ?, ?, ?, ?, ?, ?)";
+        String delete = "DELETE FROM CartItem WHERE customerUsername = ? AND name = ?";
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement up = connection.prepareStatement(upsert);
+                    PreparedStatement del = connection.prepareStatement(delete)) {
+                for (PendingWrite w : writes) {
+                    if (w.item == null || w.item.getQuantity() <= 0) {
+                        del.setString(1, w.customer);
+                        del.setString(2, w.name);
+                        del.addBatch();
+                    } else {
+                        up.setString(1, w.customer);
+                        up.setString(2, w.name);
+                        up.setString(3, w.item.getProductId());
+                        up.setDouble(4, w.item.getPrice());
+                        up.setString(5, w.item.getUnit());
+                        up.setInt(6, w.item.getQuantity());
+                        up.setTimestamp(7, now);
+                        up.addBatch();
+                    }
+                }
+                up.executeBatch();
+                del.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                requeue(writes);
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Puts failed lines back so the next flush retries them
+    private void requeue(List<PendingWrite> writes) {
+        for (PendingWrite w : writes) {
+            Cart cart = carts.get(w.customer);
+            if (cart != null) {
+                synchronized (cart) {
+                    cart.dirty.add(w.name);
+                }
+            }
+        }
+    }
+}
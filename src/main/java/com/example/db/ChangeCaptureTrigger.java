@@ -0,0 +1,52 @@
+package com.example.db;
+
+import org.h2.api.Trigger;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+// Row trigger installed by ChangeFeed on every captured table. It appends one ChangeLog row
+// per changed row inside the writer's own transaction, so a rolled-back write leaves no
+// event and a committed one cannot lose it. Every captured table has its id as the first
+// column. H2 creates it reflectively, so it must stay public with a no-arg constructor.
+public class ChangeCaptureTrigger implements Trigger {
+    private String tableName;
+
+    @Override
+    public void init(Connection conn, String schemaName, String triggerName, String tableName, boolean before,
+            int type) {
+        this.tableName = tableName;
+    }
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        String op;
+        Object[] row;
+        if (oldRow == null) {
+            op = ChangeFeed.Operation.INSERT.code();
+            row = newRow;
+        } else if (newRow == null) {
+            op = ChangeFeed.Operation.DELETE.code();
+            row = oldRow;
+        } else {
+            op = ChangeFeed.Operation.UPDATE.code();
+            row = newRow;
+        }
+        try (PreparedStatement ps = conn.prepareStatement(
+                "INSERT INTO ChangeLog (tableName, op, rowId, changedAt) VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+            ps.setString(1, tableName);
+            ps.setString(2, op);
+            ps.setLong(3, ((Number) row[0]).longValue());
+            ps.executeUpdate();
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public void remove() {
+    }
+}
@@ -0,0 +1,283 @@
+package com.example.db;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Change-data-capture over the shared database. Triggers on the captured tables append
+// every row change to ChangeLog, whichever client made it; one poller per process tails
+// that table in id order and hands each subscriber its changes in ordered batches. The
+// latest changes are also kept in memory, so subscribers that are close to the head never
+// query the log themselves.
+public class ChangeFeed {
+    public static final List<String> CAPTURED_TABLES = List.of("Product", "Orders", "Farmer", "Customer");
+
+    private static final long POLL_INTERVAL_MILLIS = 200;
+    private static final int BATCH_SIZE = 500;
+    private static final int RING_CAPACITY = 4096;
+    private static final int RETAINED_CHANGES = 100_000;
+    // A missing log id is a write still in flight, unless it stays missing this long
+    // (rolled back, or skipped by the id sequence)
+    private static final long GAP_TIMEOUT_MILLIS = 2000;
+    private static final int PRUNE_EVERY_POLLS = 300;
+
+    public enum Operation {
+        INSERT("I"), UPDATE("U"), DELETE("D");
+
+        private final String code;
+
+        Operation(String code) {
+            this.code = code;
+        }
+
+        public String code() {
+            return code;
+        }
+
+        static Operation fromCode(String code) {
+            for (Operation op : values()) {
+                if (op.code.equals(code)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Unknown change operation: " + code);
+        }
+    }
+
+    public static final class Change {
+        private final long offset;
+        private final String table;
+        private final Operation operation;
+        private final long rowId;
+
+        private Change(long offset, String table, Operation operation, long rowId) {
+            this.offset = offset;
+            this.table = table;
+            this.operation = operation;
+            this.rowId = rowId;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        // Table name as spelled in CAPTURED_TABLES
+        public String getTable() {
+            return table;
+        }
+
+        public Operation getOperation() {
+            return operation;
+        }
+
+        // Row id as a model id
+        public String getRowId() {
+            return String.valueOf(rowId);
+        }
+    }
+
+    public interface Listener {
+        // Called on the feed's thread with changes in offset order, never more than one batch at a time
+        void onChanges(List<Change> changes);
+    }
+
+    public final class Subscription {
+        private final Listener listener;
+        private volatile long offset;
+
+        private Subscription(long afterOffset, Listener listener) {
+            this.offset = afterOffset;
+            this.listener = listener;
+        }
+
+        // Offset of the last change delivered; subscribe again from here to resume
+        public long getOffset() {
+            return offset;
+        }
+
+        public void close() {
+            subscriptions.remove(this);
+        }
+    }
+
+    private final Connection connection;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private final ArrayDeque<Change> recent = new ArrayDeque<>();
+    private final ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "change-feed");
+        t.setDaemon(true);
+        return t;
+    });
+    private volatile long head;
+    private long gapSince;
+    private int polls;
+
+    public ChangeFeed() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS ChangeLog (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "tableName VARCHAR(64), " +
+                    "op CHAR(1), " +
+                    "rowId BIGINT, " +
+                    "changedAt TIMESTAMP" +
+                    ")");
+            for (String table : CAPTURED_TABLES) {
+                st.execute("CREATE TRIGGER IF NOT EXISTS cdc_" + table.toLowerCase() +
+                        " AFTER INSERT, UPDATE, DELETE ON " + table +
+                        " FOR EACH ROW CALL '" + ChangeCaptureTrigger.class.getName() + "'");
+            }
+            try (ResultSet rs = st.executeQuery("SELECT COALESCE(MAX(id), 0) FROM ChangeLog")) {
+                rs.next();
+                head = rs.getLong(1);
+            }
+        }
+        poller.scheduleWithFixedDelay(this::poll, POLL_INTERVAL_MILLIS, POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    // Offset of the newest change seen so far; subscribe from here to get only new changes
+    public long currentOffset() {
+        return head;
+    }
+
+    // Delivers every change after 'afterOffset', oldest first, then keeps delivering new ones
+    public Subscription subscribe(long afterOffset, Listener listener) {
+        Subscription subscription = new Subscription(afterOffset, listener);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    public void close() {
+        poller.shutdownNow();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close change feed: " + e.getMessage());
+        }
+    }
+
+    private void poll() {
+        try {
+            // Drain the backlog now instead of one batch per interval, so lag stays bounded
+            while (advanceHead() == BATCH_SIZE) {
+                deliver();
+            }
+            deliver();
+            if (++polls % PRUNE_EVERY_POLLS == 0) {
+                prune();
+            }
+        } catch (SQLException e) {
+            System.err.println("Failed to read change log: " + e.getMessage());
+        } catch (RuntimeException e) {
+            System.err.println("Change feed error: " + e.getMessage());
+        }
+    }
+
+    // Reads new log rows past the head into the in-memory ring and returns how many it took.
+    // Stops at a missing id until it either shows up or times out, so a transaction that
+    // commits late is not skipped.
+    private int advanceHead() throws SQLException {
+        List<Change> changes = read(head, Long.MAX_VALUE);
+        int accepted = 0;
+        long next = head + 1;
+        for (Change change : changes) {
+            if (change.offset != next) {
+                long now = System.currentTimeMillis();
+                if (gapSince == 0) {
+                    gapSince = now;
+                }
+                if (now - gapSince < GAP_TIMEOUT_MILLIS) {
+                    break;
+                }
+            }
+            gapSince = 0;
+            recent.addLast(change);
+            if (recent.size() > RING_CAPACITY) {
+                recent.removeFirst();
+            }
+            head = change.offset;
+            next = head + 1;
+            accepted++;
+        }
+        return accepted;
+    }
+
+    private void deliver() throws SQLException {
+        for (Subscription subscription : subscriptions) {
+            while (subscription.offset < head && subscriptions.contains(subscription)) {
+                List<Change> batch = pending(subscription.offset);
+                if (batch.isEmpty()) {
+                    subscription.offset = head;
+                    break;
+                }
+                try {
+                    subscription.listener.onChanges(batch);
+                } catch (RuntimeException e) {
+                    System.err.println("Change listener failed: " + e.getMessage());
+                }
+                subscription.offset = batch.get(batch.size() - 1).offset;
+            }
+        }
+    }
+
+    // Up to one batch after 'offset': from the ring when it still covers it, else from the log
+    private List<Change> pending(long offset) throws SQLException {
+        Change oldest = recent.peekFirst();
+        if (oldest == null || oldest.offset > offset + 1) {
+            return read(offset, head);
+        }
+        List<Change> batch = new ArrayList<>();
+        for (Change change : recent) {
+            if (change.offset > offset) {
+                batch.add(change);
+                if (batch.size() == BATCH_SIZE) {
+                    break;
+                }
+            }
+        }
+        return batch;
+    }
+
+    private List<Change> read(long after, long upTo) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT id, tableName, op, rowId FROM ChangeLog WHERE id > ? AND id <= ? ORDER BY id LIMIT ?")) {
+            ps.setLong(1, after);
+            ps.setLong(2, upTo);
+            ps.setInt(3, BATCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    changes.add(new Change(rs.getLong("id"), canonicalTable(rs.getString("tableName")),
+                            Operation.fromCode(rs.getString("op")), rs.getLong("rowId")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    // H2 hands triggers upper-cased table names
+    private static String canonicalTable(String name) {
+        for (String table : CAPTURED_TABLES) {
+            if (table.equalsIgnoreCase(name)) {
+                return table;
+            }
+        }
+        return name;
+    }
+
+    private void prune() throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("DELETE FROM ChangeLog WHERE id <= ?")) {
+            ps.setLong(1, head - RETAINED_CHANGES);
+            ps.executeUpdate();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.db;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+public final class Database {
+    public static final String URL = "jdbc:h2:~/farmers_customers_db;MODE=MySQL;AUTO_SERVER=TRUE";
+    private static final String USER = "sa";
+    private static final String PASSWORD = "";
+    // Rows fetched per round trip when streaming; only a batch is ever held in memory
+    private static final int STREAM_FETCH_SIZE = 1000;
+
+    private Database() {
+    }
+
+    // Opens a new connection to the embedded database. Background writers use their own
+    // connection so their transactions never interleave with the UI's shared connection.
+    public static Connection open() throws SQLException {
+        return DriverManager.getConnection(URL, USER, PASSWORD);
+    }
+
+    // Row ids arrive as model ids (strings); ids of objects that were never saved are skipped
+    public static List<Long> parseIds(Collection<String> ids) {
+        List<Long> parsed = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            try {
+                parsed.add(Long.valueOf(id));
+            } catch (NumberFormatException e) {
+                // Not a saved row
+            }
+        }
+        return parsed;
+    }
+
+    // "?, ?, ?" for an IN list of the given size
+    public static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+
+    // Runs a query on a connection of its own and feeds every row to 'sink' through a
+    // forward-only, read-only cursor, so memory stays flat however many rows there are and
+    // the stores' shared connections are not held for the duration. Returns the rows sent.
+    public static long stream(String sql, List<?> params, RowSink sink) throws SQLException, IOException {
+        try (Connection connection = open()) {
+            connection.setReadOnly(true);
+            long total;
+            try (PreparedStatement count = connection.prepareStatement("SELECT COUNT(*) FROM (" + sql + ") t")) {
+                bind(count, params);
+                try (ResultSet rs = count.executeQuery()) {
+                    rs.next();
+                    total = rs.getLong(1);
+                }
+            }
+            try (PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                    ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(STREAM_FETCH_SIZE);
+                bind(ps, params);
+                long rows = 0;
+                try (ResultSet rs = ps.executeQuery()) {
+                    sink.begin(rs.getMetaData(), total);
+                    while (rs.next()) {
+                        sink.row(rs);
+                        rows++;
+                    }
+                }
+                return rows;
+            }
+        }
+    }
+
+    private static void bind(PreparedStatement ps, List<?> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+}
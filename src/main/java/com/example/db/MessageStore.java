@@ -0,0 +1,372 @@
+package com.example.db;
+
+import com.example.models.Message;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Conversations between a customer and a farmer, with messages paged newest-first by
+// (sentAt, id) keyset. Unread totals live in a per-user counter row that is updated in the
+// same transaction as the message, so badges never have to count message history.
+public class MessageStore {
+    private final Connection connection;
+    private final Map<String, AtomicInteger> unreadCache = new ConcurrentHashMap<>();
+
+    public MessageStore() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS Conversation (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "customerUsername VARCHAR(255) NOT NULL, " +
+                    "farmerUsername VARCHAR(255) NOT NULL, " +
+                    "lastMessageAt TIMESTAMP, " +
+                    "UNIQUE (customerUsername, farmerUsername)" +
+                    ")");
+            st.execute("CREATE TABLE IF NOT EXISTS Message (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "conversationId BIGINT NOT NULL, " +
+                    "senderRole VARCHAR(20), " +
+                    "senderUsername VARCHAR(255), " +
+                    "senderName VARCHAR(255), " +
+                    "recipientRole VARCHAR(20), " +
+                    "recipientUsername VARCHAR(255), " +
+                    "body VARCHAR(4000), " +
+                    "sentAt TIMESTAMP, " +
+                    "isRead BOOLEAN DEFAULT FALSE, " +
+                    "FOREIGN KEY (conversationId) REFERENCES Conversation(id)" +
+                    ")");
+            st.execute("CREATE TABLE IF NOT EXISTS UnreadCounter (" +
+                    "role VARCHAR(20) NOT NULL, " +
+                    "username VARCHAR(255) NOT NULL, " +
+                    "unread INT NOT NULL, " +
+                    "PRIMARY KEY (role, username)" +
+                    ")");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_message_inbox " +
+                    "ON Message (recipientRole, recipientUsername, sentAt, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_message_outbox " +
+                    "ON Message (senderRole, senderUsername, sentAt, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_message_conversation ON Message (conversationId, sentAt, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_conversation_farmer ON Conversation (farmerUsername, lastMessageAt)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_conversation_customer " +
+                    "ON Conversation (customerUsername, lastMessageAt)");
+        }
+    }
+
+    public Message send(String senderRole, String senderUsername, String senderName,
+            String recipientRole, String recipientUsername, String body) throws SQLException {
+        String customer = Message.CUSTOMER.equals(senderRole) ? senderUsername : recipientUsername;
+        String farmer = Message.CUSTOMER.equals(senderRole) ? recipientUsername : senderUsername;
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp sentAt = Timestamp.valueOf(now);
+
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try {
+                long conversationId = touchConversation(customer, farmer, sentAt);
+                long id;
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "INSERT INTO Message (conversationId, senderRole, senderUsername, senderName, " +
+                                "recipientRole, recipientUsername, body, sentAt, isRead) " +
+                                "VALUES (?, ?, ?, ?, ?, ?, ?, ?, FALSE)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    ps.setLong(1, conversationId);
+                    ps.setString(2, senderRole);
+                    ps.setString(3, senderUsername);
+                    ps.setString(4, senderName);
+                    ps.setString(5, recipientRole);
+                    ps.setString(6, recipientUsername);
+                    ps.setString(7, body);
+                    ps.setTimestamp(8, sentAt);
+                    ps.executeUpdate();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        keys.next();
+                        id = keys.getLong(1);
+                    }
+                }
+                adjustUnread(recipientRole, recipientUsername, 1);
+                connection.commit();
+                AtomicInteger cached = unreadCache.get(counterKey(recipientRole, recipientUsername));
+                if (cached != null) {
+                    cached.incrementAndGet();
+                }
+                return new Message(id, conversationId, senderRole, senderUsername, senderName,
+                        recipientRole, recipientUsername, body, now, false);
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Messages received by the user, newest first. Pass the oldest message of the previous
+    // page as 'before' to continue; null starts at the newest.
+    public List<Message> inbox(String role, String username, Message before, int limit) throws SQLException {
+        String sql = "SELECT * FROM Message WHERE recipientRole = ? AND recipientUsername = ? " +
+                (before == null ? "" : "AND (sentAt < ? OR (sentAt = ? AND id < ?)) ") +
+                "ORDER BY sentAt DESC, id DESC LIMIT ?";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int i = 1;
+                ps.setString(i++, role);
+                ps.setString(i++, username);
+                i = bindBefore(ps, i, before);
+                ps.setInt(i, limit);
+                return readMessages(ps);
+            }
+        }
+    }
+
+    // Messages received after 'after' (null for all), oldest first, for adding new arrivals
+    // to the top of an open inbox
+    public List<Message> inboxAfter(String role, String username, Message after, int limit) throws SQLException {
+        String sql = "SELECT * FROM Message WHERE recipientRole = ? AND recipientUsername = ? " +
+                (after == null ? "" : "AND (sentAt > ? OR (sentAt = ? AND id > ?)) ") +
+                "ORDER BY sentAt, id LIMIT ?";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int i = 1;
+                ps.setString(i++, role);
+                ps.setString(i++, username);
+                if (after != null) {
+                    Timestamp sentAt = Timestamp.valueOf(after.getSentAt());
+                    ps.setTimestamp(i++, sentAt);
+                    ps.setTimestamp(i++, sentAt);
+                    ps.setLong(i++, after.getId());
+                }
+                ps.setInt(i, limit);
+                return readMessages(ps);
+            }
+        }
+    }
+
+    // Everything the user sent or received after 'after' (null for all), oldest first. Used
+    // to feed the search index; each side of the OR is served by its own index.
+    public List<Message> historyAfter(String role, String username, Message after, int limit) throws SQLException {
+        String keyset = after == null ? "" : "AND (sentAt > ? OR (sentAt = ? AND id > ?)) ";
+        String sql = "SELECT * FROM (" +
+                "SELECT * FROM Message WHERE recipientRole = ? AND recipientUsername = ? " + keyset +
+                "UNION ALL " +
+                "SELECT * FROM Message WHERE senderRole = ? AND senderUsername = ? " + keyset +
+                ") ORDER BY sentAt, id LIMIT ?";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int i = 1;
+                for (int side = 0; side < 2; side++) {
+                    ps.setString(i++, role);
+                    ps.setString(i++, username);
+                    if (after != null) {
+                        Timestamp sentAt = Timestamp.valueOf(after.getSentAt());
+                        ps.setTimestamp(i++, sentAt);
+                        ps.setTimestamp(i++, sentAt);
+                        ps.setLong(i++, after.getId());
+                    }
+                }
+                ps.setInt(i, limit);
+                return readMessages(ps);
+            }
+        }
+    }
+
+    // Both directions of one conversation, newest first, with the same keyset paging as inbox
+    public List<Message> conversation(long conversationId, Message before, int limit) throws SQLException {
+        String sql = "SELECT * FROM Message WHERE conversationId = ? " +
+                (before == null ? "" : "AND (sentAt < ? OR (sentAt = ? AND id < ?)) ") +
+                "ORDER BY sentAt DESC, id DESC LIMIT ?";
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                int i = 1;
+                ps.setLong(i++, conversationId);
+                i = bindBefore(ps, i, before);
+                ps.setInt(i, limit);
+                return readMessages(ps);
+            }
+        }
+    }
+
+    public void markRead(Message message) throws SQLException {
+        if (message.isRead()) {
+            return;
+        }
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try {
+                int updated;
+                try (PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE Message SET isRead = TRUE WHERE id = ? AND isRead = FALSE")) {
+                    ps.setLong(1, message.getId());
+                    updated = ps.executeUpdate();
+                }
+                if (updated > 0) {
+                    adjustUnread(message.getRecipientRole(), message.getRecipientUsername(), -1);
+                }
+                connection.commit();
+                message.setRead(true);
+                AtomicInteger cached = unreadCache.get(counterKey(message.getRecipientRole(),
+                        message.getRecipientUsername()));
+                if (cached != null && updated > 0) {
+                    cached.decrementAndGet();
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Constant-time: a cache hit, or one primary-key lookup on first use
+    public int unreadCount(String role, String username) throws SQLException {
+        String key = counterKey(role, username);
+        AtomicInteger cached = unreadCache.get(key);
+        if (cached != null) {
+            return cached.get();
+        }
+        int unread = 0;
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT unread FROM UnreadCounter WHERE role = ? AND username = ?")) {
+                ps.setString(1, role);
+                ps.setString(2, username);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) {
+                        unread = rs.getInt(1);
+                    }
+                }
+            }
+            // Filled while holding the connection lock so a concurrent send can't be lost
+            unreadCache.putIfAbsent(key, new AtomicInteger(unread));
+        }
+        return unreadCache.get(key).get();
+    }
+
+    // Drops the cached count so the next unreadCount re-reads the counter row. For when
+    // another client, which this store's cache knows nothing about, may have changed it.
+    public void forgetUnreadCount(String role, String username) {
+        synchronized (connection) {
+            unreadCache.remove(counterKey(role, username));
+        }
+    }
+
+    // Farms a customer can write to: username -> farm name
+    public Map<String, String> farmerDirectory() throws SQLException {
+        Map<String, String> farms = new LinkedHashMap<>();
+        synchronized (connection) {
+            try (Statement st = connection.createStatement();
+                    ResultSet rs = st.executeQuery(
+                            "SELECT username, farmName FROM Farmer WHERE username IS NOT NULL ORDER BY farmName")) {
+                while (rs.next()) {
+                    farms.put(rs.getString("username"), rs.getString("farmName"));
+                }
+            }
+        }
+        return farms;
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close message store: " + e.getMessage());
+        }
+    }
+
+    private long touchConversation(String customer, String farmer, Timestamp sentAt) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE Conversation SET lastMessageAt = ? WHERE customerUsername = ? AND farmerUsername = ?")) {
+            ps.setTimestamp(1, sentAt);
+            ps.setString(2, customer);
+            ps.setString(3, farmer);
+            ps.executeUpdate();
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "SELECT id FROM Conversation WHERE customerUsername = ? AND farmerUsername = ?")) {
+            ps.setString(1, customer);
+            ps.setString(2, farmer);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next()) {
+                    return rs.getLong(1);
+                }
+            }
+        }
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO Conversation (customerUsername, farmerUsername, lastMessageAt) VALUES (?, ?, ?)",
+                Statement.RETURN_GENERATED_KEYS)) {
+            ps.setString(1, customer);
+            ps.setString(2, farmer);
+            ps.setTimestamp(3, sentAt);
+            ps.executeUpdate();
+            try (ResultSet keys = ps.getGeneratedKeys()) {
+                keys.next();
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private void adjustUnread(String role, String username, int delta) throws SQLException {
+        int updated;
+        try (PreparedStatement ps = connection.prepareStatement(
+                "UPDATE UnreadCounter SET unread = GREATEST(unread + ?, 0) WHERE role = ? AND username = ?")) {
+            ps.setInt(1, delta);
+            ps.setString(2, role);
+            ps.setString(3, username);
+            updated = ps.executeUpdate();
+        }
+        if (updated == 0 && delta > 0) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO UnreadCounter (role, username, unread) VALUES (?, ?, ?)")) {
+                ps.setString(1, role);
+                ps.setString(2, username);
+                ps.setInt(3, delta);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private static int bindBefore(PreparedStatement ps, int i, Message before) throws SQLException {
+        if (before != null) {
+            Timestamp sentAt = Timestamp.valueOf(before.getSentAt());
+            ps.setTimestamp(i++, sentAt);
+            ps.setTimestamp(i++, sentAt);
+            ps.setLong(i++, before.getId());
+        }
+        return i;
+    }
+
+    private static List<Message> readMessages(PreparedStatement ps) throws SQLException {
+        List<Message> messages = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                messages.add(new Message(
+                        rs.getLong("id"),
+                        rs.getLong("conversationId"),
+                        rs.getString("senderRole"),
+                        rs.getString("senderUsername"),
+                        rs.getString("senderName"),
+                        rs.getString("recipientRole"),
+                        rs.getString("recipientUsername"),
+                        rs.getString("body"),
+                        rs.getTimestamp("sentAt").toLocalDateTime(),
+                        rs.getBoolean("isRead")));
+            }
+        }
+        return messages;
+    }
+
+    private static String counterKey(String role, String username) {
+        return role + ':' + username;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.db;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+// Sort order and filters of the farmer's order list, as sent to OrderStore. Unset filters
+// (null, blank or empty) match every order.
+public class OrderQuery {
+    private OrderStore.SortKey sort = OrderStore.SortKey.DATE;
+    private boolean ascending;
+    private String text = "";
+    private final Set<String> statuses = new LinkedHashSet<>();
+    private LocalDate from;
+    private LocalDate to;
+    private Long productId;
+    private String location = "";
+
+    public OrderQuery copy() {
+        OrderQuery copy = new OrderQuery();
+        copy.sort = sort;
+        copy.ascending = ascending;
+        copy.text = text;
+        copy.statuses.addAll(statuses);
+        copy.from = from;
+        copy.to = to;
+        copy.productId = productId;
+        copy.location = location;
+        return copy;
+    }
+
+    public OrderStore.SortKey getSort() {
+        return sort;
+    }
+
+    public void setSort(OrderStore.SortKey sort, boolean ascending) {
+        this.sort = sort;
+        this.ascending = ascending;
+    }
+
+    public boolean isAscending() {
+        return ascending;
+    }
+
+    // Case-insensitive substring of customer, product, status or address
+    public String getText() {
+        return text;
+    }
+
+    public void setText(String text) {
+        this.text = text == null ? "" : text.trim();
+    }
+
+    public Set<String> getStatuses() {
+        return statuses;
+    }
+
+    public void setStatuses(Collection<String> statuses) {
+        this.statuses.clear();
+        this.statuses.addAll(statuses);
+    }
+
+    // First day of the range, inclusive
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    // Last day of the range, inclusive
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public void setProductId(Long productId) {
+        this.productId = productId;
+    }
+
+    // Case-insensitive substring of the delivery address
+    public String getLocation() {
+        return location;
+    }
+
+    public void setLocation(String location) {
+        this.location = location == null ? "" : location.trim();
+    }
+
+    // True when any filter besides the sort order is set
+    public boolean isFiltered() {
+        return !text.isEmpty() || !statuses.isEmpty() || from != null || to != null || productId != null
+                || !location.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof OrderQuery)) {
+            return false;
+        }
+        OrderQuery other = (OrderQuery) o;
+        return sort == other.sort && ascending == other.ascending && text.equals(other.text)
+                && statuses.equals(other.statuses) && Objects.equals(from, other.from) && Objects.equals(to, other.to)
+                && Objects.equals(productId, other.productId) && location.equals(other.location);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(sort, ascending, text, statuses, from, to, productId, location);
+    }
+}
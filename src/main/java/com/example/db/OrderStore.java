@@ -0,0 +1,644 @@
+package com.example.db;
+
+import com.example.models.CartItem;
+import com.example.models.Order;
+import com.example.models.OrderStatus;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+// Placed orders, one row per cart line. Reads for the farmer's order list go through the
+// shared QueryCache; every write bumps the Orders table version.
+public class OrderStore {
+    // Columns the farmer's order list can be sorted by; ties are broken by id. Text columns
+    // that may be null sort as empty so keyset comparisons never meet a NULL.
+    public enum SortKey {
+        CUSTOMER("COALESCE(c.name, '')", order -> emptyIfNull(order.getCustomerName())),
+        LOCATION("COALESCE(o.deliveryAddress, '')", order -> emptyIfNull(order.getLocation())),
+        PRODUCT("COALESCE(p.name, '')", order -> emptyIfNull(order.getProductName())),
+        QUANTITY("o.quantity", Order::getQuantity),
+        STATUS("o.status", order -> order.getStatus().getLabel()),
+        DATE("o.orderDate", order -> Timestamp.valueOf(order.getOrderDate()));
+
+        private final String column;
+        private final Function<Order, Object> value;
+
+        SortKey(String column, Function<Order, Object> value) {
+            this.column = column;
+            this.value = value;
+        }
+    }
+
+    private static final String ORDER_COLUMNS =
+            "SELECT o.id, c.name AS customerName, o.deliveryAddress, p.name AS productName, o.quantity, " +
+                    "o.unitPrice, o.status, o.orderDate ";
+    // Orders carry their farmer's id so the list can be filtered and ordered from one index
+    private static final String FARMER_ORDERS_FROM =
+            "FROM Orders o JOIN Product p ON p.id = o.productId JOIN Customer c ON c.id = o.customerId " +
+                    "WHERE o.farmerId = ?";
+    private static final String TEXT_FILTER =
+            " AND (LOWER(c.name) LIKE ? OR LOWER(p.name) LIKE ? OR LOWER(o.status) LIKE ? " +
+                    "OR LOWER(o.deliveryAddress) LIKE ?)";
+
+    private static final List<String> FARMER_ORDER_TABLES = List.of("Orders", "Product", "Customer");
+    private static final String FARMER_ORDERS_SQL =
+            ORDER_COLUMNS + FARMER_ORDERS_FROM + " ORDER BY o.orderDate DESC, o.id DESC LIMIT ?";
+
+    private static final String EXPORT_SQL =
+            "SELECT o.id AS \"order_id\", o.orderDate AS \"order_date\", c.name AS \"customer\", " +
+                    "o.deliveryAddress AS \"delivery_address\", p.name AS \"product\", o.quantity AS \"quantity\", " +
+                    "o.unitPrice AS \"unit_price\", o.quantity * o.unitPrice AS \"total\", o.status AS \"status\" " +
+                    "FROM Orders o JOIN Product p ON p.id = o.productId JOIN Customer c ON c.id = o.customerId " +
+                    "WHERE o.farmerId = ? ORDER BY o.id";
+
+    private static final List<String> SUMMARY_TABLES = List.of("Orders", "Product");
+    private static final String SUMMARY_SQL =
+            "SELECT COALESCE(SUM(CASE WHEN o.status = '" + OrderStatus.PENDING.getLabel() + "' THEN 1 ELSE 0 END), 0) " +
+                    "AS pending, " +
+                    "COALESCE(SUM(CASE WHEN o.status = '" + OrderStatus.DELIVERED.getLabel() + "' THEN 1 ELSE 0 END), 0) " +
+                    "AS fulfilled " +
+                    "FROM Orders o WHERE o.farmerId = ?";
+
+    private static final List<String> CUSTOMER_ORDER_TABLES = List.of("Orders", "Product", "Farmer");
+    private static final String CUSTOMER_ORDERS_SQL =
+            "SELECT o.id, f.farmName AS customerName, o.deliveryAddress, p.name AS productName, o.quantity, " +
+                    "o.unitPrice, o.status, o.orderDate " +
+                    "FROM Orders o JOIN Product p ON p.id = o.productId LEFT JOIN Farmer f ON f.id = o.farmerId " +
+                    "WHERE o.customerId = ? ORDER BY o.customerId, o.orderDate DESC, o.id DESC LIMIT ?";
+
+    private static final String STATUS_CHANGES_SQL =
+            "SELECT h.id, h.orderId, p.name AS productName, h.fromStatus, h.toStatus, h.changedAt " +
+                    "FROM OrderStatusChange h JOIN Orders o ON o.id = h.orderId JOIN Product p ON p.id = o.productId " +
+                    "WHERE h.customerId = ? AND h.id > ? ORDER BY h.id LIMIT ?";
+
+    // Order counts for one farmer, Delivered counting as fulfilled; revenue comes from
+    // RevenueRollupStore
+    public static final class Summary {
+        private final int pending;
+        private final int fulfilled;
+
+        private Summary(int pending, int fulfilled) {
+            this.pending = pending;
+            this.fulfilled = fulfilled;
+        }
+
+        public int getPending() {
+            return pending;
+        }
+
+        public int getFulfilled() {
+            return fulfilled;
+        }
+    }
+
+    // Outcome of a status change over several orders
+    public static final class StatusUpdate {
+        private final List<Long> changed = new ArrayList<>();
+        private final List<Long> refused = new ArrayList<>();
+        // Changed order id -> the customer who placed it
+        private final Map<Long, Long> customers = new HashMap<>();
+
+        public List<Long> getChanged() {
+            return changed;
+        }
+
+        public long getCustomerId(long orderId) {
+            return customers.get(orderId);
+        }
+
+        // Orders that were not found, or whose status cannot make the move
+        public List<Long> getRefused() {
+            return refused;
+        }
+    }
+
+    // One step in an order's history, as shown to the customer
+    public static final class StatusChange {
+        private final long id;
+        private final long orderId;
+        private final String productName;
+        private final OrderStatus from;
+        private final OrderStatus to;
+        private final LocalDateTime changedAt;
+
+        private StatusChange(long id, long orderId, String productName, OrderStatus from, OrderStatus to,
+                LocalDateTime changedAt) {
+            this.id = id;
+            this.orderId = orderId;
+            this.productName = productName;
+            this.from = from;
+            this.to = to;
+            this.changedAt = changedAt;
+        }
+
+        // Increasing; pass the last one seen to statusChangesForCustomer for newer changes
+        public long getId() {
+            return id;
+        }
+
+        public long getOrderId() {
+            return orderId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public OrderStatus getFrom() {
+            return from;
+        }
+
+        public OrderStatus getTo() {
+            return to;
+        }
+
+        public LocalDateTime getChangedAt() {
+            return changedAt;
+        }
+    }
+
+    private final Connection connection;
+    private final QueryCache queryCache;
+
+    public OrderStore(QueryCache queryCache) throws SQLException {
+        this.connection = Database.open();
+        this.queryCache = queryCache;
+        try (Statement st = connection.createStatement()) {
+            // Price and address are copied at checkout so later product edits do not rewrite history
+            st.execute("ALTER TABLE Orders ADD COLUMN IF NOT EXISTS unitPrice DOUBLE");
+            st.execute("ALTER TABLE Orders ADD COLUMN IF NOT EXISTS deliveryAddress VARCHAR(255)");
+            st.execute("ALTER TABLE Orders ADD COLUMN IF NOT EXISTS farmerId BIGINT");
+            // Orders placed before the column existed
+            st.execute("UPDATE Orders o SET farmerId = (SELECT p.farmerId FROM Product p WHERE p.id = o.productId) " +
+                    "WHERE o.farmerId IS NULL AND o.productId IS NOT NULL");
+            // The order list reads its pages straight off these in either direction; the
+            // product index narrows counts when the list is filtered to one product
+            for (String column : List.of("orderDate", "status", "quantity")) {
+                String name = "idx_orders_farmer_" + column.toLowerCase();
+                st.execute("CREATE INDEX IF NOT EXISTS " + name + " ON Orders (farmerId, " + column + ", id)");
+                st.execute("CREATE INDEX IF NOT EXISTS " + name + "_desc ON Orders (farmerId, " + column +
+                        " DESC, id DESC)");
+            }
+            st.execute("CREATE INDEX IF NOT EXISTS idx_orders_farmer_product ON Orders (farmerId, productId)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_orders_customer ON Orders (customerId, orderDate DESC, id DESC)");
+            st.execute("UPDATE Orders SET status = '" + OrderStatus.DELIVERED.getLabel() + "' WHERE status = 'Fulfilled'");
+            // Every status change after placement, for the customer's order history
+            st.execute("CREATE TABLE IF NOT EXISTS OrderStatusChange (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "orderId BIGINT, " +
+                    "customerId BIGINT, " +
+                    "fromStatus VARCHAR(50), " +
+                    "toStatus VARCHAR(50), " +
+                    "changedAt TIMESTAMP, " +
+                    "FOREIGN KEY (orderId) REFERENCES Orders(id)" +
+                    ")");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_status_change_customer ON OrderStatusChange (customerId, id)");
+            RevenueRollupStore.createTable(st);
+        }
+    }
+
+    // Inserts every saved product in the cart as a pending order, all or nothing. Returns the
+    // number of order rows written. Revenue is only counted once the farmer accepts.
+    public int placeOrder(String customerId, String deliveryAddress, List<CartItem> items) throws SQLException {
+        LocalDateTime now = LocalDateTime.now();
+        int placed = 0;
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO Orders (customerId, productId, farmerId, quantity, unitPrice, deliveryAddress, " +
+                            "orderDate, status) VALUES (?, ?, ?, ?, ?, ?, ?, ?)")) {
+                for (CartItem item : items) {
+                    List<Long> productId = item.getProductId() == null
+                            ? List.of() : Database.parseIds(List.of(item.getProductId()));
+                    if (productId.isEmpty()) {
+                        // Sample cards have no product row to order against
+                        continue;
+                    }
+                    Long farmerId = farmerIdOf(productId.get(0));
+                    ps.setLong(1, Long.parseLong(customerId));
+                    ps.setLong(2, productId.get(0));
+                    ps.setObject(3, farmerId);
+                    ps.setInt(4, item.getQuantity());
+                    ps.setDouble(5, item.getPrice());
+                    ps.setString(6, deliveryAddress);
+                    ps.setTimestamp(7, Timestamp.valueOf(now));
+                    ps.setString(8, OrderStatus.PENDING.getLabel());
+                    ps.addBatch();
+                    placed++;
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        queryCache.bump("Orders");
+        return placed;
+    }
+
+    // Moves the farmer's orders to 'status' in one transaction. Orders that cannot make the
+    // move are left alone and reported as refused; the rest change together or not at all.
+    // Accepting adds an order to the revenue rollups, and cancelling an accepted order takes
+    // it back out, in the same transaction.
+    public StatusUpdate changeStatusForFarmer(String farmerId, Collection<Long> orderIds, OrderStatus status)
+            throws SQLException {
+        return changeStatus("farmerId", Long.parseLong(farmerId), orderIds, status);
+    }
+
+    // A customer calling off one of their own orders, while its status still allows it
+    public boolean cancelForCustomer(String customerId, long orderId) throws SQLException {
+        return !changeStatus("customerId", Long.parseLong(customerId), List.of(orderId), OrderStatus.CANCELLED)
+                .getChanged().isEmpty();
+    }
+
+    // The customer's most recent orders; the farm name is carried in customerName
+    public List<Order> findForCustomer(String customerId, int limit) throws SQLException {
+        long id = Long.parseLong(customerId);
+        return queryCache.get(CUSTOMER_ORDERS_SQL, List.of(id, limit), CUSTOMER_ORDER_TABLES, Order::new, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(CUSTOMER_ORDERS_SQL)) {
+                    ps.setLong(1, id);
+                    ps.setInt(2, limit);
+                    return readOrders(ps);
+                }
+            }
+        });
+    }
+
+    // Status changes to the customer's orders after the change with id 'afterId', oldest first
+    public List<StatusChange> statusChangesForCustomer(String customerId, long afterId, int limit)
+            throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(STATUS_CHANGES_SQL)) {
+                ps.setLong(1, Long.parseLong(customerId));
+                ps.setLong(2, afterId);
+                ps.setInt(3, limit);
+                List<StatusChange> changes = new ArrayList<>();
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        changes.add(new StatusChange(rs.getLong("id"), rs.getLong("orderId"),
+                                rs.getString("productName"), OrderStatus.fromLabel(rs.getString("fromStatus")),
+                                OrderStatus.fromLabel(rs.getString("toStatus")),
+                                rs.getTimestamp("changedAt").toLocalDateTime()));
+                    }
+                }
+                return changes;
+            }
+        }
+    }
+
+    // Id of the customer's newest status change, or 0; changes after it are news
+    public long latestStatusChangeId(String customerId) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT COALESCE(MAX(id), 0) FROM OrderStatusChange WHERE customerId = ?")) {
+                ps.setLong(1, Long.parseLong(customerId));
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    return rs.getLong(1);
+                }
+            }
+        }
+    }
+
+    // Every order of the farmer's with one of the given statuses, oldest first
+    public List<Order> findForFarmerByStatus(String farmerId, Collection<OrderStatus> statuses) throws SQLException {
+        List<String> labels = new ArrayList<>();
+        for (OrderStatus status : statuses) {
+            labels.add(status.getLabel());
+        }
+        OrderQuery query = new OrderQuery();
+        query.setStatuses(labels);
+        query.setSort(SortKey.DATE, true);
+        return pageForFarmer(farmerId, query, 0, Integer.MAX_VALUE);
+    }
+
+    // The farmer's orders among 'orderIds'; ids of other farmers' orders are skipped
+    public List<Order> findForFarmerByIds(String farmerId, Collection<Long> orderIds) throws SQLException {
+        if (orderIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        List<Object> params = new ArrayList<>();
+        params.add(Long.parseLong(farmerId));
+        params.addAll(orderIds);
+        return readPage(ORDER_COLUMNS + FARMER_ORDERS_FROM + " AND o.id IN (" +
+                Database.placeholders(orderIds.size()) + ")", params);
+    }
+
+    // Most recent orders for any of this farmer's products
+    public List<Order> findForFarmer(String farmerId, int limit) throws SQLException {
+        long id = Long.parseLong(farmerId);
+        return queryCache.get(FARMER_ORDERS_SQL, List.of(id, limit), FARMER_ORDER_TABLES, Order::new, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(FARMER_ORDERS_SQL)) {
+                    ps.setLong(1, id);
+                    ps.setInt(2, limit);
+                    return readOrders(ps);
+                }
+            }
+        });
+    }
+
+    // Streams every order for this farmer's products, oldest first; see Database.stream
+    public long exportForFarmer(String farmerId, RowSink sink) throws SQLException, IOException {
+        return Database.stream(EXPORT_SQL, List.of(Long.parseLong(farmerId)), sink);
+    }
+
+    // Orders matching the query's filters, for sizing a paged list. Cached, since a count
+    // has to visit every matching row and the list asks again on each re-sort.
+    public int countForFarmer(String farmerId, OrderQuery query) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT COUNT(*) " + FARMER_ORDERS_FROM + whereClause(farmerId, query, params);
+        return queryCache.get(sql, params, FARMER_ORDER_TABLES, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    bind(ps, params);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return List.of(rs.getInt(1));
+                    }
+                }
+            }
+        }).get(0);
+    }
+
+    // Rows [offset, offset + limit) of the farmer's orders. The database still steps over
+    // the skipped rows, so this is for jumping into the middle of the list; use pageAfter
+    // to carry on from a page already read. Pages are read straight from the database
+    // rather than the query cache; there are too many distinct pages to be worth it.
+    public List<Order> pageForFarmer(String farmerId, OrderQuery query, int offset, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = ORDER_COLUMNS + FARMER_ORDERS_FROM + whereClause(farmerId, query, params) +
+                orderByClause(query.getSort(), query.isAscending()) + " LIMIT ? OFFSET ?";
+        params.add(limit);
+        params.add(offset);
+        return readPage(sql, params);
+    }
+
+    // Just the ids of rows [offset, offset + limit) of the query, e.g. for selected table rows
+    // whose page is not loaded
+    public List<Long> idsForFarmer(String farmerId, OrderQuery query, int offset, int limit) throws SQLException {
+        List<Object> params = new ArrayList<>();
+        String sql = "SELECT o.id " + FARMER_ORDERS_FROM + whereClause(farmerId, query, params) +
+                orderByClause(query.getSort(), query.isAscending()) + " LIMIT ? OFFSET ?";
+        params.add(limit);
+        params.add(offset);
+        List<Long> ids = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                bind(ps, params);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        ids.add(rs.getLong(1));
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    // The 'limit' orders that follow 'last' in the query's order. Starts from last's sort
+    // value and id rather than counting rows, so reading deep into the list costs the same
+    // as reading its first page.
+    public List<Order> pageAfter(String farmerId, OrderQuery query, Order last, int limit) throws SQLException {
+        return pageFrom(farmerId, query, last, true, limit);
+    }
+
+    // The 'limit' orders that come just before 'first' in the query's order, in that order
+    public List<Order> pageBefore(String farmerId, OrderQuery query, Order first, int limit) throws SQLException {
+        List<Order> page = pageFrom(farmerId, query, first, false, limit);
+        Collections.reverse(page);
+        return page;
+    }
+
+    private List<Order> pageFrom(String farmerId, OrderQuery query, Order anchor, boolean forward, int limit)
+            throws SQLException {
+        List<Object> params = new ArrayList<>();
+        boolean ascending = query.isAscending() == forward;
+        String column = query.getSort().column;
+        String comparison = ascending ? ">" : "<";
+        Object value = query.getSort().value.apply(anchor);
+        // The first condition is a plain range on the sort column, which an index can seek to
+        String sql = ORDER_COLUMNS + FARMER_ORDERS_FROM + whereClause(farmerId, query, params) +
+                " AND " + column + " " + comparison + "= ? AND (" + column + " " + comparison + " ? OR o.id " +
+                comparison + " ?)" + orderByClause(query.getSort(), ascending) + " LIMIT ?";
+        params.add(value);
+        params.add(value);
+        params.add(anchor.getId());
+        params.add(limit);
+        return readPage(sql, params);
+    }
+
+    public Summary summarizeForFarmer(String farmerId) throws SQLException {
+        long id = Long.parseLong(farmerId);
+        List<Summary> rows = queryCache.get(SUMMARY_SQL, List.of(id), SUMMARY_TABLES, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(SUMMARY_SQL)) {
+                    ps.setLong(1, id);
+                    try (ResultSet rs = ps.executeQuery()) {
+                        rs.next();
+                        return List.of(new Summary(rs.getInt("pending"), rs.getInt("fulfilled")));
+                    }
+                }
+            }
+        });
+        return rows.get(0);
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close order store: " + e.getMessage());
+        }
+    }
+
+    private List<Order> readPage(String sql, List<Object> params) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                bind(ps, params);
+                return readOrders(ps);
+            }
+        }
+    }
+
+    // Conditions after the farmer id, adding their values to 'params'
+    private static String whereClause(String farmerId, OrderQuery query, List<Object> params) {
+        StringBuilder where = new StringBuilder();
+        params.add(Long.parseLong(farmerId));
+        if (!query.getStatuses().isEmpty()) {
+            where.append(" AND o.status IN (");
+            for (String status : query.getStatuses()) {
+                where.append(params.size() > 1 ? ", ?" : "?");
+                params.add(status);
+            }
+            where.append(')');
+        }
+        if (query.getProductId() != null) {
+            where.append(" AND o.productId = ?");
+            params.add(query.getProductId());
+        }
+        if (query.getFrom() != null) {
+            where.append(" AND o.orderDate >= ?");
+            params.add(Timestamp.valueOf(query.getFrom().atStartOfDay()));
+        }
+        if (query.getTo() != null) {
+            where.append(" AND o.orderDate < ?");
+            params.add(Timestamp.valueOf(query.getTo().plusDays(1).atStartOfDay()));
+        }
+        if (!query.getLocation().isEmpty()) {
+            where.append(" AND LOWER(o.deliveryAddress) LIKE ?");
+            params.add(likePattern(query.getLocation()));
+        }
+        if (!query.getText().isEmpty()) {
+            where.append(TEXT_FILTER);
+            String pattern = likePattern(query.getText());
+            for (int i = 0; i < 4; i++) {
+                params.add(pattern);
+            }
+        }
+        return where.toString();
+    }
+
+    private static String orderByClause(SortKey sort, boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        // Leading with the farmer id, fixed by the WHERE clause, lets H2 match the index order
+        return " ORDER BY o.farmerId, " + sort.column + direction + ", o.id" + direction;
+    }
+
+    private static String likePattern(String text) {
+        return "%" + text.toLowerCase().replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+    }
+
+    private static void bind(PreparedStatement ps, List<Object> params) throws SQLException {
+        for (int i = 0; i < params.size(); i++) {
+            ps.setObject(i + 1, params.get(i));
+        }
+    }
+
+    private static String emptyIfNull(String text) {
+        return text == null ? "" : text;
+    }
+
+    // 'owner' is the Orders column the caller must match, so nobody moves another's orders
+    private StatusUpdate changeStatus(String owner, long ownerId, Collection<Long> orderIds, OrderStatus status)
+            throws SQLException {
+        StatusUpdate update = new StatusUpdate();
+        if (orderIds.isEmpty()) {
+            return update;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> found = new HashSet<>();
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT id, customerId, farmerId, productId, quantity, unitPrice, status, orderDate FROM Orders " +
+                            "WHERE " + owner + " = ? AND id IN (" + Database.placeholders(orderIds.size()) + ") " +
+                            "FOR UPDATE");
+                    PreparedStatement change = connection.prepareStatement(
+                            "UPDATE Orders SET status = ? WHERE id = ?");
+                    PreparedStatement history = connection.prepareStatement(
+                            "INSERT INTO OrderStatusChange (orderId, customerId, fromStatus, toStatus, changedAt) " +
+                                    "VALUES (?, ?, ?, ?, ?)")) {
+                select.setLong(1, ownerId);
+                int index = 2;
+                for (long id : orderIds) {
+                    select.setLong(index++, id);
+                }
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        long id = rs.getLong("id");
+                        found.add(id);
+                        OrderStatus from = OrderStatus.fromLabel(rs.getString("status"));
+                        if (!from.canBecome(status)) {
+                            update.refused.add(id);
+                            continue;
+                        }
+                        change.setString(1, status.getLabel());
+                        change.setLong(2, id);
+                        change.addBatch();
+                        history.setLong(1, id);
+                        history.setLong(2, rs.getLong("customerId"));
+                        history.setString(3, from.getLabel());
+                        history.setString(4, status.getLabel());
+                        history.setTimestamp(5, Timestamp.valueOf(now));
+                        history.addBatch();
+                        if (status.isCounted() != from.isCounted() && rs.getObject("farmerId") != null) {
+                            int quantity = status.isCounted() ? rs.getInt("quantity") : -rs.getInt("quantity");
+                            RevenueRollupStore.record(connection, rs.getLong("farmerId"), rs.getLong("productId"),
+                                    rs.getTimestamp("orderDate").toLocalDateTime(),
+                                    quantity * rs.getDouble("unitPrice"), quantity);
+                        }
+                        update.changed.add(id);
+                        update.customers.put(id, rs.getLong("customerId"));
+                    }
+                }
+                change.executeBatch();
+                history.executeBatch();
+                connection.commit();
+            } catch (SQLException | IllegalArgumentException e) {
+                connection.rollback();
+                update.changed.clear();
+                update.customers.clear();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        for (long id : orderIds) {
+            if (!found.contains(id)) {
+                update.refused.add(id);
+            }
+        }
+        if (!update.changed.isEmpty()) {
+            queryCache.bump("Orders");
+        }
+        return update;
+    }
+
+    private Long farmerIdOf(long productId) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement("SELECT farmerId FROM Product WHERE id = ?")) {
+            ps.setLong(1, productId);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : null;
+            }
+        }
+    }
+
+    private static List<Order> readOrders(PreparedStatement ps) throws SQLException {
+        List<Order> orders = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Timestamp orderDate = rs.getTimestamp("orderDate");
+                orders.add(new Order(
+                        rs.getLong("id"),
+                        rs.getString("customerName"),
+                        rs.getString("deliveryAddress"),
+                        rs.getString("productName"),
+                        rs.getInt("quantity"),
+                        rs.getDouble("unitPrice"),
+                        OrderStatus.fromLabel(rs.getString("status")),
+                        orderDate != null ? orderDate.toLocalDateTime() : null));
+            }
+        }
+        return orders;
+    }
+}
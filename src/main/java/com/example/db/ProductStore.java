@@ -0,0 +1,323 @@
+package com.example.db;
+
+import com.example.models.Product;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Saved products. The model's id is the row id as a string once a product is inserted.
+// Catalog reads are served from the shared QueryCache until a write bumps the Product table.
+public class ProductStore {
+    private static final List<String> PRODUCT_TABLES = List.of("Product");
+    private static final String BY_FARMER_SQL = "SELECT * FROM Product WHERE farmerId = ? ORDER BY id";
+    private static final String NEWEST_SQL = "SELECT * FROM Product WHERE quantity > 0 ORDER BY id DESC LIMIT ?";
+    private static final String EXPORT_SQL =
+            "SELECT id AS \"product_id\", name AS \"name\", description AS \"description\", price AS \"price\", " +
+                    "unit AS \"unit\", quantity AS \"quantity\", createdAt AS \"created_at\" " +
+                    "FROM Product WHERE farmerId = ? ORDER BY id";
+
+    private final Connection connection;
+    private final QueryCache queryCache;
+
+    public ProductStore(QueryCache queryCache) throws SQLException {
+        this.connection = Database.open();
+        this.queryCache = queryCache;
+        try (Statement st = connection.createStatement()) {
+            st.execute("ALTER TABLE Product ADD COLUMN IF NOT EXISTS createdAt TIMESTAMP");
+            // Products of a given set of farms, e.g. the ones near a customer
+            st.execute("CREATE INDEX IF NOT EXISTS idx_product_farmer ON Product (farmerId, id)");
+        }
+    }
+
+    public void insert(Product product) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO Product (name, price, description, unit, quantity, farmerId, imagePath, createdAt) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                ps.setString(1, product.getName());
+                ps.setDouble(2, product.getPrice());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getUnit());
+                ps.setInt(5, product.getQuantity());
+                ps.setLong(6, Long.parseLong(product.getFarmerId()));
+                ps.setString(7, product.getImagePath());
+                ps.setTimestamp(8, Timestamp.valueOf(product.getCreatedAt()));
+                ps.executeUpdate();
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    keys.next();
+                    product.setId(String.valueOf(keys.getLong(1)));
+                }
+            }
+        }
+        queryCache.bump("Product");
+    }
+
+    // Inserts all the products in one transaction with a single batched statement and sets
+    // their ids; keep lists to a size that makes a reasonable transaction
+    public void insertAll(List<Product> products) throws SQLException {
+        if (products.isEmpty()) {
+            return;
+        }
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "INSERT INTO Product (name, price, description, unit, quantity, farmerId, imagePath, createdAt) " +
+                            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+                    Statement.RETURN_GENERATED_KEYS)) {
+                for (Product product : products) {
+                    ps.setString(1, product.getName());
+                    ps.setDouble(2, product.getPrice());
+                    ps.setString(3, product.getDescription());
+                    ps.setString(4, product.getUnit());
+                    ps.setInt(5, product.getQuantity());
+                    ps.setLong(6, Long.parseLong(product.getFarmerId()));
+                    ps.setString(7, product.getImagePath());
+                    ps.setTimestamp(8, Timestamp.valueOf(product.getCreatedAt()));
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                List<String> ids = new ArrayList<>(products.size());
+                try (ResultSet keys = ps.getGeneratedKeys()) {
+                    while (keys.next()) {
+                        ids.add(String.valueOf(keys.getLong(1)));
+                    }
+                }
+                if (ids.size() != products.size()) {
+                    throw new SQLException("Expected " + products.size() + " generated ids, got " + ids.size());
+                }
+                connection.commit();
+                for (int i = 0; i < products.size(); i++) {
+                    products.get(i).setId(ids.get(i));
+                }
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        queryCache.bump("Product");
+    }
+
+    public void update(Product product) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "UPDATE Product SET name = ?, price = ?, description = ?, unit = ?, quantity = ? WHERE id = ?")) {
+                ps.setString(1, product.getName());
+                ps.setDouble(2, product.getPrice());
+                ps.setString(3, product.getDescription());
+                ps.setString(4, product.getUnit());
+                ps.setInt(5, product.getQuantity());
+                ps.setLong(6, Long.parseLong(product.getId()));
+                ps.executeUpdate();
+            }
+        }
+        queryCache.bump("Product");
+    }
+
+    // The bulk edits below each change one column of many products in one statement, from
+    // the row's own current value, so stock sold or prices changed meanwhile by another
+    // client or a flash-sale flush are kept. They return the products as saved, id -> product.
+
+    // Multiplies prices by 'factor', rounded to whole cents
+    public Map<String, Product> scalePrices(Collection<String> ids, double factor) throws SQLException {
+        return updateColumn(ids, "price = ROUND(price * CAST(? AS DOUBLE), 2)", factor);
+    }
+
+    public Map<String, Product> setQuantities(Collection<String> ids, int quantity) throws SQLException {
+        return updateColumn(ids, "quantity = CAST(? AS INT)", quantity);
+    }
+
+    // Adds 'delta' to the stock, stopping at zero
+    public Map<String, Product> adjustQuantities(Collection<String> ids, int delta) throws SQLException {
+        return updateColumn(ids,
+                "quantity = CAST(LEAST(GREATEST(CAST(quantity AS BIGINT) + CAST(? AS BIGINT), 0), 2147483647) AS INT)",
+                delta);
+    }
+
+    public Map<String, Product> setUnits(Collection<String> ids, String unit) throws SQLException {
+        return updateColumn(ids, "unit = CAST(? AS VARCHAR)", unit);
+    }
+
+    // Deletes all or none of the products, e.g. none if one of them has orders
+    public void deleteAll(Collection<String> ids) throws SQLException {
+        List<Long> rowIds = Database.parseIds(ids);
+        if (rowIds.isEmpty()) {
+            return;
+        }
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM Product WHERE id = ?")) {
+                for (Long id : rowIds) {
+                    ps.setLong(1, id);
+                    ps.addBatch();
+                }
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        queryCache.bump("Product");
+    }
+
+    public void delete(String id) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement("DELETE FROM Product WHERE id = ?")) {
+                ps.setLong(1, Long.parseLong(id));
+                ps.executeUpdate();
+            }
+        }
+        queryCache.bump("Product");
+    }
+
+    public List<Product> findByFarmer(String farmerId) throws SQLException {
+        long id = Long.parseLong(farmerId);
+        return queryCache.get(BY_FARMER_SQL, List.of(id), PRODUCT_TABLES, Product::new, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(BY_FARMER_SQL)) {
+                    ps.setLong(1, id);
+                    return readProducts(ps);
+                }
+            }
+        });
+    }
+
+    // Streams every product of this farmer; see Database.stream
+    public long exportForFarmer(String farmerId, RowSink sink) throws SQLException, IOException {
+        return Database.stream(EXPORT_SQL, List.of(Long.parseLong(farmerId)), sink);
+    }
+
+    // Newest products across all farms, for the customer catalog
+    public List<Product> findNewest(int limit) throws SQLException {
+        return queryCache.get(NEWEST_SQL, List.of(limit), PRODUCT_TABLES, Product::new, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(NEWEST_SQL)) {
+                    ps.setInt(1, limit);
+                    return readProducts(ps);
+                }
+            }
+        });
+    }
+
+    // The newest in-stock products of any of these farmers, newest first
+    public List<Product> findNewestByFarmers(Collection<Long> farmerIds, int limit) throws SQLException {
+        if (farmerIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        String sql = "SELECT * FROM Product WHERE quantity > 0 AND farmerId IN ("
+                + Database.placeholders(farmerIds.size()) + ") ORDER BY id DESC LIMIT ?";
+        List<Object> params = new ArrayList<>(farmerIds);
+        params.add(limit);
+        return queryCache.get(sql, params, PRODUCT_TABLES, Product::new, () -> {
+            synchronized (connection) {
+                try (PreparedStatement ps = connection.prepareStatement(sql)) {
+                    for (int i = 0; i < params.size(); i++) {
+                        ps.setObject(i + 1, params.get(i));
+                    }
+                    return readProducts(ps);
+                }
+            }
+        });
+    }
+
+    // Runs "UPDATE Product SET <assignment>" on the products and reads them back in the same
+    // transaction, so the rows returned are exactly what was saved
+    private Map<String, Product> updateColumn(Collection<String> ids, String assignment, Object value)
+            throws SQLException {
+        List<Long> rowIds = Database.parseIds(ids);
+        Map<String, Product> saved = new HashMap<>();
+        if (rowIds.isEmpty()) {
+            return saved;
+        }
+        String in = " WHERE id IN (" + Database.placeholders(rowIds.size()) + ")";
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (PreparedStatement update = connection.prepareStatement("UPDATE Product SET " + assignment + in);
+                    PreparedStatement select = connection.prepareStatement("SELECT * FROM Product" + in)) {
+                update.setObject(1, value);
+                for (int i = 0; i < rowIds.size(); i++) {
+                    update.setLong(i + 2, rowIds.get(i));
+                    select.setLong(i + 1, rowIds.get(i));
+                }
+                update.executeUpdate();
+                for (Product product : readProducts(select)) {
+                    saved.put(product.getId(), product);
+                }
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+        queryCache.bump("Product");
+        return saved;
+    }
+
+    // One query for any number of products: id -> product for the ids that exist
+    public Map<String, Product> findByIds(Collection<String> ids) throws SQLException {
+        List<Long> numericIds = Database.parseIds(ids);
+        Map<String, Product> products = new HashMap<>();
+        if (numericIds.isEmpty()) {
+            return products;
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT * FROM Product WHERE id IN (" + Database.placeholders(numericIds.size()) + ")")) {
+                for (int i = 0; i < numericIds.size(); i++) {
+                    ps.setLong(i + 1, numericIds.get(i));
+                }
+                for (Product product : readProducts(ps)) {
+                    products.put(product.getId(), product);
+                }
+            }
+        }
+        return products;
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close product store: " + e.getMessage());
+        }
+    }
+
+    private static List<Product> readProducts(PreparedStatement ps) throws SQLException {
+        List<Product> products = new ArrayList<>();
+        try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                Product product = new Product(
+                        rs.getString("name"),
+                        rs.getDouble("price"),
+                        rs.getString("description"),
+                        rs.getString("unit"),
+                        rs.getInt("quantity"),
+                        String.valueOf(rs.getLong("farmerId")));
+                product.setId(String.valueOf(rs.getLong("id")));
+                product.setImagePath(rs.getString("imagePath"));
+                Timestamp createdAt = rs.getTimestamp("createdAt");
+                product.setCreatedAt(createdAt != null ? createdAt.toLocalDateTime() : LocalDateTime.now());
+                products.add(product);
+            }
+        }
+        return products;
+    }
+}
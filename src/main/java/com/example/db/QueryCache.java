@@ -0,0 +1,147 @@
+package com.example.db;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.UnaryOperator;
+
+// Results of read queries keyed by SQL text and parameters. Every table has a version
+// counter that the stores bump after each write; a cached result remembers the versions of
+// the tables it read and is served only while none of them has moved. Writes to unrelated
+// tables therefore never evict anything. Rows of mutable types are handed out as copies,
+// so a caller editing its rows cannot change what the next caller is served.
+public class QueryCache {
+    private final int capacity;
+    private final Map<String, AtomicLong> versions = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+    private final Map<String, Entry> entries;
+
+    public interface Query<T> {
+        List<T> run() throws SQLException;
+    }
+
+    private static final class Entry {
+        private final List<?> rows;
+        private final String[] tables;
+        private final long[] versions;
+
+        private Entry(List<?> rows, String[] tables, long[] versions) {
+            this.rows = rows;
+            this.tables = tables;
+            this.versions = versions;
+        }
+    }
+
+    public QueryCache(int capacity) {
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > QueryCache.this.capacity;
+            }
+        };
+    }
+
+    // Returns the cached rows for (sql, params) if none of 'tables' changed since they were
+    // read, otherwise runs 'query' and caches what it returns. For immutable rows only; the
+    // list must not be modified.
+    public <T> List<T> get(String sql, List<?> params, Collection<String> tables, Query<T> query) throws SQLException {
+        return get(sql, params, tables, null, query);
+    }
+
+    // As above for mutable rows: the caller gets its own list of copies made with 'copy',
+    // and may change them and the list freely
+    public <T> List<T> get(String sql, List<?> params, Collection<String> tables, UnaryOperator<T> copy,
+            Query<T> query) throws SQLException {
+        List<T> rows = cached(sql, params, tables, query);
+        if (copy == null) {
+            return rows;
+        }
+        List<T> copies = new ArrayList<>(rows.size());
+        for (T row : rows) {
+            copies.add(copy.apply(row));
+        }
+        return copies;
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> List<T> cached(String sql, List<?> params, Collection<String> tables, Query<T> query)
+            throws SQLException {
+        String key = sql + '\u0000' + params;
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            if (isCurrent(entry)) {
+                hits.increment();
+                return (List<T>) entry.rows;
+            }
+            invalidations.increment();
+        }
+        misses.increment();
+
+        // Versions are read before the query, so a write that races with it leaves the entry
+        // already stale instead of caching a result that missed the write
+        String[] names = tables.toArray(new String[0]);
+        long[] seen = new long[names.length];
+        for (int i = 0; i < names.length; i++) {
+            seen[i] = version(names[i]);
+        }
+        List<T> rows = Collections.unmodifiableList(query.run());
+        synchronized (entries) {
+            entries.put(key, new Entry(rows, names, seen));
+        }
+        return rows;
+    }
+
+    // Called by the stores after every write to these tables
+    public void bump(String... tables) {
+        for (String table : tables) {
+            versions.computeIfAbsent(table, k -> new AtomicLong()).incrementAndGet();
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    // Misses caused by a dependent table changing, as opposed to never having been cached
+    public long getInvalidations() {
+        return invalidations.sum();
+    }
+
+    @Override
+    public String toString() {
+        long total = getHits() + getMisses();
+        return String.format("hits=%d misses=%d invalidations=%d hitRate=%.1f%%", getHits(), getMisses(),
+                getInvalidations(), total == 0 ? 0.0 : 100.0 * getHits() / total);
+    }
+
+    private long version(String table) {
+        AtomicLong version = versions.get(table);
+        return version == null ? 0 : version.get();
+    }
+
+    private boolean isCurrent(Entry entry) {
+        for (int i = 0; i < entry.tables.length; i++) {
+            if (version(entry.tables[i]) != entry.versions[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
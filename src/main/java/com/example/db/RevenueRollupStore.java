@@ -0,0 +1,380 @@
+package com.example.db;
+
+import com.example.models.OrderStatus;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Pre-aggregated revenue per farmer, in hour, day and month buckets, plus month buckets per
+// product. OrderStore adds an order line to its buckets in the same transaction that
+// accepts the order, so reading revenue never touches Orders. Hour buckets are only kept for
+// HOUR_RETENTION_DAYS; they exist to make sliding windows exact at the edges.
+public class RevenueRollupStore {
+    public static final int HOUR_RETENTION_DAYS = 31;
+
+    // Product id used for buckets that cover all of a farmer's products
+    private static final long ALL_PRODUCTS = 0;
+    // Bumped when what the rollups count changes, so existing ones are rebuilt once. 2: only
+    // accepted orders count, where pending ones used to.
+    private static final int ROLLUP_VERSION = 2;
+
+    public enum Grain {
+        HOUR("H", "HOUR"), DAY("D", "DAY"), MONTH("M", "MONTH");
+
+        private final String code;
+        private final String truncUnit;
+
+        Grain(String code, String truncUnit) {
+            this.code = code;
+            this.truncUnit = truncUnit;
+        }
+
+        public LocalDateTime bucketStart(LocalDateTime time) {
+            switch (this) {
+                case HOUR:
+                    return time.truncatedTo(ChronoUnit.HOURS);
+                case DAY:
+                    return time.truncatedTo(ChronoUnit.DAYS);
+                default:
+                    return time.truncatedTo(ChronoUnit.DAYS).withDayOfMonth(1);
+            }
+        }
+
+        LocalDateTime next(LocalDateTime bucketStart) {
+            switch (this) {
+                case HOUR:
+                    return bucketStart.plusHours(1);
+                case DAY:
+                    return bucketStart.plusDays(1);
+                default:
+                    return bucketStart.plusMonths(1);
+            }
+        }
+    }
+
+    // Revenue per bucket in time order, one entry for every bucket in the range including
+    // empty ones. Bucket starts are epoch milliseconds in the system time zone.
+    public static final class Series {
+        private final long[] bucketStarts;
+        private final double[] revenue;
+
+        private Series(long[] bucketStarts, double[] revenue) {
+            this.bucketStarts = bucketStarts;
+            this.revenue = revenue;
+        }
+
+        public long[] getBucketStarts() {
+            return bucketStarts;
+        }
+
+        public double[] getRevenue() {
+            return revenue;
+        }
+    }
+
+    public static final class ProductRevenue {
+        private final String productId;
+        private final String productName;
+        private final double revenue;
+
+        private ProductRevenue(String productId, String productName, double revenue) {
+            this.productId = productId;
+            this.productName = productName;
+            this.revenue = revenue;
+        }
+
+        public String getProductId() {
+            return productId;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public double getRevenue() {
+            return revenue;
+        }
+    }
+
+    private static final String UPSERT_SQL =
+            "MERGE INTO RevenueRollup r USING (VALUES (CAST(? AS BIGINT), CAST(? AS CHAR(1)), " +
+                    "CAST(? AS TIMESTAMP), CAST(? AS BIGINT), CAST(? AS DOUBLE), CAST(? AS INT))) " +
+                    "s (farmerId, grain, bucketStart, productId, revenue, units) " +
+                    "ON r.farmerId = s.farmerId AND r.grain = s.grain AND r.bucketStart = s.bucketStart " +
+                    "AND r.productId = s.productId " +
+                    "WHEN MATCHED THEN UPDATE SET revenue = r.revenue + s.revenue, units = r.units + s.units " +
+                    "WHEN NOT MATCHED THEN INSERT (farmerId, grain, bucketStart, productId, revenue, units) " +
+                    "VALUES (s.farmerId, s.grain, s.bucketStart, s.productId, s.revenue, s.units)";
+
+    private final Connection connection;
+
+    public RevenueRollupStore() throws SQLException {
+        this.connection = Database.open();
+        try (Statement st = connection.createStatement()) {
+            createTable(st);
+        }
+    }
+
+    static void createTable(Statement st) throws SQLException {
+        st.execute("CREATE TABLE IF NOT EXISTS RevenueRollup (" +
+                "farmerId BIGINT, " +
+                "grain CHAR(1), " +
+                "bucketStart TIMESTAMP, " +
+                "productId BIGINT, " +
+                "revenue DOUBLE, " +
+                "units INT, " +
+                "PRIMARY KEY (farmerId, grain, bucketStart, productId)" +
+                ")");
+        st.execute("CREATE TABLE IF NOT EXISTS RevenueRollupVersion (version INT)");
+    }
+
+    // Adds one order line (or, with negative amounts, takes it back out) to every bucket it
+    // falls in. Runs on the caller's connection so it commits or rolls back with the order.
+    static void record(Connection connection, long farmerId, long productId, LocalDateTime orderDate,
+            double revenue, int units) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(UPSERT_SQL)) {
+            for (Grain grain : Grain.values()) {
+                addBucket(ps, farmerId, grain, grain.bucketStart(orderDate), ALL_PRODUCTS, revenue, units);
+            }
+            addBucket(ps, farmerId, Grain.MONTH, Grain.MONTH.bucketStart(orderDate), productId, revenue, units);
+            ps.executeBatch();
+        }
+    }
+
+    public double totalRevenue(String farmerId) throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT COALESCE(SUM(revenue), 0) FROM RevenueRollup " +
+                            "WHERE farmerId = ? AND grain = ? AND productId = ?")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setString(2, Grain.MONTH.code);
+                ps.setLong(3, ALL_PRODUCTS);
+                return readDouble(ps);
+            }
+        }
+    }
+
+    // Revenue over the 'window' ending now: whole days from day buckets, and the partial
+    // day at the start of the window from hour buckets
+    public double windowRevenue(String farmerId, Duration window) throws SQLException {
+        LocalDateTime windowStart = Grain.HOUR.bucketStart(LocalDateTime.now().minus(window));
+        LocalDateTime firstFullDay = Grain.DAY.bucketStart(windowStart);
+        if (firstFullDay.isBefore(windowStart)) {
+            firstFullDay = firstFullDay.plusDays(1);
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT COALESCE(SUM(revenue), 0) FROM RevenueRollup WHERE farmerId = ? AND productId = ? AND (" +
+                            "(grain = ? AND bucketStart >= ? AND bucketStart < ?) OR " +
+                            "(grain = ? AND bucketStart >= ?))")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setLong(2, ALL_PRODUCTS);
+                ps.setString(3, Grain.HOUR.code);
+                ps.setTimestamp(4, Timestamp.valueOf(windowStart));
+                ps.setTimestamp(5, Timestamp.valueOf(firstFullDay));
+                ps.setString(6, Grain.DAY.code);
+                ps.setTimestamp(7, Timestamp.valueOf(firstFullDay));
+                return readDouble(ps);
+            }
+        }
+    }
+
+    // Revenue per day for the last 'days' days including today, oldest first, zero-filled
+    public Map<LocalDate, Double> dailyRevenue(String farmerId, int days) throws SQLException {
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Double> revenue = new LinkedHashMap<>();
+        for (int i = days - 1; i >= 0; i--) {
+            revenue.put(today.minusDays(i), 0.0);
+        }
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT bucketStart, revenue FROM RevenueRollup " +
+                            "WHERE farmerId = ? AND grain = ? AND productId = ? AND bucketStart >= ?")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setString(2, Grain.DAY.code);
+                ps.setLong(3, ALL_PRODUCTS);
+                ps.setTimestamp(4, Timestamp.valueOf(today.minusDays(days - 1).atStartOfDay()));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        revenue.put(rs.getTimestamp(1).toLocalDateTime().toLocalDate(), rs.getDouble(2));
+                    }
+                }
+            }
+        }
+        return revenue;
+    }
+
+    // Zero-filled series for the buckets of one grain that overlap [from, to); a null 'from'
+    // starts at the farmer's first bucket of that grain
+    public Series series(String farmerId, Grain grain, LocalDateTime from, LocalDateTime to) throws SQLException {
+        Map<LocalDateTime, Double> stored = new LinkedHashMap<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT bucketStart, revenue FROM RevenueRollup WHERE farmerId = ? AND grain = ? " +
+                            "AND productId = ? AND bucketStart >= ? AND bucketStart < ? ORDER BY bucketStart")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setString(2, grain.code);
+                ps.setLong(3, ALL_PRODUCTS);
+                ps.setTimestamp(4, Timestamp.valueOf(from != null ? grain.bucketStart(from) : LocalDateTime.of(1970, 1, 1, 0, 0)));
+                ps.setTimestamp(5, Timestamp.valueOf(to));
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        stored.put(rs.getTimestamp(1).toLocalDateTime(), rs.getDouble(2));
+                    }
+                }
+            }
+        }
+        LocalDateTime first = from != null ? grain.bucketStart(from)
+                : stored.isEmpty() ? grain.bucketStart(to) : stored.keySet().iterator().next();
+        List<LocalDateTime> buckets = new ArrayList<>();
+        for (LocalDateTime bucket = first; bucket.isBefore(to); bucket = grain.next(bucket)) {
+            buckets.add(bucket);
+        }
+        long[] bucketStarts = new long[buckets.size()];
+        double[] revenue = new double[buckets.size()];
+        for (int i = 0; i < buckets.size(); i++) {
+            bucketStarts[i] = buckets.get(i).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            revenue[i] = stored.getOrDefault(buckets.get(i), 0.0);
+        }
+        return new Series(bucketStarts, revenue);
+    }
+
+    // All-time revenue per product, highest first
+    public List<ProductRevenue> revenueByProduct(String farmerId) throws SQLException {
+        List<ProductRevenue> products = new ArrayList<>();
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "SELECT r.productId, p.name, SUM(r.revenue) AS revenue FROM RevenueRollup r " +
+                            "LEFT JOIN Product p ON p.id = r.productId " +
+                            "WHERE r.farmerId = ? AND r.grain = ? AND r.productId <> ? " +
+                            "GROUP BY r.productId, p.name ORDER BY revenue DESC")) {
+                ps.setLong(1, Long.parseLong(farmerId));
+                ps.setString(2, Grain.MONTH.code);
+                ps.setLong(3, ALL_PRODUCTS);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String name = rs.getString(2);
+                        products.add(new ProductRevenue(String.valueOf(rs.getLong(1)),
+                                name != null ? name : "Removed product", rs.getDouble(3)));
+                    }
+                }
+            }
+        }
+        return products;
+    }
+
+    // True when there are orders but no rollups yet, e.g. on the first run after upgrading,
+    // or the rollups were built by an older version that counted differently
+    public boolean needsBackfill() throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement("SELECT EXISTS (SELECT 1 FROM Orders) " +
+                    "AND (NOT EXISTS (SELECT 1 FROM RevenueRollup) " +
+                    "OR NOT EXISTS (SELECT 1 FROM RevenueRollupVersion WHERE version >= ?))")) {
+                ps.setInt(1, ROLLUP_VERSION);
+                return readBoolean(ps);
+            }
+        }
+    }
+
+    // Rebuilds every bucket from Orders in one transaction, so readers see either the old
+    // rollups or the new ones. Meant for startup, before this client places orders.
+    public void rebuild() throws SQLException {
+        synchronized (connection) {
+            connection.setAutoCommit(false);
+            try (Statement st = connection.createStatement()) {
+                st.executeUpdate("DELETE FROM RevenueRollup");
+                LocalDateTime hourCutoff = LocalDate.now().minusDays(HOUR_RETENTION_DAYS).atStartOfDay();
+                for (Grain grain : Grain.values()) {
+                    rebuildGrain(grain, ALL_PRODUCTS, grain == Grain.HOUR ? hourCutoff : null);
+                }
+                rebuildGrain(Grain.MONTH, -1, null);
+                st.executeUpdate("DELETE FROM RevenueRollupVersion");
+                st.executeUpdate("INSERT INTO RevenueRollupVersion (version) VALUES (" + ROLLUP_VERSION + ")");
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        }
+    }
+
+    // Hour buckets past retention are only needed for windows nobody asks for
+    public void pruneHourBuckets() throws SQLException {
+        synchronized (connection) {
+            try (PreparedStatement ps = connection.prepareStatement(
+                    "DELETE FROM RevenueRollup WHERE grain = ? AND bucketStart < ?")) {
+                ps.setString(1, Grain.HOUR.code);
+                ps.setTimestamp(2, Timestamp.valueOf(LocalDate.now().minusDays(HOUR_RETENTION_DAYS).atStartOfDay()));
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    public void close() {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Failed to close revenue rollups: " + e.getMessage());
+        }
+    }
+
+    // productId -1 groups by product; ALL_PRODUCTS sums them
+    private void rebuildGrain(Grain grain, long productId, LocalDateTime since) throws SQLException {
+        String bucket = "DATE_TRUNC('" + grain.truncUnit + "', o.orderDate)";
+        String product = productId < 0 ? "o.productId" : String.valueOf(productId);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO RevenueRollup (farmerId, grain, bucketStart, productId, revenue, units) " +
+                        "SELECT p.farmerId, ?, " + bucket + ", " + product + ", " +
+                        "SUM(o.quantity * o.unitPrice), SUM(o.quantity) " +
+                        "FROM Orders o JOIN Product p ON p.id = o.productId " +
+                        "WHERE o.status IN (?, ?, ?) AND o.orderDate >= ? " +
+                        "GROUP BY p.farmerId, " + bucket + (productId < 0 ? ", o.productId" : ""))) {
+            ps.setString(1, grain.code);
+            ps.setString(2, OrderStatus.ACCEPTED.getLabel());
+            ps.setString(3, OrderStatus.PACKED.getLabel());
+            ps.setString(4, OrderStatus.DELIVERED.getLabel());
+            ps.setTimestamp(5, Timestamp.valueOf(since != null ? since : LocalDateTime.of(1970, 1, 1, 0, 0)));
+            ps.executeUpdate();
+        }
+    }
+
+    private static void addBucket(PreparedStatement ps, long farmerId, Grain grain, LocalDateTime bucketStart,
+            long productId, double revenue, int units) throws SQLException {
+        ps.setLong(1, farmerId);
+        ps.setString(2, grain.code);
+        ps.setTimestamp(3, Timestamp.valueOf(bucketStart));
+        ps.setLong(4, productId);
+        ps.setDouble(5, revenue);
+        ps.setInt(6, units);
+        ps.addBatch();
+    }
+
+    private static boolean readBoolean(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getBoolean(1);
+        }
+    }
+
+    private static double readDouble(PreparedStatement ps) throws SQLException {
+        try (ResultSet rs = ps.executeQuery()) {
+            rs.next();
+            return rs.getDouble(1);
+        }
+    }
+}
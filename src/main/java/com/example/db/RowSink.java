@@ -0,0 +1,15 @@
+package com.example.db;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+// Receives the rows of a streamed query one at a time. The ResultSet passed to row() is
+// positioned on the current row and only valid for the duration of the call.
+public interface RowSink {
+    // Called once before the first row; 'totalRows' is the row count when the export started
+    void begin(ResultSetMetaData columns, long totalRows) throws SQLException, IOException;
+
+    void row(ResultSet row) throws SQLException, IOException;
+}
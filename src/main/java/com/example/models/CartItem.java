@@ -0,0 +1,46 @@
+package com.example.models;
+
+public class CartItem {
+    private String productId;
+    private String name;
+    private double price;
+    private String unit;
+    private int quantity;
+
+    public CartItem(String name, double price, String unit, int quantity) {
+        this(null, name, price, unit, quantity);
+    }
+
+    public CartItem(String productId, String name, double price, String unit, int quantity) {
+        this.productId = productId;
+        this.name = name;
+        this.price = price;
+        this.unit = unit;
+        this.quantity = quantity;
+    }
+
+    // Getters and Setters
+    public String getProductId() {
+        return productId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getUnit() {
+        return unit;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(int quantity) {
+        this.quantity = quantity;
+    }
+}
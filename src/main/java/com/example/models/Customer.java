@@ -25,6 +25,10 @@ public class Customer {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getFullName() {
         return fullName;
     }
@@ -12,7 +12,7 @@ public class Farmer {
     private String farmName;
     private String farmLocation;
     private List<Product> products;
-    private String password; // In a real app, this should be hashed
+    private String password; // PasswordHasher hash once the account is saved
 
     public Farmer(String fullName, String username, String email, String phoneNumber,
             String farmName, String farmLocation, String password) {
@@ -32,6 +32,10 @@ public class Farmer {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getFullName() {
         return fullName;
     }
@@ -0,0 +1,41 @@
+package com.example.models;
+
+// A point on the earth in degrees, as found by the Gazetteer for a free-text address
+public final class GeoPoint {
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final double latitude;
+    private final double longitude;
+
+    public GeoPoint(double latitude, double longitude) {
+        this.latitude = latitude;
+        this.longitude = longitude;
+    }
+
+    public double getLatitude() {
+        return latitude;
+    }
+
+    public double getLongitude() {
+        return longitude;
+    }
+
+    // Great-circle distance by the haversine formula
+    public double distanceKm(GeoPoint other) {
+        return distanceKm(latitude, longitude, other.latitude, other.longitude);
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.4f, %.4f", latitude, longitude);
+    }
+}
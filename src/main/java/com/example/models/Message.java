@@ -0,0 +1,78 @@
+package com.example.models;
+
+import java.time.LocalDateTime;
+
+public class Message {
+    public static final String CUSTOMER = "Customer";
+    public static final String FARMER = "Farmer";
+
+    private long id;
+    private long conversationId;
+    private String senderRole;
+    private String senderUsername;
+    private String senderName;
+    private String recipientRole;
+    private String recipientUsername;
+    private String body;
+    private LocalDateTime sentAt;
+    private boolean read;
+
+    public Message(long id, long conversationId, String senderRole, String senderUsername, String senderName,
+            String recipientRole, String recipientUsername, String body, LocalDateTime sentAt, boolean read) {
+        this.id = id;
+        this.conversationId = conversationId;
+        this.senderRole = senderRole;
+        this.senderUsername = senderUsername;
+        this.senderName = senderName;
+        this.recipientRole = recipientRole;
+        this.recipientUsername = recipientUsername;
+        this.body = body;
+        this.sentAt = sentAt;
+        this.read = read;
+    }
+
+    // Getters and Setters
+    public long getId() {
+        return id;
+    }
+
+    public long getConversationId() {
+        return conversationId;
+    }
+
+    public String getSenderRole() {
+        return senderRole;
+    }
+
+    public String getSenderUsername() {
+        return senderUsername;
+    }
+
+    public String getSenderName() {
+        return senderName;
+    }
+
+    public String getRecipientRole() {
+        return recipientRole;
+    }
+
+    public String getRecipientUsername() {
+        return recipientUsername;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public LocalDateTime getSentAt() {
+        return sentAt;
+    }
+
+    public boolean isRead() {
+        return read;
+    }
+
+    public void setRead(boolean read) {
+        this.read = read;
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.models;
+
+import java.time.LocalDateTime;
+
+// One order line as a farmer sees it: what was ordered, by whom and where it goes
+public class Order {
+    private final long id;
+    private final String customerName;
+    private final String location;
+    private final String productName;
+    private final int quantity;
+    private final double unitPrice;
+    private OrderStatus status;
+    private final LocalDateTime orderDate;
+
+    public Order(long id, String customerName, String location, String productName, int quantity, double unitPrice,
+            OrderStatus status, LocalDateTime orderDate) {
+        this.id = id;
+        this.customerName = customerName;
+        this.location = location;
+        this.productName = productName;
+        this.quantity = quantity;
+        this.unitPrice = unitPrice;
+        this.status = status;
+        this.orderDate = orderDate;
+    }
+
+    public Order(Order other) {
+        this(other.id, other.customerName, other.location, other.productName, other.quantity, other.unitPrice,
+                other.status, other.orderDate);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getCustomerName() {
+        return customerName;
+    }
+
+    public String getLocation() {
+        return location;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
+
+    public int getQuantity() {
+        return quantity;
+    }
+
+    public double getUnitPrice() {
+        return unitPrice;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(OrderStatus status) {
+        this.status = status;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.models;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+// Where an order is in its life: Pending until the farmer accepts or rejects it, then
+// Accepted, Packed and Delivered. A customer may cancel until the order is packed.
+// Stored in the database by label.
+public enum OrderStatus {
+    PENDING("Pending"),
+    ACCEPTED("Accepted"),
+    PACKED("Packed"),
+    DELIVERED("Delivered"),
+    REJECTED("Rejected"),
+    CANCELLED("Cancelled");
+
+    private final String label;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    // Statuses this one may move to; empty once the order is finished
+    public Set<OrderStatus> next() {
+        switch (this) {
+            case PENDING:
+                return EnumSet.of(ACCEPTED, REJECTED, CANCELLED);
+            case ACCEPTED:
+                return EnumSet.of(PACKED, CANCELLED);
+            case PACKED:
+                return EnumSet.of(DELIVERED);
+            default:
+                return EnumSet.noneOf(OrderStatus.class);
+        }
+    }
+
+    public boolean canBecome(OrderStatus status) {
+        return next().contains(status);
+    }
+
+    public boolean isFinished() {
+        return next().isEmpty();
+    }
+
+    // Accepted orders earn revenue from then on, unless cancelled before packing
+    public boolean isCounted() {
+        return this == ACCEPTED || this == PACKED || this == DELIVERED;
+    }
+
+    // "Fulfilled", from builds before orders were tracked past fulfilment, reads as Delivered
+    public static OrderStatus fromLabel(String label) {
+        for (OrderStatus status : values()) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        if ("Fulfilled".equalsIgnoreCase(label)) {
+            return DELIVERED;
+        }
+        throw new IllegalArgumentException("Unknown order status '" + label + "'");
+    }
+
+    @Override
+    public String toString() {
+        return label;
+    }
+}
@@ -24,11 +24,27 @@ public class Product {
         this.createdAt = LocalDateTime.now();
     }
 
+    public Product(Product other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.price = other.price;
+        this.description = other.description;
+        this.unit = other.unit;
+        this.quantity = other.quantity;
+        this.createdAt = other.createdAt;
+        this.farmerId = other.farmerId;
+        this.imagePath = other.imagePath;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
     }
 
+    public void setId(String id) {
+        this.id = id;
+    }
+
     public String getName() {
         return name;
     }
@@ -73,6 +89,10 @@ public class Product {
         return createdAt;
     }
 
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
     public String getFarmerId() {
         return farmerId;
     }
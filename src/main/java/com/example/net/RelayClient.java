@@ -0,0 +1,244 @@
+package com.example.net;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ConnectException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Connection to the local RelayServer. A topic is subscribed from its current end, so
+// only events published after subscribing are delivered. The client remembers the last
+// offset seen on every subscribed topic, and after a dropped connection it reconnects
+// with backoff and asks the relay to resume from those offsets. Publishes made while
+// disconnected are queued (bounded) and sent after the next successful connect. With
+// 'hostIfAbsent' the client starts a relay itself when none is listening, so the app keeps
+// its relay after the instance that hosted it exits.
+public class RelayClient {
+    private static final int MAX_QUEUED_PUBLISHES = 1000;
+    private static final long MIN_BACKOFF_MILLIS = 250;
+    private static final long MAX_BACKOFF_MILLIS = 5000;
+    // Offset of a subscription the relay has not yet told us the end of
+    private static final long TAIL = -1;
+
+    public interface Listener {
+        void onEvent(String topic, long offset, String payload);
+    }
+
+    private final int port;
+    private final boolean hostIfAbsent;
+    private final Listener listener;
+    private final Map<String, Long> subscriptions = new ConcurrentHashMap<>();
+    private final ArrayDeque<String> outbox = new ArrayDeque<>();
+    private final Thread reader;
+    private volatile boolean running = true;
+    private volatile long serverEpoch;
+    private Socket socket;
+    private OutputStream out;
+    private volatile RelayServer hostedServer;
+
+    public RelayClient(int port, boolean hostIfAbsent, Listener listener) {
+        this.port = port;
+        this.hostIfAbsent = hostIfAbsent;
+        this.listener = listener;
+        this.reader = new Thread(this::readLoop, "relay-client");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    public void subscribe(String topic) {
+        if (subscriptions.putIfAbsent(topic, TAIL) == null) {
+            sendOrQueue("SUB " + topic + " " + TAIL, false);
+        }
+    }
+
+    public void unsubscribe(String topic) {
+        if (subscriptions.remove(topic) != null) {
+            sendOrQueue("UNSUB " + topic, false);
+        }
+    }
+
+    public void publish(String topic, String payload) {
+        sendOrQueue("PUB " + topic + " " + escape(payload), true);
+    }
+
+    public void close() {
+        running = false;
+        reader.interrupt();
+        synchronized (this) {
+            closeSocket();
+        }
+        RelayServer server = hostedServer;
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    // Drops the connection as a network failure would; the client reconnects and resumes
+    synchronized void dropConnection() {
+        closeSocket();
+    }
+
+    private synchronized void sendOrQueue(String frame, boolean queueIfDisconnected) {
+        if (out != null) {
+            try {
+                out.write((frame + "\n").getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                return;
+            } catch (IOException e) {
+                closeSocket();
+            }
+        }
+        // SUB/UNSUB are rebuilt from 'subscriptions' on reconnect, so only publishes are queued
+        if (queueIfDisconnected) {
+            if (outbox.size() == MAX_QUEUED_PUBLISHES) {
+                outbox.removeFirst();
+            }
+            outbox.addLast(frame);
+        }
+    }
+
+    private void readLoop() {
+        long backoff = MIN_BACKOFF_MILLIS;
+        while (running) {
+            try {
+                BufferedReader in = connect();
+                backoff = MIN_BACKOFF_MILLIS;
+                String line;
+                while (running && (line = in.readLine()) != null) {
+                    handle(line);
+                }
+            } catch (ConnectException e) {
+                // Nobody is listening, e.g. the instance hosting the relay exited
+                if (hostIfAbsent && hostedServer == null && running && startRelay()) {
+                    continue;
+                }
+            } catch (IOException e) {
+                // Relay not reachable yet or connection dropped; retry below
+            }
+            synchronized (this) {
+                closeSocket();
+            }
+            if (!running) {
+                return;
+            }
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                return;
+            }
+            backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+        }
+    }
+
+    // True if this client now hosts the relay; false if another instance got the port first
+    private boolean startRelay() {
+        try {
+            hostedServer = RelayServer.startIfAbsent(port);
+        } catch (IOException e) {
+            System.err.println("Failed to start relay server: " + e.getMessage());
+        }
+        return hostedServer != null;
+    }
+
+    private BufferedReader connect() throws IOException {
+        Socket s = new Socket();
+        s.setTcpNoDelay(true);
+        s.connect(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1000);
+        BufferedReader in = new BufferedReader(new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8));
+
+        // The relay greets with its epoch; offsets from an earlier relay process are meaningless,
+        // and everything a replacement relay holds was published after the old one went away
+        String hello = in.readLine();
+        if (hello == null || !hello.startsWith("HELLO ")) {
+            s.close();
+            throw new IOException("Unexpected relay greeting: " + hello);
+        }
+        long epoch = Long.parseLong(hello.substring(6).trim());
+        if (epoch != serverEpoch) {
+            if (serverEpoch != 0) {
+                subscriptions.replaceAll((topic, offset) -> 0L);
+            }
+            serverEpoch = epoch;
+        }
+
+        synchronized (this) {
+            socket = s;
+            out = s.getOutputStream();
+            for (Map.Entry<String, Long> subscription : subscriptions.entrySet()) {
+                sendOrQueue("SUB " + subscription.getKey() + " " + subscription.getValue(), false);
+            }
+            while (!outbox.isEmpty() && out != null) {
+                sendOrQueue(outbox.removeFirst(), true);
+            }
+        }
+        return in;
+    }
+
+    private void handle(String line) {
+        String[] parts = line.split(" ", 4);
+        if (parts.length == 3 && "AT".equals(parts[0])) {
+            // Where a subscription from the end starts; resumes continue from here
+            try {
+                long offset = Long.parseLong(parts[2]);
+                subscriptions.computeIfPresent(parts[1], (topic, seen) -> Math.max(seen, offset));
+            } catch (NumberFormatException e) {
+                // Ignored like any other unreadable frame
+            }
+            return;
+        }
+        if (parts.length < 4 || !"EVT".equals(parts[0])) {
+            return;
+        }
+        String topic = parts[1];
+        long offset;
+        try {
+            offset = Long.parseLong(parts[2]);
+        } catch (NumberFormatException e) {
+            return;
+        }
+        Long seen = subscriptions.get(topic);
+        if (seen == null || offset <= seen) {
+            // Unsubscribed meanwhile, or a replay we already delivered
+            return;
+        }
+        subscriptions.put(topic, offset);
+        listener.onEvent(topic, offset, unescape(parts[3]));
+    }
+
+    private void closeSocket() {
+        out = null;
+        if (socket != null) {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // Already closed
+            }
+            socket = null;
+        }
+    }
+
+    private static String escape(String payload) {
+        return payload.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+    private static String unescape(String payload) {
+        StringBuilder sb = new StringBuilder(payload.length());
+        for (int i = 0; i < payload.length(); i++) {
+            char c = payload.charAt(i);
+            if (c == '\\' && i + 1 < payload.length()) {
+                char next = payload.charAt(++i);
+                sb.append(next == 'n' ? '\n' : next);
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
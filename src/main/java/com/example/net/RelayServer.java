@@ -0,0 +1,313 @@
+package com.example.net;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+// Single-threaded, Selector-based pub/sub relay for localhost clients. Each topic keeps a
+// numbered log of its most recent events, so a client that reconnects can ask for
+// everything after the last offset it saw instead of polling the database. A new
+// subscription asks for offset -1, meaning from now on: nothing is replayed and the relay
+// answers with the topic's current offset to resume from.
+//
+// The relay lives in whichever app instance started it. When that instance exits, the
+// others lose their connection and the first RelayClient to find the port free hosts a
+// new relay (see RelayClient); events published by the exiting instance that no client
+// had received yet are lost, which is why the data itself always comes from the database.
+//
+// Wire format is one line per frame, fields separated by spaces, payload last:
+//   client -> server   SUB <topic> <afterOffset> | UNSUB <topic> | PUB <topic> <payload>
+//   server -> client   HELLO <epoch> | AT <topic> <offset> | EVT <topic> <offset> <payload>
+public class RelayServer implements Runnable {
+    public static final int DEFAULT_PORT = 47800;
+
+    private static final int RETAINED_PER_TOPIC = 1024;
+    private static final int MAX_PENDING_BYTES = 1 << 20;
+    private static final int MAX_FRAME_BYTES = 16 * 1024;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final long epoch = System.currentTimeMillis();
+    private final Map<String, Topic> topics = new HashMap<>();
+    private volatile boolean running = true;
+
+    private static class Topic {
+        private long nextOffset = 1;
+        private final ArrayDeque<String> retained = new ArrayDeque<>();
+        private final Set<Client> subscribers = new HashSet<>();
+
+        private long firstRetainedOffset() {
+            return nextOffset - retained.size();
+        }
+    }
+
+    private static class Client {
+        private final SocketChannel channel;
+        private final ByteBuffer readBuffer = ByteBuffer.allocate(MAX_FRAME_BYTES);
+        private final ArrayDeque<ByteBuffer> pendingWrites = new ArrayDeque<>();
+        private final Set<String> topics = new HashSet<>();
+        private int pendingBytes;
+
+        private Client(SocketChannel channel) {
+            this.channel = channel;
+        }
+    }
+
+    private RelayServer(int port) throws IOException {
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        } catch (IOException e) {
+            serverChannel.close();
+            selector.close();
+            throw e;
+        }
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    // Starts a relay on the loopback interface, or returns null if another app instance on
+    // this machine already hosts one on that port
+    public static RelayServer startIfAbsent(int port) throws IOException {
+        RelayServer server;
+        try {
+            server = new RelayServer(port);
+        } catch (BindException e) {
+            return null;
+        }
+        Thread thread = new Thread(server, "relay-server");
+        thread.setDaemon(true);
+        thread.start();
+        return server;
+    }
+
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    @Override
+    public void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    try {
+                        if (!key.isValid()) {
+                            continue;
+                        }
+                        if (key.isAcceptable()) {
+                            accept();
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(key);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            write(key);
+                        }
+                    } catch (IOException e) {
+                        disconnect(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Relay server stopped: " + e.getMessage());
+        } finally {
+            try {
+                for (SelectionKey key : selector.keys()) {
+                    key.channel().close();
+                }
+                selector.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close relay server: " + e.getMessage());
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        Client client = new Client(channel);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ, client);
+        send(key, "HELLO " + epoch);
+    }
+
+    private void read(SelectionKey key) throws IOException {
+        Client client = (Client) key.attachment();
+        int n = client.channel.read(client.readBuffer);
+        if (n < 0) {
+            disconnect(key);
+            return;
+        }
+        // Split on the newline byte before decoding so multi-byte characters that straddle
+        // two reads are never cut in half
+        ByteBuffer buffer = client.readBuffer;
+        buffer.flip();
+        int lineStart = buffer.position();
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) == '\n') {
+                ByteBuffer line = buffer.duplicate();
+                line.position(lineStart).limit(i);
+                handle(key, client, StandardCharsets.UTF_8.decode(line).toString());
+                lineStart = i + 1;
+                if (!key.isValid()) {
+                    return;
+                }
+            }
+        }
+        buffer.position(lineStart);
+        buffer.compact();
+        if (!buffer.hasRemaining()) {
+            // No newline within the maximum frame size
+            disconnect(key);
+        }
+    }
+
+    private void handle(SelectionKey key, Client client, String line) {
+        String[] parts = line.split(" ", 3);
+        switch (parts[0]) {
+            case "SUB":
+                if (parts.length == 3) {
+                    subscribe(key, client, parts[1], parseOffset(parts[2]));
+                }
+                break;
+            case "UNSUB":
+                if (parts.length >= 2) {
+                    Topic topic = topics.get(parts[1]);
+                    if (topic != null) {
+                        topic.subscribers.remove(client);
+                    }
+                    client.topics.remove(parts[1]);
+                }
+                break;
+            case "PUB":
+                if (parts.length == 3) {
+                    publish(parts[1], parts[2]);
+                }
+                break;
+            default:
+                // Unknown frames are ignored so newer clients can talk to older relays
+                break;
+        }
+    }
+
+    private void subscribe(SelectionKey key, Client client, String name, long afterOffset) {
+        Topic topic = topics.computeIfAbsent(name, k -> new Topic());
+        topic.subscribers.add(client);
+        client.topics.add(name);
+        if (afterOffset < 0) {
+            send(key, "AT " + name + " " + (topic.nextOffset - 1));
+            return;
+        }
+
+        // Replay what the client missed while it was away
+        long offset = topic.firstRetainedOffset();
+        for (String payload : topic.retained) {
+            if (offset > afterOffset) {
+                send(key, "EVT " + name + " " + offset + " " + payload);
+            }
+            offset++;
+        }
+    }
+
+    private void publish(String name, String payload) {
+        Topic topic = topics.computeIfAbsent(name, k -> new Topic());
+        long offset = topic.nextOffset++;
+        topic.retained.addLast(payload);
+        if (topic.retained.size() > RETAINED_PER_TOPIC) {
+            topic.retained.removeFirst();
+        }
+        String frame = "EVT " + name + " " + offset + " " + payload;
+        for (Client subscriber : new ArrayList<>(topic.subscribers)) {
+            SelectionKey key = subscriber.channel.keyFor(selector);
+            if (key != null && key.isValid()) {
+                send(key, frame);
+            }
+        }
+    }
+
+    private void send(SelectionKey key, String frame) {
+        if (!key.isValid()) {
+            return;
+        }
+        Client client = (Client) key.attachment();
+        ByteBuffer buffer = StandardCharsets.UTF_8.encode(frame + "\n");
+        client.pendingBytes += buffer.remaining();
+        if (client.pendingBytes > MAX_PENDING_BYTES) {
+            // A client this far behind is dropped; it will reconnect and resume from its offset
+            disconnect(key);
+            return;
+        }
+        client.pendingWrites.addLast(buffer);
+        key.interestOps(key.interestOps() | SelectionKey.OP_WRITE);
+    }
+
+    private void write(SelectionKey key) throws IOException {
+        Client client = (Client) key.attachment();
+        while (!client.pendingWrites.isEmpty()) {
+            ByteBuffer buffer = client.pendingWrites.peekFirst();
+            int written = client.channel.write(buffer);
+            client.pendingBytes -= written;
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            client.pendingWrites.removeFirst();
+        }
+        key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void disconnect(SelectionKey key) {
+        Object attachment = key.attachment();
+        if (attachment instanceof Client) {
+            Client client = (Client) attachment;
+            for (String name : client.topics) {
+                Topic topic = topics.get(name);
+                if (topic != null) {
+                    topic.subscribers.remove(client);
+                }
+            }
+        }
+        key.cancel();
+        try {
+            key.channel().close();
+        } catch (IOException e) {
+            // Already gone
+        }
+    }
+
+    // Unreadable offsets count as "from now on" rather than replaying the whole log
+    private static long parseOffset(String text) {
+        try {
+            return Long.parseLong(text.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.services;
+
+import com.example.db.ActivityFeedStore;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Fan-out-on-write activity feeds. An event is copied into the feed of every customer it
+// concerns when it happens, so showing a feed is a single bounded read. Writes run on one
+// background thread in the order they were submitted; a farm with many followers is
+// written in batches of FANOUT_BATCH feeds per transaction, so a big fan-out never holds
+// a long transaction.
+public class ActivityFeedService {
+    private static final int FANOUT_BATCH = 500;
+
+    private final ActivityFeedStore store;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "activity-fanout");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public ActivityFeedService(ActivityFeedStore store) {
+        this.store = store;
+    }
+
+    // An entry for one customer, e.g. about their own order
+    public void recordForCustomer(String customerId, String text) {
+        LocalDateTime now = LocalDateTime.now();
+        writer.execute(() -> {
+            try {
+                store.append(List.of(Long.parseLong(customerId)), text, now);
+            } catch (SQLException | NumberFormatException e) {
+                System.err.println("Failed to write activity: " + e.getMessage());
+            }
+        });
+    }
+
+    // An entry for everyone following the farm, e.g. a new product or a price change
+    public void recordForFollowers(String farmerId, String text) {
+        LocalDateTime now = LocalDateTime.now();
+        writer.execute(() -> {
+            try {
+                long after = 0;
+                List<Long> batch;
+                do {
+                    batch = store.followers(farmerId, after, FANOUT_BATCH);
+                    store.append(batch, text, now);
+                    if (!batch.isEmpty()) {
+                        after = batch.get(batch.size() - 1);
+                    }
+                } while (batch.size() == FANOUT_BATCH);
+            } catch (SQLException | NumberFormatException e) {
+                System.err.println("Failed to fan out activity: " + e.getMessage());
+            }
+        });
+    }
+
+    public List<ActivityFeedStore.Entry> recent(String customerId, int limit) throws SQLException {
+        return store.recent(customerId, limit);
+    }
+
+    public void follow(String customerId, String farmerId) throws SQLException {
+        store.follow(customerId, farmerId);
+    }
+
+    public void unfollow(String customerId, String farmerId) throws SQLException {
+        store.unfollow(customerId, farmerId);
+    }
+
+    public boolean isFollowing(String customerId, String farmerId) throws SQLException {
+        return store.isFollowing(customerId, farmerId);
+    }
+
+    // Lets queued fan-outs finish, then closes the store
+    public void close() {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,289 @@
+package com.example.services;
+
+import com.example.db.AccountStore;
+import com.example.models.Customer;
+import com.example.models.Farmer;
+import com.example.models.Message;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// Sign-in and sign-up. Password hashing is deliberately slow, so it runs on a small bounded
+// pool instead of the FX thread, and a burst of attempts beyond the queue is refused rather
+// than piling up. A user who signed in recently is re-verified against a keyed fingerprint
+// of their password instead of paying for PBKDF2 again.
+public class AuthService {
+    private static final int QUEUE_CAPACITY = 32;
+    private static final int SESSION_CACHE_SIZE = 256;
+    private static final long SESSION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(15);
+
+    private final AccountStore accounts;
+    private final PasswordHasher hasher;
+    private final ExecutorService pool;
+    private final Metrics metrics = new Metrics();
+    private final byte[] fingerprintKey = new byte[32];
+    // Verified against when the username doesn't exist, so a miss costs the same as a wrong password
+    private final CompletableFuture<String> dummyHash;
+    private final Map<String, Session> sessions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+            return size() > SESSION_CACHE_SIZE;
+        }
+    };
+
+    private static final class Session {
+        private final byte[] fingerprint;
+        private final long expiresAt;
+
+        private Session(byte[] fingerprint, long expiresAt) {
+            this.fingerprint = fingerprint;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public static class AuthenticationException extends Exception {
+        private static final long serialVersionUID = 1L;
+
+        public AuthenticationException(String message) {
+            super(message);
+        }
+    }
+
+    // Counters and timings for the login path, readable from any thread
+    public static class Metrics {
+        private final LongAdder logins = new LongAdder();
+        private final LongAdder failures = new LongAdder();
+        private final LongAdder sessionHits = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder hashes = new LongAdder();
+        private final LongAdder hashNanos = new LongAdder();
+        private final LongAdder loginNanos = new LongAdder();
+        private final AtomicInteger maxLoginMillis = new AtomicInteger();
+
+        public long getLogins() {
+            return logins.sum();
+        }
+
+        public long getFailures() {
+            return failures.sum();
+        }
+
+        public long getSessionHits() {
+            return sessionHits.sum();
+        }
+
+        public long getRejected() {
+            return rejected.sum();
+        }
+
+        public long getHashes() {
+            return hashes.sum();
+        }
+
+        public double getAverageHashMillis() {
+            long count = hashes.sum();
+            return count == 0 ? 0 : hashNanos.sum() / 1e6 / count;
+        }
+
+        // Password checks per second one pool thread sustains, from the measured hash time
+        public double getHashesPerSecond() {
+            double average = getAverageHashMillis();
+            return average == 0 ? 0 : 1000 / average;
+        }
+
+        public double getAverageLoginMillis() {
+            long count = logins.sum() + failures.sum();
+            return count == 0 ? 0 : loginNanos.sum() / 1e6 / count;
+        }
+
+        public int getMaxLoginMillis() {
+            return maxLoginMillis.get();
+        }
+
+        @Override
+        public String toString() {
+            return String.format("logins=%d failures=%d sessionHits=%d rejected=%d avgLogin=%.1fms maxLogin=%dms "
+                    + "hashes=%d avgHash=%.1fms (%.1f/s per thread)", getLogins(), getFailures(), getSessionHits(),
+                    getRejected(), getAverageLoginMillis(), getMaxLoginMillis(), getHashes(), getAverageHashMillis(),
+                    getHashesPerSecond());
+        }
+
+        private void recordLogin(long startNanos, boolean ok) {
+            long elapsed = System.nanoTime() - startNanos;
+            (ok ? logins : failures).increment();
+            loginNanos.add(elapsed);
+            maxLoginMillis.accumulateAndGet((int) TimeUnit.NANOSECONDS.toMillis(elapsed), Math::max);
+        }
+    }
+
+    private interface AccountLookup<T> {
+        T find(String username) throws SQLException;
+    }
+
+    public AuthService(AccountStore accounts, PasswordHasher hasher) {
+        this.accounts = accounts;
+        this.hasher = hasher;
+        int threads = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_CAPACITY), r -> {
+                    Thread t = new Thread(r, "auth-" + counter.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        new SecureRandom().nextBytes(fingerprintKey);
+        this.dummyHash = CompletableFuture.supplyAsync(() -> hasher.hash("not-a-password".toCharArray()), pool);
+    }
+
+    public Metrics metrics() {
+        return metrics;
+    }
+
+    public CompletableFuture<Farmer> loginFarmer(String username, char[] password) {
+        return submit(() -> login(Message.FARMER, username, password, accounts::findFarmer,
+                Farmer::getPassword, Farmer::getId));
+    }
+
+    public CompletableFuture<Customer> loginCustomer(String username, char[] password) {
+        return submit(() -> login(Message.CUSTOMER, username, password, accounts::findCustomer,
+                Customer::getPassword, Customer::getId));
+    }
+
+    // Saves a new farmer with a hashed copy of 'password'; the farmer's id becomes the row id
+    public CompletableFuture<Farmer> registerFarmer(Farmer farmer, char[] password) {
+        return submit(() -> {
+            farmer.setPassword(timedHash(password));
+            accounts.insertFarmer(farmer);
+            return farmer;
+        });
+    }
+
+    public CompletableFuture<Customer> registerCustomer(Customer customer, char[] password) {
+        return submit(() -> {
+            customer.setPassword(timedHash(password));
+            accounts.insertCustomer(customer);
+            return customer;
+        });
+    }
+
+    public void close() {
+        pool.shutdown();
+    }
+
+    private <T> T login(String role, String username, char[] password, AccountLookup<T> lookup,
+            Function<T, String> hashOf, Function<T, String> idOf) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T account = lookup.find(username);
+            String cacheKey = role + ':' + username;
+            byte[] fingerprint = fingerprint(cacheKey, password);
+            if (account != null && cachedSessionMatches(cacheKey, fingerprint)) {
+                metrics.sessionHits.increment();
+                metrics.recordLogin(start, true);
+                return account;
+            }
+
+            String stored = account == null ? dummyHash.join() : hashOf.apply(account);
+            long hashStart = System.nanoTime();
+            boolean ok = hasher.verify(password, stored) && account != null;
+            metrics.hashNanos.add(System.nanoTime() - hashStart);
+            metrics.hashes.increment();
+            if (!ok) {
+                metrics.recordLogin(start, false);
+                throw new AuthenticationException("Invalid username or password");
+            }
+
+            if (hasher.needsRehash(stored)) {
+                accounts.updatePasswordHash(role, idOf.apply(account), timedHash(password));
+            }
+            synchronized (sessions) {
+                sessions.put(cacheKey, new Session(fingerprint, System.currentTimeMillis() + SESSION_TTL_MILLIS));
+            }
+            metrics.recordLogin(start, true);
+            return account;
+        } finally {
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private boolean cachedSessionMatches(String key, byte[] fingerprint) {
+        Session session;
+        synchronized (sessions) {
+            session = sessions.get(key);
+            if (session != null && session.expiresAt < System.currentTimeMillis()) {
+                sessions.remove(key);
+                session = null;
+            }
+        }
+        return session != null && MessageDigest.isEqual(session.fingerprint, fingerprint);
+    }
+
+    // HMAC keyed with a per-process secret: cheap to check, useless outside this process
+    private byte[] fingerprint(String key, char[] password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(fingerprintKey, "HmacSHA256"));
+            mac.update(key.getBytes(StandardCharsets.UTF_8));
+            mac.update((byte) 0);
+            ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(password));
+            mac.update(bytes);
+            if (bytes.hasArray()) {
+                Arrays.fill(bytes.array(), (byte) 0);
+            }
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HmacSHA256 is not available", e);
+        }
+    }
+
+    private String timedHash(char[] password) {
+        long start = System.nanoTime();
+        try {
+            return hasher.hash(password);
+        } finally {
+            metrics.hashNanos.add(System.nanoTime() - start);
+            metrics.hashes.increment();
+            Arrays.fill(password, '\0');
+        }
+    }
+
+    private interface Work<T> {
+        T run() throws Exception;
+    }
+
+    private <T> CompletableFuture<T> submit(Work<T> work) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        try {
+            pool.execute(() -> {
+                try {
+                    future.complete(work.run());
+                } catch (Exception e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            metrics.rejected.increment();
+            future.completeExceptionally(new AuthenticationException("Too many sign-in attempts, please try again"));
+        }
+        return future;
+    }
+}
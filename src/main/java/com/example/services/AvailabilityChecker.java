@@ -0,0 +1,86 @@
+package com.example.services;
+
+import com.example.db.AccountStore;
+
+import java.sql.SQLException;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Answers "is this username / email already taken?" while the user types. Every existing
+// account is loaded into Bloom filters at startup, so almost every keystroke is answered
+// from memory; the database is only asked to confirm when a filter says "maybe".
+public class AvailabilityChecker {
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1024;
+
+    private final AccountStore accounts;
+    private final AtomicInteger entries = new AtomicInteger();
+    private final LongAdder checks = new LongAdder();
+    private final LongAdder confirmations = new LongAdder();
+    private volatile BloomFilter usernames;
+    private volatile BloomFilter emails;
+
+    public AvailabilityChecker(AccountStore accounts) throws SQLException {
+        this.accounts = accounts;
+        rebuild();
+    }
+
+    // Emails are compared case-insensitively; store them in this form too
+    public static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    public boolean isUsernameTaken(String username) throws SQLException {
+        return isTaken(usernames, "username", username);
+    }
+
+    public boolean isEmailTaken(String email) throws SQLException {
+        return isTaken(emails, "email", normalizeEmail(email));
+    }
+
+    // Called after a successful sign-up so the new account is covered without a rebuild
+    public void recordSignup(String username, String email) throws SQLException {
+        usernames.add(username);
+        emails.add(normalizeEmail(email));
+        if (entries.incrementAndGet() > usernames.getCapacity()) {
+            // Past the size the filters were built for, the false-positive rate climbs
+            rebuild();
+        }
+    }
+
+    // Share of checks that needed the database; stays near the filter's false-positive rate
+    public double getConfirmationRate() {
+        long total = checks.sum();
+        return total == 0 ? 0 : (double) confirmations.sum() / total;
+    }
+
+    private boolean isTaken(BloomFilter filter, String column, String value) throws SQLException {
+        checks.increment();
+        if (value.isEmpty() || !filter.mightContain(value)) {
+            return false;
+        }
+        confirmations.increment();
+        return accounts.exists(column, value);
+    }
+
+    private synchronized void rebuild() throws SQLException {
+        int[] count = new int[1];
+        accounts.forEachAccount((username, email) -> count[0]++);
+        // Room to grow before the next rebuild
+        int capacity = Math.max(MIN_CAPACITY, count[0] * 2);
+        BloomFilter nextUsernames = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        BloomFilter nextEmails = new BloomFilter(capacity, FALSE_POSITIVE_RATE);
+        accounts.forEachAccount((username, email) -> {
+            if (username != null) {
+                nextUsernames.add(username);
+            }
+            if (email != null) {
+                nextEmails.add(normalizeEmail(email));
+            }
+        });
+        usernames = nextUsernames;
+        emails = nextEmails;
+        entries.set(count[0]);
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.services;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// DataLoader-style front for an EntityCache. Ids asked for while one UI pulse is being
+// processed are collected and fetched together by a single batch query once the pulse is
+// over, instead of one query per id. Requests for an id that is already being fetched
+// share the same future.
+public class BatchLoader<K, V> {
+    private static final int MAX_BATCH = 500;
+
+    public interface BatchFunction<K, V> {
+        // Returns the entities that exist; ids missing from the result are treated as not found
+        Map<K, V> loadAll(Set<K> ids) throws Exception;
+    }
+
+    private final EntityCache<K, V> cache;
+    private final BatchFunction<K, V> batchFunction;
+    private final Executor endOfPulse;
+    private final ExecutorService io;
+    private final Map<K, CompletableFuture<Optional<V>>> inFlight = new HashMap<>();
+    private Set<K> queued = new LinkedHashSet<>();
+    private boolean dispatchScheduled;
+
+    // 'endOfPulse' runs the dispatch after the current batch of UI work (Platform::runLater)
+    public BatchLoader(String name, EntityCache<K, V> cache, BatchFunction<K, V> batchFunction, Executor endOfPulse) {
+        this.cache = cache;
+        this.batchFunction = batchFunction;
+        this.endOfPulse = endOfPulse;
+        this.io = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, name + "-loader");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public CompletableFuture<Optional<V>> load(K id) {
+        Optional<V> cached = cache.get(id);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        synchronized (this) {
+            CompletableFuture<Optional<V>> future = inFlight.get(id);
+            if (future != null) {
+                return future;
+            }
+            future = new CompletableFuture<>();
+            inFlight.put(id, future);
+            queued.add(id);
+            if (!dispatchScheduled) {
+                dispatchScheduled = true;
+                endOfPulse.execute(this::dispatch);
+            }
+            return future;
+        }
+    }
+
+    public void close() {
+        io.shutdown();
+    }
+
+    private void dispatch() {
+        Set<K> batch;
+        synchronized (this) {
+            batch = queued;
+            queued = new LinkedHashSet<>();
+            dispatchScheduled = false;
+        }
+        io.execute(() -> {
+            Set<K> chunk = new LinkedHashSet<>();
+            for (K id : batch) {
+                chunk.add(id);
+                if (chunk.size() == MAX_BATCH) {
+                    fetch(chunk);
+                    chunk = new LinkedHashSet<>();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                fetch(chunk);
+            }
+        });
+    }
+
+    private void fetch(Set<K> ids) {
+        // A put or invalidate while the query runs wins over what the query read
+        Map<K, Long> stamps = new HashMap<>();
+        for (K id : ids) {
+            stamps.put(id, cache.stamp(id));
+        }
+        Map<K, V> found;
+        try {
+            found = batchFunction.loadAll(ids);
+        } catch (Exception e) {
+            for (K id : ids) {
+                takeFuture(id).completeExceptionally(e);
+            }
+            return;
+        }
+        for (K id : ids) {
+            V value = found.get(id);
+            Optional<V> result = Optional.ofNullable(value);
+            if (!cache.fill(id, value, stamps.get(id))) {
+                // Written meanwhile, so the cache holds something newer than the query saw
+                Optional<V> current = cache.get(id);
+                if (current != null) {
+                    result = current;
+                }
+            }
+            takeFuture(id).complete(result);
+        }
+    }
+
+    private synchronized CompletableFuture<Optional<V>> takeFuture(K id) {
+        return inFlight.remove(id);
+    }
+}
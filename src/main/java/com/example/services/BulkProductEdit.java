@@ -0,0 +1,174 @@
+package com.example.services;
+
+import com.example.db.ProductStore;
+import com.example.models.Product;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+// One edit applied to many products at once, in a single transaction. The change is made
+// in SQL from each row's current value, not written from the models, which may be behind
+// the database; the models are then brought up to date from the saved rows. If the save
+// fails the models are left untouched.
+public final class BulkProductEdit {
+    public enum Operation {
+        CHANGE_PRICE_PERCENT("Change price by %"),
+        SET_STOCK("Set stock to"),
+        ADJUST_STOCK("Adjust stock by"),
+        SET_UNIT("Change unit to"),
+        DELETE("Delete");
+
+        private final String label;
+
+        Operation(String label) {
+            this.label = label;
+        }
+
+        @Override
+        public String toString() {
+            return label;
+        }
+    }
+
+    // What an edit changed, for the caller to pass on to feeds and stock listeners
+    public static final class Result {
+        private final List<Product> priceChanged = new ArrayList<>();
+        private final List<Product> stockChanged = new ArrayList<>();
+        private final List<Product> changed = new ArrayList<>();
+
+        public List<Product> getPriceChanged() {
+            return priceChanged;
+        }
+
+        public List<Product> getStockChanged() {
+            return stockChanged;
+        }
+
+        // Every product that was saved or deleted; saved ones hold their new values
+        public List<Product> getChanged() {
+            return changed;
+        }
+    }
+
+    private final Operation operation;
+    private final double amount;
+    private final String unit;
+
+    // 'value' is the percentage, stock level, stock change or unit; ignored for DELETE.
+    // Throws IllegalArgumentException if it does not suit the operation.
+    public BulkProductEdit(Operation operation, String value) {
+        this.operation = operation;
+        String text = value == null ? "" : value.trim();
+        switch (operation) {
+            case CHANGE_PRICE_PERCENT:
+                amount = parseNumber(text.endsWith("%") ? text.substring(0, text.length() - 1).trim() : text);
+                if (amount <= -100) {
+                    throw new IllegalArgumentException("A price cannot drop by 100% or more");
+                }
+                unit = null;
+                break;
+            case SET_STOCK:
+            case ADJUST_STOCK:
+                try {
+                    amount = Integer.parseInt(text.startsWith("+") ? text.substring(1) : text);
+                } catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Please enter a whole number of units");
+                }
+                if (operation == Operation.SET_STOCK && amount < 0) {
+                    throw new IllegalArgumentException("Stock cannot be negative");
+                }
+                unit = null;
+                break;
+            case SET_UNIT:
+                if (text.isEmpty() || text.length() > 50) {
+                    throw new IllegalArgumentException("Please enter a unit of up to 50 characters");
+                }
+                amount = 0;
+                unit = text;
+                break;
+            default:
+                amount = 0;
+                unit = null;
+        }
+    }
+
+    public Operation getOperation() {
+        return operation;
+    }
+
+    public Result apply(ProductStore store, List<Product> products) throws SQLException {
+        Result result = new Result();
+        if (operation == Operation.DELETE) {
+            List<String> ids = new ArrayList<>(products.size());
+            for (Product product : products) {
+                ids.add(product.getId());
+            }
+            store.deleteAll(ids);
+            result.changed.addAll(products);
+            return result;
+        }
+
+        List<String> ids = new ArrayList<>(products.size());
+        for (Product product : products) {
+            ids.add(product.getId());
+        }
+        Map<String, Product> saved;
+        switch (operation) {
+            case CHANGE_PRICE_PERCENT:
+                saved = store.scalePrices(ids, (100 + amount) / 100);
+                break;
+            case SET_STOCK:
+                saved = store.setQuantities(ids, (int) amount);
+                break;
+            case ADJUST_STOCK:
+                saved = store.adjustQuantities(ids, (int) amount);
+                break;
+            default:
+                saved = store.setUnits(ids, unit);
+        }
+
+        // Compared with what the models showed, which is what the farmer sees change
+        for (Product product : products) {
+            Product row = saved.get(product.getId());
+            if (row == null) {
+                // Deleted meanwhile
+                continue;
+            }
+            boolean priceChanged = row.getPrice() != product.getPrice();
+            boolean stockChanged = row.getQuantity() != product.getQuantity();
+            boolean changed = priceChanged || stockChanged || !Objects.equals(row.getUnit(), product.getUnit())
+                    || !Objects.equals(row.getName(), product.getName())
+                    || !Objects.equals(row.getDescription(), product.getDescription());
+            product.setName(row.getName());
+            product.setDescription(row.getDescription());
+            product.setPrice(row.getPrice());
+            product.setUnit(row.getUnit());
+            product.setQuantity(row.getQuantity());
+            if (priceChanged) {
+                result.priceChanged.add(product);
+            }
+            if (stockChanged) {
+                result.stockChanged.add(product);
+            }
+            if (changed) {
+                result.changed.add(product);
+            }
+        }
+        return result;
+    }
+
+    private static double parseNumber(String text) {
+        try {
+            double value = Double.parseDouble(text);
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new NumberFormatException(text);
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Please enter a percentage, e.g. 10 or -15");
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.services;
+
+// Something that happened in the app, as carried by the EventBus. Instances are ring-buffer
+// slots that get overwritten once every consumer has passed them, so handlers must copy
+// out what they need and never keep a reference to the event itself.
+public final class DomainEvent {
+    public enum Type {
+        // subject: product name, quantity: units added
+        ITEM_ADDED_TO_CART,
+        // subject: customer username, quantity: change in cart units
+        CART_CHANGED,
+        // subject: customer username, quantity: order lines placed
+        ORDER_PLACED,
+        // subject: product id, quantity: new stock level
+        STOCK_CHANGED,
+        // subject: recipient username, quantity: 1
+        MESSAGE_SENT,
+        // subject: username of the signed-in recipient, quantity: 1
+        MESSAGE_RECEIVED,
+        // subject: table name as in ChangeFeed.CAPTURED_TABLES, quantity: rows changed by any client
+        ROWS_CHANGED
+    }
+
+    private Type type;
+    private String subject;
+    private long quantity;
+    private long timestamp;
+
+    DomainEvent() {
+    }
+
+    void set(Type type, String subject, long quantity, long timestamp) {
+        this.type = type;
+        this.subject = subject;
+        this.quantity = quantity;
+        this.timestamp = timestamp;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getSubject() {
+        return subject;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    // System.currentTimeMillis() at publish time
+    public long getTimestamp() {
+        return timestamp;
+    }
+}
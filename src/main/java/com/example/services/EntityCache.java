@@ -0,0 +1,104 @@
+package com.example.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
+
+// Bounded LRU cache of entities by id. It also remembers ids that were looked up and not
+// found (for a short while), so repeated lookups of a deleted row don't keep hitting the
+// database. Writers keep it current by calling put or invalidate after every write.
+// Loaders fill it with fill, which a write since the load began makes a no-op, so a slow
+// query can never put back a value that a write has already replaced.
+public class EntityCache<K, V> {
+    // Ids share write generations by hash, so the bookkeeping stays bounded; a write to one
+    // id of a stripe only costs the others a skipped fill
+    private static final int STAMP_STRIPES = 256;
+
+    private final int capacity;
+    private final long negativeTtlMillis;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Map<K, Entry<V>> entries;
+    private final long[] stamps = new long[STAMP_STRIPES];
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAt;
+
+        private Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    public EntityCache(int capacity, long negativeTtlMillis) {
+        this.capacity = capacity;
+        this.negativeTtlMillis = negativeTtlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > EntityCache.this.capacity;
+            }
+        };
+    }
+
+    // null when the cache knows nothing about the id; an empty Optional when the id is known
+    // not to exist
+    public synchronized Optional<V> get(K id) {
+        Entry<V> entry = entries.get(id);
+        if (entry != null && entry.value == null && entry.expiresAt < System.currentTimeMillis()) {
+            entries.remove(id);
+            entry = null;
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return Optional.ofNullable(entry.value);
+    }
+
+    public synchronized void put(K id, V value) {
+        stamps[stripe(id)]++;
+        entries.put(id, new Entry<>(value, Long.MAX_VALUE));
+    }
+
+    public synchronized void putMissing(K id) {
+        stamps[stripe(id)]++;
+        entries.put(id, new Entry<>(null, System.currentTimeMillis() + negativeTtlMillis));
+    }
+
+    public synchronized void invalidate(K id) {
+        stamps[stripe(id)]++;
+        entries.remove(id);
+    }
+
+    // Taken before loading the id; pass it to fill with what was loaded
+    public synchronized long stamp(K id) {
+        return stamps[stripe(id)];
+    }
+
+    // Caches a loaded value, or null for "not found", unless the id has been written since
+    // 'stamp' was taken. Returns whether it was cached.
+    public synchronized boolean fill(K id, V value, long stamp) {
+        if (stamps[stripe(id)] != stamp) {
+            return false;
+        }
+        entries.put(id, new Entry<>(value,
+                value != null ? Long.MAX_VALUE : System.currentTimeMillis() + negativeTtlMillis));
+        return true;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    private static int stripe(Object id) {
+        return Math.floorMod(id.hashCode(), STAMP_STRIPES);
+    }
+}
@@ -0,0 +1,245 @@
+package com.example.services;
+
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+// In-process domain events on a preallocated ring buffer, in the style of the LMAX
+// Disruptor. Publishers claim a sequence number, fill the slot in place and mark it
+// published; every consumer walks the ring at its own pace and handles everything that is
+// ready as one batch. Publishing allocates nothing. A publisher that would lap the slowest
+// consumer waits for it, so a stuck consumer slows the app down instead of losing events.
+public class EventBus {
+    private static final long IDLE_PARK_NANOS = 100_000;
+    private static final int SPIN_TRIES = 200;
+
+    public interface Handler {
+        // 'endOfBatch' is true on the last event that was ready, a good moment to apply
+        // whatever the batch accumulated
+        void onEvent(DomainEvent event, boolean endOfBatch);
+    }
+
+    public interface Subscription {
+        void close();
+    }
+
+    private final DomainEvent[] ring;
+    private final int mask;
+    // Slot i holds the sequence last published into it, so readers can tell a fresh slot
+    // from one still holding the previous lap
+    private final AtomicLongArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private volatile Consumer[] consumers = new Consumer[0];
+    private volatile PulseConsumer[] pulseConsumers = new PulseConsumer[0];
+    private volatile long cachedGatingSequence = -1;
+
+    private abstract class Consumer {
+        private final Handler handler;
+        // Last sequence this consumer has finished with
+        final AtomicLong sequence = new AtomicLong();
+
+        Consumer(Handler handler) {
+            this.handler = handler;
+            this.sequence.set(claimed.get());
+        }
+
+        // Handles every event that is ready and returns how many there were
+        int drainAvailable() {
+            long next = sequence.get() + 1;
+            long available = highestPublished(next, claimed.get());
+            for (long seq = next; seq <= available; seq++) {
+                try {
+                    handler.onEvent(ring[(int) seq & mask], seq == available);
+                } catch (RuntimeException e) {
+                    System.err.println("Event handler failed: " + e.getMessage());
+                }
+            }
+            if (available >= next) {
+                sequence.set(available);
+            }
+            return (int) (available - next + 1);
+        }
+    }
+
+    // Runs on its own daemon thread, spinning briefly and then parking while idle
+    private final class ThreadConsumer extends Consumer implements Subscription, Runnable {
+        private final Thread thread;
+        private volatile boolean running = true;
+
+        ThreadConsumer(String name, Handler handler) {
+            super(handler);
+            this.thread = new Thread(this, name + "-events");
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            int idle = 0;
+            while (running) {
+                if (drainAvailable() > 0) {
+                    idle = 0;
+                } else if (++idle < SPIN_TRIES) {
+                    Thread.onSpinWait();
+                } else {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            running = false;
+            remove(this);
+        }
+    }
+
+    // Drained by a task on a caller-supplied executor such as Platform::runLater. At most one
+    // task is queued at a time, so every pulse sees one batch with all events since the last.
+    private final class PulseConsumer extends Consumer implements Subscription {
+        private final Executor executor;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private final Runnable drainTask = this::drain;
+        // Known before the first pulse, so publishing from it can never deadlock
+        private volatile Thread drainThread;
+
+        PulseConsumer(Handler handler, Executor executor, Thread drainThread) {
+            super(handler);
+            this.executor = executor;
+            this.drainThread = drainThread;
+        }
+
+        void signal() {
+            if (!scheduled.get() && scheduled.compareAndSet(false, true)) {
+                executor.execute(drainTask);
+            }
+        }
+
+        void drain() {
+            drainThread = Thread.currentThread();
+            // Cleared first, so an event published while draining schedules another pass
+            scheduled.set(false);
+            drainAvailable();
+        }
+
+        @Override
+        public void close() {
+            remove(this);
+        }
+    }
+
+    // 'capacity' is rounded up to a power of two
+    public EventBus(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.ring = new DomainEvent[size];
+        for (int i = 0; i < size; i++) {
+            ring[i] = new DomainEvent();
+        }
+        this.mask = size - 1;
+        this.published = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+    }
+
+    // Handler runs on a dedicated background thread
+    public synchronized Subscription subscribe(String name, Handler handler) {
+        ThreadConsumer consumer = new ThreadConsumer(name, handler);
+        consumers = append(consumers, consumer);
+        consumer.thread.start();
+        return consumer;
+    }
+
+    // Handler runs on whatever thread 'endOfPulse' runs tasks on, once per pulse. Must be
+    // called on that thread, e.g. the FX thread for Platform::runLater.
+    public synchronized Subscription subscribe(Handler handler, Executor endOfPulse) {
+        PulseConsumer consumer = new PulseConsumer(handler, endOfPulse, Thread.currentThread());
+        consumers = append(consumers, consumer);
+        pulseConsumers = append(pulseConsumers, consumer);
+        return consumer;
+    }
+
+    public void publish(DomainEvent.Type type, String subject, long quantity) {
+        long seq = claim();
+        ring[(int) seq & mask].set(type, subject, quantity, System.currentTimeMillis());
+        published.set((int) seq & mask, seq);
+        PulseConsumer[] pulses = pulseConsumers;
+        for (int i = 0; i < pulses.length; i++) {
+            pulses[i].signal();
+        }
+    }
+
+    // Events published so far
+    public long getPublished() {
+        return claimed.get() + 1;
+    }
+
+    public void close() {
+        for (Consumer consumer : consumers) {
+            ((Subscription) consumer).close();
+        }
+    }
+
+    private long claim() {
+        while (true) {
+            long current = claimed.get();
+            long next = current + 1;
+            long wrapPoint = next - ring.length;
+            if (wrapPoint > cachedGatingSequence) {
+                long gating = minimumSequence(current);
+                cachedGatingSequence = gating;
+                if (wrapPoint > gating) {
+                    waitForConsumers();
+                    continue;
+                }
+            }
+            if (claimed.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    // Back-pressure. A publisher on the thread that drains a pulse consumer drains it here,
+    // since that consumer cannot catch up while its own thread is blocked publishing.
+    private void waitForConsumers() {
+        Thread self = Thread.currentThread();
+        for (PulseConsumer consumer : pulseConsumers) {
+            if (consumer.drainThread == self) {
+                consumer.drainAvailable();
+            }
+        }
+        LockSupport.parkNanos(1000);
+    }
+
+    private long minimumSequence(long fallback) {
+        long min = fallback;
+        Consumer[] all = consumers;
+        for (int i = 0; i < all.length; i++) {
+            min = Math.min(min, all[i].sequence.get());
+        }
+        return min;
+    }
+
+    // Highest sequence from 'from' on that every slot up to it has been published
+    private long highestPublished(long from, long upTo) {
+        for (long seq = from; seq <= upTo; seq++) {
+            if (published.get((int) seq & mask) != seq) {
+                return seq - 1;
+            }
+        }
+        return upTo;
+    }
+
+    private synchronized void remove(Consumer consumer) {
+        consumers = Arrays.stream(consumers).filter(c -> c != consumer).toArray(Consumer[]::new);
+        pulseConsumers = Arrays.stream(pulseConsumers).filter(c -> c != consumer).toArray(PulseConsumer[]::new);
+    }
+
+    private static <T> T[] append(T[] array, T element) {
+        T[] copy = Arrays.copyOf(array, array.length + 1);
+        copy[array.length] = element;
+        return copy;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.services;
+
+import com.example.db.AccountStore;
+import com.example.models.GeoPoint;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Where the farms are: every farmer's free-text location geocoded with the Gazetteer into
+// a GeoGridIndex, so "farms within R km" is answered from memory. Farms whose location the
+// gazetteer does not know are left out. Built once with loadAll and then kept current with
+// refresh for the farmers the change feed reports.
+public class FarmLocator {
+    private final AccountStore accounts;
+    private final Gazetteer gazetteer;
+    private final GeoGridIndex farms = new GeoGridIndex();
+    private volatile boolean loaded;
+
+    public FarmLocator(AccountStore accounts, Gazetteer gazetteer) {
+        this.accounts = accounts;
+        this.gazetteer = gazetteer;
+    }
+
+    // Reads every farmer's location; until this has run no farm is near anything
+    public void loadAll() throws SQLException {
+        accounts.forEachFarmLocation(this::place);
+        loaded = true;
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    // Re-reads these farmers' locations, dropping the ones that no longer exist
+    public void refresh(Collection<String> farmerIds) throws SQLException {
+        Map<Long, String> locations = accounts.findFarmLocations(farmerIds);
+        for (String id : farmerIds) {
+            long farmerId;
+            try {
+                farmerId = Long.parseLong(id);
+            } catch (NumberFormatException e) {
+                continue;
+            }
+            if (locations.containsKey(farmerId)) {
+                place(farmerId, locations.get(farmerId));
+            } else {
+                farms.remove(farmerId);
+            }
+        }
+    }
+
+    // Geocodes any address, e.g. a customer's, with the same gazetteer as the farms
+    public GeoPoint locate(String address) {
+        return gazetteer.geocode(address);
+    }
+
+    public int size() {
+        return farms.size();
+    }
+
+    // Up to 'limit' farmer ids within 'radiusKm' of 'point', nearest first
+    public List<GeoGridIndex.Hit> farmsNear(GeoPoint point, double radiusKm, int limit) {
+        return farms.within(point, radiusKm, limit);
+    }
+
+    private void place(long farmerId, String location) {
+        GeoPoint point = gazetteer.geocode(location);
+        if (point == null) {
+            farms.remove(farmerId);
+        } else {
+            farms.put(farmerId, point);
+        }
+    }
+}
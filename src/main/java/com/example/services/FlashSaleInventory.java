@@ -0,0 +1,375 @@
+package com.example.services;
+
+import com.example.db.Database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+// In-memory stock for products in flash-sale mode. Reservations come out of striped
+// atomic counters with CAS, so concurrent "Add to Cart" clicks never queue on a row lock
+// and can never take more than what is left. Confirmed quantities are folded per product
+// and written to the Product table in one batch per flush interval.
+public class FlashSaleInventory {
+    private static final int STRIPES = 8;
+    private static final long RESERVATION_TTL_MILLIS = TimeUnit.MINUTES.toMillis(10);
+    private static final long SWEEP_INTERVAL_MILLIS = 1000;
+    private static final long FLUSH_INTERVAL_MILLIS = 2000;
+
+    private final Map<String, Stock> stocks = new ConcurrentHashMap<>();
+    private final Map<String, Reservation> reservations = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> confirmed = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "flash-sale");
+        t.setDaemon(true);
+        return t;
+    });
+    private final Consumer<Map<String, Integer>> onFlushed;
+
+    // Stock split over several counters so concurrent reservers mostly CAS different cache lines
+    private static class Stock {
+        private final AtomicIntegerArray stripes = new AtomicIntegerArray(STRIPES * 16);
+
+        private Stock(int quantity) {
+            for (int i = 0; i < STRIPES; i++) {
+                stripes.set(slot(i), quantity / STRIPES + (i < quantity % STRIPES ? 1 : 0));
+            }
+        }
+
+        // Padded so neighbouring stripes do not share a cache line
+        private static int slot(int stripe) {
+            return stripe * 16;
+        }
+
+        // Takes up to 'wanted' units from a single stripe and returns how many it got
+        private int take(int stripe, int wanted) {
+            int index = slot(stripe);
+            while (true) {
+                int current = stripes.get(index);
+                if (current == 0) {
+                    return 0;
+                }
+                int taken = Math.min(current, wanted);
+                if (stripes.compareAndSet(index, current, current - taken)) {
+                    return taken;
+                }
+            }
+        }
+
+        // Takes all 'wanted' units from a single stripe, or nothing
+        private boolean takeAll(int stripe, int wanted) {
+            int index = slot(stripe);
+            while (true) {
+                int current = stripes.get(index);
+                if (current < wanted) {
+                    return false;
+                }
+                if (stripes.compareAndSet(index, current, current - wanted)) {
+                    return true;
+                }
+            }
+        }
+
+        private void giveBack(int stripe, int quantity) {
+            stripes.addAndGet(slot(stripe), quantity);
+        }
+
+        // Lock-free when one stripe has enough, which is nearly always while stock lasts. Only
+        // a reservation that has to be pieced together from several stripes takes the lock,
+        // so partial takes are held by one reserver at a time and two buyers near the end of
+        // the stock can never both fail on each other's partial takes.
+        private boolean reserve(int quantity) {
+            int home = ThreadLocalRandom.current().nextInt(STRIPES);
+            for (int i = 0; i < STRIPES; i++) {
+                if (takeAll((home + i) % STRIPES, quantity)) {
+                    return true;
+                }
+            }
+            return reserveAcrossStripes(home, quantity);
+        }
+
+        private synchronized boolean reserveAcrossStripes(int home, int quantity) {
+            int[] takenPerStripe = new int[STRIPES];
+            int remaining = quantity;
+            for (int i = 0; i < STRIPES && remaining > 0; i++) {
+                int stripe = (home + i) % STRIPES;
+                int taken = take(stripe, remaining);
+                takenPerStripe[stripe] = taken;
+                remaining -= taken;
+            }
+            if (remaining > 0) {
+                // Not enough left overall: undo the partial takes
+                for (int i = 0; i < STRIPES; i++) {
+                    if (takenPerStripe[i] > 0) {
+                        giveBack(i, takenPerStripe[i]);
+                    }
+                }
+                return false;
+            }
+            return true;
+        }
+
+        private void release(int quantity) {
+            giveBack(ThreadLocalRandom.current().nextInt(STRIPES), quantity);
+        }
+
+        private int available() {
+            int total = 0;
+            for (int i = 0; i < STRIPES; i++) {
+                total += stripes.get(slot(i));
+            }
+            return total;
+        }
+    }
+
+    // One customer's hold on one product. State is replaced wholesale with CAS so a
+    // reservation is never both confirmed and expired.
+    private static class Reservation {
+        private final String productId;
+        private final AtomicReference<Hold> hold;
+
+        private Reservation(String productId, Hold hold) {
+            this.productId = productId;
+            this.hold = new AtomicReference<>(hold);
+        }
+    }
+
+    private static final class Hold {
+        private final int quantity;
+        private final long expiresAt;
+
+        private Hold(int quantity, long expiresAt) {
+            this.quantity = quantity;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final Hold CLOSED = new Hold(0, 0);
+
+    public FlashSaleInventory(Consumer<Map<String, Integer>> onFlushed) {
+        this.onFlushed = onFlushed;
+        scheduler.scheduleWithFixedDelay(this::sweepExpired, SWEEP_INTERVAL_MILLIS, SWEEP_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    // Returns false, changing nothing, if the product is already on sale; replacing its
+    // stock would lose track of the units customers are holding
+    public boolean startSale(String productId, int quantity) {
+        return stocks.putIfAbsent(productId, new Stock(quantity)) == null;
+    }
+
+    // Ends the sale and returns how many units nobody had reserved. Those were only ever
+    // counted here, never taken off the Product row, so they are simply back in regular
+    // stock. Holds already taken can still be confirmed until they expire.
+    public int stopSale(String productId) {
+        Stock stock = stocks.remove(productId);
+        return stock == null ? 0 : stock.available();
+    }
+
+    public boolean isOnSale(String productId) {
+        return productId != null && stocks.containsKey(productId);
+    }
+
+    public int available(String productId) {
+        Stock stock = stocks.get(productId);
+        return stock == null ? 0 : stock.available();
+    }
+
+    // Reserves more units for the customer and refreshes the hold's TTL. Returns false when
+    // the product is sold out or not on sale.
+    public boolean reserve(String customer, String productId, int quantity) {
+        Stock stock = stocks.get(productId);
+        if (stock == null || !stock.reserve(quantity)) {
+            return false;
+        }
+        String key = key(customer, productId);
+        while (true) {
+            long expiresAt = System.currentTimeMillis() + RESERVATION_TTL_MILLIS;
+            Reservation reservation = reservations.computeIfAbsent(key,
+                    k -> new Reservation(productId, new Hold(0, expiresAt)));
+            Hold current = reservation.hold.get();
+            if (current == CLOSED) {
+                // Raced with expiry or confirmation; start a fresh reservation
+                reservations.remove(key, reservation);
+                continue;
+            }
+            if (reservation.hold.compareAndSet(current, new Hold(current.quantity + quantity, expiresAt))) {
+                return true;
+            }
+        }
+    }
+
+    // Gives back up to 'quantity' held units, e.g. when a cart line is decremented or removed
+    public void release(String customer, String productId, int quantity) {
+        Reservation reservation = reservations.get(key(customer, productId));
+        if (reservation == null) {
+            return;
+        }
+        while (true) {
+            Hold current = reservation.hold.get();
+            if (current == CLOSED) {
+                return;
+            }
+            int released = Math.min(quantity, current.quantity);
+            Hold next = current.quantity == released ? CLOSED : new Hold(current.quantity - released, current.expiresAt);
+            if (reservation.hold.compareAndSet(current, next)) {
+                if (next == CLOSED) {
+                    reservations.remove(key(customer, productId), reservation);
+                }
+                returnStock(reservation.productId, released);
+                return;
+            }
+        }
+    }
+
+    // Stops the customer's hold from expiring while their order is written; follow with
+    // confirm once the order is saved, or release if it could not be. Returns false if the
+    // hold already expired.
+    public boolean holdForCheckout(String customer, String productId) {
+        Reservation reservation = reservations.get(key(customer, productId));
+        if (reservation == null) {
+            return false;
+        }
+        while (true) {
+            Hold current = reservation.hold.get();
+            if (current == CLOSED || current.expiresAt < System.currentTimeMillis()) {
+                return false;
+            }
+            if (reservation.hold.compareAndSet(current, new Hold(current.quantity, Long.MAX_VALUE))) {
+                return true;
+            }
+        }
+    }
+
+    // Undoes holdForCheckout when checkout is abandoned: the hold expires as usual again
+    public void cancelCheckout(String customer, String productId) {
+        Reservation reservation = reservations.get(key(customer, productId));
+        if (reservation == null) {
+            return;
+        }
+        while (true) {
+            Hold current = reservation.hold.get();
+            if (current == CLOSED || reservation.hold.compareAndSet(current,
+                    new Hold(current.quantity, System.currentTimeMillis() + RESERVATION_TTL_MILLIS))) {
+                return;
+            }
+        }
+    }
+
+    // Turns the customer's hold into a sale. Returns false if it already expired.
+    public boolean confirm(String customer, String productId) {
+        Reservation reservation = reservations.get(key(customer, productId));
+        if (reservation == null) {
+            return false;
+        }
+        Hold current;
+        do {
+            current = reservation.hold.get();
+            if (current == CLOSED || current.expiresAt < System.currentTimeMillis()) {
+                return false;
+            }
+        } while (!reservation.hold.compareAndSet(current, CLOSED));
+        reservations.remove(key(customer, productId), reservation);
+        confirmed.computeIfAbsent(productId, k -> new LongAdder()).add(current.quantity);
+        return true;
+    }
+
+    public void close() {
+        scheduler.shutdown();
+        flushQuietly();
+    }
+
+    private void returnStock(String productId, int quantity) {
+        Stock stock = stocks.get(productId);
+        if (stock != null && quantity > 0) {
+            stock.release(quantity);
+        }
+    }
+
+    private void sweepExpired() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Reservation> entry : reservations.entrySet()) {
+            Reservation reservation = entry.getValue();
+            Hold current = reservation.hold.get();
+            if (current != CLOSED && current.expiresAt < now && reservation.hold.compareAndSet(current, CLOSED)) {
+                reservations.remove(entry.getKey(), reservation);
+                returnStock(reservation.productId, current.quantity);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            System.err.println("Failed to flush flash-sale orders: " + e.getMessage());
+        }
+    }
+
+    private synchronized void flush() throws SQLException {
+        Map<String, Integer> sold = new HashMap<>();
+        for (Map.Entry<String, LongAdder> entry : confirmed.entrySet()) {
+            int quantity = (int) entry.getValue().sumThenReset();
+            if (quantity > 0) {
+                sold.put(entry.getKey(), quantity);
+            }
+        }
+        if (sold.isEmpty()) {
+            return;
+        }
+
+        try (Connection connection = Database.open();
+                PreparedStatement ps = connection.prepareStatement(
+                        "UPDATE Product SET quantity = quantity - ? WHERE id = ?")) {
+            connection.setAutoCommit(false);
+            for (Map.Entry<String, Integer> entry : sold.entrySet()) {
+                Long id = parseId(entry.getKey());
+                if (id == null) {
+                    // Product has not been saved yet, so there is no row to update
+                    continue;
+                }
+                ps.setInt(1, entry.getValue());
+                ps.setLong(2, id);
+                ps.addBatch();
+            }
+            try {
+                ps.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                for (Map.Entry<String, Integer> entry : sold.entrySet()) {
+                    confirmed.computeIfAbsent(entry.getKey(), k -> new LongAdder()).add(entry.getValue());
+                }
+                throw e;
+            }
+        }
+        if (onFlushed != null) {
+            onFlushed.accept(sold);
+        }
+    }
+
+    private static Long parseId(String productId) {
+        try {
+            return Long.valueOf(productId);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String key(String customer, String productId) {
+        return customer + '\u0000' + productId;
+    }
+}
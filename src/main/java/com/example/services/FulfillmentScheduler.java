@@ -0,0 +1,224 @@
+package com.example.services;
+
+import com.example.models.Order;
+import com.example.models.OrderStatus;
+
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+// A farmer's orders waiting to be packed, kept in an IndexedPriorityQueue by a weighted
+// score, so an order that arrives or changes is placed in O(log n) and the "pack next"
+// list is read off the top of the heap. Must only be used from one thread.
+public class FulfillmentScheduler {
+    private static final double MILLIS_PER_HOUR = 60 * 60 * 1000;
+
+    // Rough perishability by product name, 1 spoiling within days and 0 keeping for months;
+    // products carry no shelf life of their own. Keys are word stems; see perishability.
+    private static final Map<String, Double> PERISHABILITY = new HashMap<>();
+    // What may follow a stem in a word it matches: "pears", "tomatoes", "berry", "berries"
+    private static final List<String> ENDINGS = List.of("", "s", "es", "y", "ies");
+
+    static {
+        for (String word : List.of("berr", "lettuce", "spinach", "greens", "herb", "basil", "mushroom", "milk",
+                "cream", "fish", "flower")) {
+            PERISHABILITY.put(word, 1.0);
+        }
+        for (String word : List.of("tomato", "peach", "plum", "corn", "kale", "bean", "pea", "meat", "chicken",
+                "beef", "pork", "egg", "cheese", "bread")) {
+            PERISHABILITY.put(word, 0.6);
+        }
+        for (String word : List.of("apple", "pear", "potato", "onion", "garlic", "carrot", "beet", "squash",
+                "pumpkin", "cabbage", "honey", "jam", "grain", "flour", "nut")) {
+            PERISHABILITY.put(word, 0.1);
+        }
+    }
+
+    private static final double DEFAULT_PERISHABILITY = 0.4;
+
+    // Points per unit of each factor; an order's score is their sum and the highest score
+    // is packed first. A negative weight favours the other end, e.g. nearer customers.
+    public static final class Weights {
+        public static final Weights DEFAULT = new Weights(1, 0.5, 24, 0.1);
+
+        private final double perHourWaiting;
+        private final double perKilometre;
+        private final double perishability;
+        private final double perUnit;
+
+        public Weights(double perHourWaiting, double perKilometre, double perishability, double perUnit) {
+            this.perHourWaiting = perHourWaiting;
+            this.perKilometre = perKilometre;
+            this.perishability = perishability;
+            this.perUnit = perUnit;
+        }
+
+        public double getPerHourWaiting() {
+            return perHourWaiting;
+        }
+
+        public double getPerKilometre() {
+            return perKilometre;
+        }
+
+        // Points for the most perishable products, scaled down for longer-keeping ones
+        public double getPerishability() {
+            return perishability;
+        }
+
+        public double getPerUnit() {
+            return perUnit;
+        }
+    }
+
+    // One product to pick: how many units in total and for how many orders
+    public static final class PickLine {
+        private final String productName;
+        private int quantity;
+        private int orders;
+
+        private PickLine(String productName) {
+            this.productName = productName;
+        }
+
+        public String getProductName() {
+            return productName;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public int getOrders() {
+            return orders;
+        }
+    }
+
+    // Ties go to the older order, i.e. the lower id
+    private final IndexedPriorityQueue<Long> queue = new IndexedPriorityQueue<>(Comparator.naturalOrder());
+    private final Map<Long, Order> orders = new HashMap<>();
+    private final ToDoubleFunction<Order> distanceKm;
+    private Weights weights;
+
+    // 'distanceKm' gives how far an order travels, or NaN when that is not known
+    public FulfillmentScheduler(Weights weights, ToDoubleFunction<Order> distanceKm) {
+        this.weights = weights;
+        this.distanceKm = distanceKm;
+    }
+
+    // Queues, requeues or drops the order as its status requires
+    public void update(Order order) {
+        if (!isWaiting(order.getStatus())) {
+            remove(order.getId());
+            return;
+        }
+        orders.put(order.getId(), order);
+        queue.put(order.getId(), score(order));
+    }
+
+    public void remove(long orderId) {
+        if (queue.remove(orderId)) {
+            orders.remove(orderId);
+        }
+    }
+
+    public Weights getWeights() {
+        return weights;
+    }
+
+    // Rescores every queued order
+    public void setWeights(Weights weights) {
+        this.weights = weights;
+        for (Order order : orders.values()) {
+            queue.put(order.getId(), score(order));
+        }
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    // The next 'limit' orders to pack, most urgent first
+    public List<Order> packNext(int limit) {
+        List<Order> next = new ArrayList<>();
+        for (long id : queue.top(limit)) {
+            next.add(orders.get(id));
+        }
+        return next;
+    }
+
+    // What to pick for the next 'orderCount' orders, e.g. a day's packing, by product with
+    // the most units first
+    public List<PickLine> pickList(int orderCount) {
+        Map<String, PickLine> lines = new LinkedHashMap<>();
+        for (Order order : packNext(orderCount)) {
+            PickLine line = lines.computeIfAbsent(order.getProductName(), PickLine::new);
+            line.quantity += order.getQuantity();
+            line.orders++;
+        }
+        List<PickLine> pickList = new ArrayList<>(lines.values());
+        pickList.sort((a, b) -> Integer.compare(b.quantity, a.quantity));
+        return pickList;
+    }
+
+    // Pending orders are packed once accepted, so both are waiting; packed and finished ones are not
+    public static boolean isWaiting(OrderStatus status) {
+        return status == OrderStatus.PENDING || status == OrderStatus.ACCEPTED;
+    }
+
+    // A stem matches a word that ends with it plus one of ENDINGS, so "strawberries" is a
+    // berry but "peanut" is a nut, not a pea, and "eggplant" is not an egg. Where several
+    // stems fit a word the longest wins ("pear" over "pea"). Words are tried from the last,
+    // which usually names the product: "corn flour" keeps like flour.
+    public static double perishability(String productName) {
+        if (productName != null) {
+            String[] words = productName.toLowerCase(Locale.ROOT).split("[^\\p{L}]+");
+            for (int i = words.length - 1; i >= 0; i--) {
+                String best = null;
+                for (String stem : PERISHABILITY.keySet()) {
+                    if ((best == null || stem.length() > best.length()) && matches(words[i], stem)) {
+                        best = stem;
+                    }
+                }
+                if (best != null) {
+                    return PERISHABILITY.get(best);
+                }
+            }
+        }
+        return DEFAULT_PERISHABILITY;
+    }
+
+    private static boolean matches(String word, String stem) {
+        for (String ending : ENDINGS) {
+            if (word.endsWith(stem + ending)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Waiting time is scored from the order time rather than from now. Every queued order
+    // ages at the same rate, so the order of the queue holds as time passes and nothing
+    // needs rescoring.
+    private double score(Order order) {
+        double score = 0;
+        if (order.getOrderDate() != null) {
+            double placedHours = order.getOrderDate().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                    / MILLIS_PER_HOUR;
+            score -= weights.perHourWaiting * placedHours;
+        }
+        double distance = distanceKm.applyAsDouble(order);
+        if (!Double.isNaN(distance)) {
+            score += weights.perKilometre * distance;
+        }
+        score += weights.perishability * perishability(order.getProductName());
+        score += weights.perUnit * order.getQuantity();
+        return score;
+    }
+}
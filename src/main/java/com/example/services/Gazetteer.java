@@ -0,0 +1,248 @@
+package com.example.services;
+
+import com.example.models.GeoPoint;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Offline geocoder for the free-text addresses farmers and customers type in, e.g.
+// "123 Farm Road, Green Valley, CA 90210". Looks the town up in a bundled gazetteer of US
+// states, towns and ZIP prefixes, so it needs no network and answers in microseconds. The
+// result is as precise as the gazetteer: the town's centre, else the state's centre.
+public class Gazetteer {
+    private static final String BUNDLED = "/com/example/gazetteer.tsv";
+
+    private static final class Place {
+        private final String state;
+        private final GeoPoint point;
+
+        private Place(String state, GeoPoint point) {
+            this.state = state;
+            this.point = point;
+        }
+    }
+
+    // One word of the address and which comma-separated part it was in
+    private static final class Word {
+        private final String text;
+        private final int part;
+
+        private Word(String text, int part) {
+            this.text = text;
+            this.part = part;
+        }
+    }
+
+    private final Map<String, GeoPoint> stateCentres = new HashMap<>();
+    // Lower-case full state name -> state code
+    private final Map<String, String> stateNames = new HashMap<>();
+    // Lower-case town name -> towns of that name, in gazetteer order
+    private final Map<String, List<Place>> places = new HashMap<>();
+    private final String[] zipStates = new String[1000];
+    private int longestName = 1;
+
+    public Gazetteer(InputStream tsv) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(tsv, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split("\t");
+                if (fields.length != 5) {
+                    throw new IOException("Bad gazetteer line: " + line);
+                }
+                String state = fields[1];
+                String name = normalize(fields[2]);
+                try {
+                    switch (fields[0]) {
+                        case "S":
+                            stateCentres.put(state, point(fields));
+                            stateNames.put(name, state);
+                            stateNames.put(state.toLowerCase(Locale.ROOT), state);
+                            break;
+                        case "P":
+                            places.computeIfAbsent(name, key -> new ArrayList<>()).add(new Place(state, point(fields)));
+                            longestName = Math.max(longestName, name.split(" ").length);
+                            break;
+                        case "Z":
+                            for (int prefix = Integer.parseInt(fields[3]); prefix <= Integer.parseInt(fields[4]); prefix++) {
+                                zipStates[prefix] = state;
+                            }
+                            break;
+                        default:
+                            throw new IOException("Bad gazetteer line: " + line);
+                    }
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad gazetteer line: " + line, e);
+                }
+            }
+        }
+        for (String name : stateNames.keySet()) {
+            longestName = Math.max(longestName, name.split(" ").length);
+        }
+    }
+
+    // The gazetteer shipped with the app
+    public static Gazetteer bundled() throws IOException {
+        InputStream tsv = Gazetteer.class.getResourceAsStream(BUNDLED);
+        if (tsv == null) {
+            throw new IOException("Missing resource " + BUNDLED);
+        }
+        return new Gazetteer(tsv);
+    }
+
+    // Where the address is, or null when it names no known town, state or ZIP code. The
+    // state comes from a code or name after the first comma, else from the ZIP code; the
+    // town is the rightmost known name in that state. A town named without a state that
+    // exists in several states resolves to the first one in the gazetteer.
+    public GeoPoint geocode(String address) {
+        if (address == null || address.isBlank()) {
+            return null;
+        }
+        List<Word> words = words(address);
+        int lastPart = words.isEmpty() ? 0 : words.get(words.size() - 1).part;
+
+        // State: rightmost state code or name that is not the street part
+        String state = null;
+        int stateStart = words.size();
+        int stateEnd = words.size();
+        for (int end = words.size(); end > 0 && state == null; end--) {
+            for (int length = Math.min(longestName, end); length >= 1; length--) {
+                int start = end - length;
+                if (!samePart(words, start, end) || (words.get(start).part == 0 && lastPart > 0)) {
+                    continue;
+                }
+                String code = stateNames.get(join(words, start, end));
+                if (code != null && (length > 1 || words.get(start).part > 0 || followedByZip(words, end)
+                        || (end == words.size() && start > 0))) {
+                    state = code;
+                    stateStart = start;
+                    stateEnd = end;
+                    break;
+                }
+            }
+        }
+        if (state == null) {
+            state = zipState(words);
+        }
+
+        // Town: rightmost known name before the state, preferring one in the state and
+        // skipping the street when there are parts after it. Failing that, the state's own
+        // name may be a town too, as in "New York".
+        for (int end = stateStart; end > 0; end--) {
+            for (int length = Math.min(longestName, end); length >= 1; length--) {
+                int start = end - length;
+                if (samePart(words, start, end) && (words.get(start).part > 0 || lastPart < 2)) {
+                    GeoPoint town = town(join(words, start, end), state);
+                    if (town != null) {
+                        return town;
+                    }
+                }
+            }
+        }
+        if (state == null) {
+            return null;
+        }
+        GeoPoint town = stateStart < stateEnd ? town(join(words, stateStart, stateEnd), state) : null;
+        return town != null ? town : stateCentres.get(state);
+    }
+
+    // The first town of this name, in 'state' unless that is null
+    private GeoPoint town(String name, String state) {
+        List<Place> candidates = places.get(name);
+        if (candidates != null) {
+            for (Place place : candidates) {
+                if (state == null || place.state.equals(state)) {
+                    return place.point;
+                }
+            }
+        }
+        return null;
+    }
+
+    private String zipState(List<Word> words) {
+        for (int i = words.size() - 1; i >= 0; i--) {
+            String text = words.get(i).text;
+            if (isZip(text)) {
+                return zipStates[Integer.parseInt(text.substring(0, 3))];
+            }
+        }
+        return null;
+    }
+
+    private static boolean followedByZip(List<Word> words, int index) {
+        return index < words.size() && isZip(words.get(index).text);
+    }
+
+    // Five digits, or ZIP+4 once the dash is gone
+    private static boolean isZip(String text) {
+        if (text.length() != 5 && text.length() != 9) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean samePart(List<Word> words, int start, int end) {
+        return words.get(start).part == words.get(end - 1).part;
+    }
+
+    private static String join(List<Word> words, int start, int end) {
+        StringBuilder name = new StringBuilder(words.get(start).text);
+        for (int i = start + 1; i < end; i++) {
+            name.append(' ').append(words.get(i).text);
+        }
+        return name.toString();
+    }
+
+    private static List<Word> words(String address) {
+        List<Word> words = new ArrayList<>();
+        String[] parts = address.split("[,\n]");
+        int part = 0;
+        for (String text : parts) {
+            String normalized = normalize(text);
+            if (normalized.isEmpty()) {
+                continue;
+            }
+            for (String word : normalized.split(" ")) {
+                words.add(new Word(word, part));
+            }
+            part++;
+        }
+        return words;
+    }
+
+    // Lower case letters and digits separated by single spaces; "St. Louis" reads as "st louis"
+    private static String normalize(String text) {
+        StringBuilder normalized = new StringBuilder();
+        for (char c : text.toLowerCase(Locale.ROOT).toCharArray()) {
+            if (c == '.' || c == '\'' || c == '-' && normalized.length() > 0
+                    && Character.isDigit(normalized.charAt(normalized.length() - 1))) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                normalized.append(c);
+            } else if (normalized.length() > 0 && normalized.charAt(normalized.length() - 1) != ' ') {
+                normalized.append(' ');
+            }
+        }
+        return normalized.toString().trim();
+    }
+
+    private static GeoPoint point(String[] fields) {
+        return new GeoPoint(Double.parseDouble(fields[3]), Double.parseDouble(fields[4]));
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.services;
+
+import com.example.models.GeoPoint;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// In-memory spatial index of ids by position: a grid of fixed cells of latitude and
+// longitude, so a radius query reads only the cells its bounding box touches and measures
+// just the points in them, however many points there are in all. Thread-safe.
+public class GeoGridIndex {
+    // About 55 km of latitude; a cell holds the points of a region, not of a whole state
+    private static final double CELL_DEGREES = 0.5;
+    private static final int LON_CELLS = (int) Math.ceil(360 / CELL_DEGREES);
+    private static final double KM_PER_DEGREE = 111.195;
+
+    public static final class Hit {
+        private final long id;
+        private final double distanceKm;
+
+        private Hit(long id, double distanceKm) {
+            this.id = id;
+            this.distanceKm = distanceKm;
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public double getDistanceKm() {
+            return distanceKm;
+        }
+    }
+
+    // The points in one cell as parallel arrays, unordered
+    private static final class Cell {
+        private long[] ids = new long[4];
+        private double[] latitudes = new double[4];
+        private double[] longitudes = new double[4];
+        private int size;
+
+        private void add(long id, GeoPoint point) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                latitudes = Arrays.copyOf(latitudes, size * 2);
+                longitudes = Arrays.copyOf(longitudes, size * 2);
+            }
+            ids[size] = id;
+            latitudes[size] = point.getLatitude();
+            longitudes[size] = point.getLongitude();
+            size++;
+        }
+
+        // Moves the last point into the removed one's slot
+        private void remove(long id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    latitudes[i] = latitudes[size];
+                    longitudes[i] = longitudes[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private final Map<Long, Cell> cells = new HashMap<>();
+    // id -> key of the cell it is in
+    private final Map<Long, Long> cellOf = new HashMap<>();
+
+    public synchronized int size() {
+        return cellOf.size();
+    }
+
+    // Adds the id at 'point', or moves it there if it is already indexed
+    public synchronized void put(long id, GeoPoint point) {
+        remove(id);
+        long key = cellKey(latCell(point.getLatitude()), lonCell(point.getLongitude()));
+        cells.computeIfAbsent(key, k -> new Cell()).add(id, point);
+        cellOf.put(id, key);
+    }
+
+    public synchronized boolean remove(long id) {
+        Long key = cellOf.remove(id);
+        if (key == null) {
+            return false;
+        }
+        Cell cell = cells.get(key);
+        cell.remove(id);
+        if (cell.size == 0) {
+            cells.remove(key);
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+        cellOf.clear();
+    }
+
+    // Up to 'limit' ids within 'radiusKm' of 'centre', nearest first
+    public synchronized List<Hit> within(GeoPoint centre, double radiusKm, int limit) {
+        List<Hit> hits = new ArrayList<>();
+        if (limit <= 0 || radiusKm < 0) {
+            return hits;
+        }
+        double lat = centre.getLatitude();
+        double lon = centre.getLongitude();
+        double latSpan = radiusKm / KM_PER_DEGREE;
+        double minLat = Math.max(-90, lat - latSpan);
+        double maxLat = Math.min(90, lat + latSpan);
+        // A degree of longitude is shortest at the box's edge furthest from the equator
+        double widest = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        double lonSpan = widest <= 0 ? 180 : radiusKm / (KM_PER_DEGREE * widest);
+
+        Set<Integer> lonCells = new LinkedHashSet<>();
+        if (lonSpan >= 180) {
+            for (int i = 0; i < LON_CELLS; i++) {
+                lonCells.add(i);
+            }
+        } else {
+            int first = (int) Math.floor((lon - lonSpan + 180) / CELL_DEGREES);
+            int last = (int) Math.floor((lon + lonSpan + 180) / CELL_DEGREES);
+            for (int i = first; i <= last; i++) {
+                lonCells.add(Math.floorMod(i, LON_CELLS));
+            }
+        }
+        for (int latCell = latCell(minLat); latCell <= latCell(maxLat); latCell++) {
+            for (int lonCell : lonCells) {
+                Cell cell = cells.get(cellKey(latCell, lonCell));
+                if (cell == null) {
+                    continue;
+                }
+                for (int i = 0; i < cell.size; i++) {
+                    double distance = GeoPoint.distanceKm(lat, lon, cell.latitudes[i], cell.longitudes[i]);
+                    if (distance <= radiusKm) {
+                        hits.add(new Hit(cell.ids[i], distance));
+                    }
+                }
+            }
+        }
+        hits.sort((a, b) -> a.distanceKm != b.distanceKm
+                ? Double.compare(a.distanceKm, b.distanceKm) : Long.compare(a.id, b.id));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+
+    private static int latCell(double latitude) {
+        return (int) Math.floor((latitude + 90) / CELL_DEGREES);
+    }
+
+    // Longitudes wrap, so 180 and -180 share a cell column
+    private static int lonCell(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / CELL_DEGREES), LON_CELLS);
+    }
+
+    private static long cellKey(int latCell, int lonCell) {
+        return ((long) latCell << 32) | lonCell;
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Binary max-heap of keys by priority that also knows where each key sits, so a key's
+// priority can be changed or the key removed in O(log n) without searching the heap.
+// Equal priorities are ordered by 'tieBreak', smallest first. Not thread-safe.
+public final class IndexedPriorityQueue<K> {
+    private final Comparator<? super K> tieBreak;
+    private final Map<K, Integer> positions = new HashMap<>();
+    private Object[] keys = new Object[16];
+    private double[] priorities = new double[16];
+    private int size;
+
+    public IndexedPriorityQueue(Comparator<? super K> tieBreak) {
+        this.tieBreak = tieBreak;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(K key) {
+        return positions.containsKey(key);
+    }
+
+    // Adds the key, or moves it to its new place if it is already queued
+    public void put(K key, double priority) {
+        Integer position = positions.get(key);
+        if (position != null) {
+            double old = priorities[position];
+            priorities[position] = priority;
+            if (priority > old) {
+                siftUp(position);
+            } else {
+                siftDown(position);
+            }
+            return;
+        }
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        keys[size] = key;
+        priorities[size] = priority;
+        positions.put(key, size);
+        siftUp(size++);
+    }
+
+    public boolean remove(K key) {
+        Integer position = positions.remove(key);
+        if (position == null) {
+            return false;
+        }
+        int last = --size;
+        if (position != last) {
+            move(last, position);
+            siftDown(position);
+            siftUp(position);
+        }
+        keys[last] = null;
+        return true;
+    }
+
+    // The highest-priority key, or null when empty
+    @SuppressWarnings("unchecked")
+    public K peek() {
+        return size == 0 ? null : (K) keys[0];
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0, size, null);
+        positions.clear();
+        size = 0;
+    }
+
+    // The 'limit' highest-priority keys, best first, leaving the queue as it is. Walks the
+    // heap from the root keeping a frontier of candidates, so it costs O(limit log limit)
+    // however many keys are queued.
+    @SuppressWarnings("unchecked")
+    public List<K> top(int limit) {
+        List<K> top = new ArrayList<>(Math.min(limit, size));
+        if (size == 0 || limit <= 0) {
+            return top;
+        }
+        PriorityQueue<Integer> frontier = new PriorityQueue<>((a, b) -> above(a, b) ? -1 : 1);
+        frontier.add(0);
+        while (top.size() < limit && !frontier.isEmpty()) {
+            int position = frontier.poll();
+            top.add((K) keys[position]);
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                frontier.add(child);
+            }
+        }
+        return top;
+    }
+
+    // True when the entry at 'a' belongs nearer the root than the one at 'b'
+    @SuppressWarnings("unchecked")
+    private boolean above(int a, int b) {
+        if (priorities[a] != priorities[b]) {
+            return priorities[a] > priorities[b];
+        }
+        return tieBreak.compare((K) keys[a], (K) keys[b]) < 0;
+    }
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) / 2;
+            if (!above(position, parent)) {
+                return;
+            }
+            swap(position, parent);
+            position = parent;
+        }
+    }
+
+    private void siftDown(int position) {
+        while (true) {
+            int best = position;
+            for (int child = 2 * position + 1; child <= 2 * position + 2 && child < size; child++) {
+                if (above(child, best)) {
+                    best = child;
+                }
+            }
+            if (best == position) {
+                return;
+            }
+            swap(position, best);
+            position = best;
+        }
+    }
+
+    private void swap(int a, int b) {
+        Object key = keys[a];
+        double priority = priorities[a];
+        move(b, a);
+        keys[b] = key;
+        priorities[b] = priority;
+        setPosition(b);
+    }
+
+    // Copies the entry at 'from' into 'to'
+    private void move(int from, int to) {
+        keys[to] = keys[from];
+        priorities[to] = priorities[from];
+        setPosition(to);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void setPosition(int position) {
+        positions.put((K) keys[position], position);
+    }
+}
@@ -0,0 +1,288 @@
+package com.example.services;
+
+import com.example.db.MessageStore;
+import com.example.models.Message;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+// In-memory inverted index over message bodies and sender names, one partition per user, so
+// a search only ever reads the signed-in user's own postings. A partition is built from the
+// user's history on first search and then caught up with just the messages sent since, so
+// it stays current without re-reading anything. Results are ranked with BM25 and carry the
+// character ranges of the matched words for highlighting.
+public class MessageSearchIndex {
+    private static final int MAX_PARTITIONS = 16;
+    private static final int CATCH_UP_BATCH = 500;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    // A hit on the sender's name counts like this many hits in the body
+    private static final int NAME_WEIGHT = 2;
+
+    private final MessageStore store;
+    private final Map<String, Partition> partitions = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Partition> eldest) {
+            return size() > MAX_PARTITIONS;
+        }
+    };
+
+    public static class Hit {
+        private final Message message;
+        private final double score;
+        private final List<int[]> highlights;
+
+        private Hit(Message message, double score, List<int[]> highlights) {
+            this.message = message;
+            this.score = score;
+            this.highlights = highlights;
+        }
+
+        public Message getMessage() {
+            return message;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        // [start, end) character ranges in the message body that matched the query
+        public List<int[]> getHighlights() {
+            return highlights;
+        }
+    }
+
+    // Postings are appended in document order, so each list is already sorted by doc number
+    private static class Postings {
+        private int[] docs = new int[4];
+        private int[] freqs = new int[4];
+        private int size;
+
+        private void add(int doc, int freq) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                freqs = Arrays.copyOf(freqs, size * 2);
+            }
+            docs[size] = doc;
+            freqs[size] = freq;
+            size++;
+        }
+    }
+
+    private static class Partition {
+        private final List<Message> docs = new ArrayList<>();
+        private final NavigableMap<String, Postings> terms = new TreeMap<>();
+        private int[] docLengths = new int[64];
+        private long totalLength;
+        private Message newest;
+
+        private void add(Message message) {
+            int doc = docs.size();
+            docs.add(message);
+            Map<String, Integer> freqs = new LinkedHashMap<>();
+            int length = 0;
+            for (Token token : tokenize(message.getBody())) {
+                freqs.merge(token.term, 1, Integer::sum);
+                length++;
+            }
+            if (message.getSenderName() != null) {
+                for (Token token : tokenize(message.getSenderName())) {
+                    freqs.merge(token.term, NAME_WEIGHT, Integer::sum);
+                    length++;
+                }
+            }
+            for (Map.Entry<String, Integer> entry : freqs.entrySet()) {
+                terms.computeIfAbsent(entry.getKey(), k -> new Postings()).add(doc, entry.getValue());
+            }
+            if (doc == docLengths.length) {
+                docLengths = Arrays.copyOf(docLengths, doc * 2);
+            }
+            docLengths[doc] = length;
+            totalLength += length;
+            newest = message;
+        }
+    }
+
+    private static final class Token {
+        private final String term;
+        private final int start;
+        private final int end;
+
+        private Token(String term, int start, int end) {
+            this.term = term;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    public MessageSearchIndex(MessageStore store) {
+        this.store = store;
+    }
+
+    // Ranked messages the user sent or received that contain every query word. The last word
+    // also matches as a prefix, so results keep up while the user is still typing.
+    public List<Hit> search(String role, String username, String query, int limit) throws SQLException {
+        List<Token> queryTokens = tokenize(query);
+        if (queryTokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Partition partition = partition(role, username);
+        synchronized (partition) {
+            catchUp(partition, role, username);
+            int n = partition.docs.size();
+            if (n == 0) {
+                return Collections.emptyList();
+            }
+            double averageLength = (double) partition.totalLength / n;
+
+            // Per query word, the postings it expands to
+            List<List<Postings>> clauses = new ArrayList<>();
+            Set<String> matchedTerms = new HashSet<>();
+            for (int i = 0; i < queryTokens.size(); i++) {
+                String term = queryTokens.get(i).term;
+                List<Postings> expansion = new ArrayList<>();
+                if (i == queryTokens.size() - 1) {
+                    for (Map.Entry<String, Postings> entry
+                            : partition.terms.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                        expansion.add(entry.getValue());
+                        matchedTerms.add(entry.getKey());
+                    }
+                } else {
+                    Postings postings = partition.terms.get(term);
+                    if (postings != null) {
+                        expansion.add(postings);
+                        matchedTerms.add(term);
+                    }
+                }
+                if (expansion.isEmpty()) {
+                    return Collections.emptyList();
+                }
+                clauses.add(expansion);
+            }
+
+            // Accumulate BM25 per doc straight from the postings and count the clauses each doc
+            // satisfied; only docs that satisfied all of them are ranked
+            double[] scores = new double[n];
+            int[] clauseHits = new int[n];
+            for (List<Postings> clause : clauses) {
+                for (Postings postings : clause) {
+                    double idf = Math.log(1 + (n - postings.size + 0.5) / (postings.size + 0.5));
+                    for (int p = 0; p < postings.size; p++) {
+                        int doc = postings.docs[p];
+                        double tf = postings.freqs[p];
+                        double norm = K1 * (1 - B + B * partition.docLengths[doc] / averageLength);
+                        scores[doc] += idf * tf * (K1 + 1) / (tf + norm);
+                    }
+                }
+                markClause(clause, clauseHits);
+            }
+
+            // Keep the best 'limit' docs; ties go to the newer message
+            PriorityQueue<Integer> top = new PriorityQueue<>(Comparator
+                    .comparingDouble((Integer doc) -> scores[doc]).thenComparingInt(doc -> doc));
+            for (int doc = 0; doc < n; doc++) {
+                if (clauseHits[doc] == clauses.size()) {
+                    top.add(doc);
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+            List<Hit> hits = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                int doc = top.poll();
+                Message message = partition.docs.get(doc);
+                hits.add(new Hit(message, scores[doc], highlights(message.getBody(), matchedTerms)));
+            }
+            Collections.reverse(hits);
+            return hits;
+        }
+    }
+
+    // Drops a user's partition, e.g. on logout
+    public void evict(String role, String username) {
+        synchronized (partitions) {
+            partitions.remove(role + ':' + username);
+        }
+    }
+
+    private Partition partition(String role, String username) {
+        synchronized (partitions) {
+            return partitions.computeIfAbsent(role + ':' + username, k -> new Partition());
+        }
+    }
+
+    private void catchUp(Partition partition, String role, String username) throws SQLException {
+        List<Message> batch;
+        do {
+            batch = store.historyAfter(role, username, partition.newest, CATCH_UP_BATCH);
+            for (Message message : batch) {
+                partition.add(message);
+            }
+        } while (batch.size() == CATCH_UP_BATCH);
+    }
+
+    // Counts a doc once per clause even when several prefix expansions hit it
+    private static void markClause(List<Postings> clause, int[] clauseHits) {
+        if (clause.size() == 1) {
+            Postings postings = clause.get(0);
+            for (int p = 0; p < postings.size; p++) {
+                clauseHits[postings.docs[p]]++;
+            }
+            return;
+        }
+        BitSet seen = new BitSet();
+        for (Postings postings : clause) {
+            for (int p = 0; p < postings.size; p++) {
+                seen.set(postings.docs[p]);
+            }
+        }
+        for (int doc = seen.nextSetBit(0); doc >= 0; doc = seen.nextSetBit(doc + 1)) {
+            clauseHits[doc]++;
+        }
+    }
+
+    private static List<int[]> highlights(String body, Set<String> terms) {
+        List<int[]> ranges = new ArrayList<>();
+        for (Token token : tokenize(body)) {
+            if (terms.contains(token.term)) {
+                ranges.add(new int[] { token.start, token.end });
+            }
+        }
+        return ranges;
+    }
+
+    // Lower-cased runs of letters and digits, with their position in the original text
+    private static List<Token> tokenize(String text) {
+        List<Token> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        int i = 0;
+        while (i < text.length()) {
+            if (!Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < text.length() && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            tokens.add(new Token(text.substring(start, i).toLowerCase(Locale.ROOT), start, i));
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,395 @@
+package com.example.services;
+
+import com.example.db.ProductStore;
+import com.example.models.Product;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Bulk product import from CSV or TSV. A reader thread splits the file into chunks of
+// CHUNK_ROWS records, a small pool parses and validates chunks in parallel, and the calling
+// thread inserts each chunk's valid rows as one batched transaction, in file order. At most
+// CHUNKS_IN_FLIGHT chunks are read ahead of the inserts, so a slow database holds back the
+// reader instead of filling the heap. Bad rows are reported by line and skipped. Chunks
+// already inserted stay saved if the import stops early, and the Result says so.
+public class ProductImporter {
+    private static final int CHUNK_ROWS = 500;
+    private static final int CHUNKS_IN_FLIGHT = 4;
+    private static final int MAX_PARSERS = 4;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    // Header names, lower case; others are ignored so an exported file imports as is
+    private static final String NAME = "name";
+    private static final String PRICE = "price";
+    private static final String UNIT = "unit";
+    private static final String QUANTITY = "quantity";
+    private static final String DESCRIPTION = "description";
+    private static final String IMAGE_PATH = "image_path";
+
+    public static final class RowError {
+        private final int line;
+        private final String message;
+
+        private RowError(int line, String message) {
+            this.line = line;
+            this.message = message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+    }
+
+    public static final class Result {
+        private final List<Product> imported;
+        private final List<RowError> errors;
+        private final int failedRows;
+        private final String stopReason;
+
+        private Result(List<Product> imported, List<RowError> errors, int failedRows, String stopReason) {
+            this.imported = imported;
+            this.errors = errors;
+            this.failedRows = failedRows;
+            this.stopReason = stopReason;
+        }
+
+        // Saved products with their ids, in file order
+        public List<Product> getImported() {
+            return imported;
+        }
+
+        // The first MAX_REPORTED_ERRORS problems, in file order
+        public List<RowError> getErrors() {
+            return errors;
+        }
+
+        public int getFailedRows() {
+            return failedRows;
+        }
+
+        // Why the import stopped before the end of the file, or null if it read all of it
+        public String getStopReason() {
+            return stopReason;
+        }
+    }
+
+    public interface Progress {
+        // Called on the importing thread after every chunk
+        void update(int rowsRead, int imported);
+    }
+
+    private static final class Record {
+        private final int line;
+        private final String text;
+
+        private Record(int line, String text) {
+            this.line = line;
+            this.text = text;
+        }
+    }
+
+    private static final class Chunk {
+        private final List<Product> products = new ArrayList<>();
+        private final List<Integer> productLines = new ArrayList<>();
+        private final List<RowError> errors = new ArrayList<>();
+        private int rows;
+        private boolean last;
+    }
+
+    private final ProductStore store;
+
+    public ProductImporter(ProductStore store) {
+        this.store = store;
+    }
+
+    // Imports on the calling thread. Fails before inserting anything if the header lacks a
+    // required column. Interrupting the thread, a database error or an unreadable file
+    // stops the import after the current chunk and returns the products saved so far,
+    // with the reason in getStopReason.
+    public Result importFile(Path file, String farmerId, Progress progress) throws IOException, SQLException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            int[] line = {0};
+            Record header = readRecord(reader, line);
+            if (header == null) {
+                throw new IOException("The file is empty");
+            }
+            String headerText = header.text.startsWith("\uFEFF") ? header.text.substring(1) : header.text;
+            char delimiter = file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".tsv")
+                    || (headerText.indexOf('\t') >= 0 && headerText.indexOf(',') < 0) ? '\t' : ',';
+            Map<String, Integer> columns = new HashMap<>();
+            List<String> names = splitFields(headerText, delimiter);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+            }
+            for (String required : List.of(NAME, PRICE, UNIT, QUANTITY)) {
+                if (!columns.containsKey(required)) {
+                    throw new IOException("Missing column '" + required + "'");
+                }
+            }
+            return run(reader, line, delimiter, columns, farmerId, progress);
+        }
+    }
+
+    private Result run(BufferedReader reader, int[] line, char delimiter, Map<String, Integer> columns,
+            String farmerId, Progress progress) throws IOException, SQLException {
+        int parserCount = Math.max(1, Math.min(MAX_PARSERS, Runtime.getRuntime().availableProcessors() - 1));
+        ExecutorService parsers = Executors.newFixedThreadPool(parserCount, r -> {
+            Thread t = new Thread(r, "product-import-parser");
+            t.setDaemon(true);
+            return t;
+        });
+        // Parsed chunks in file order; put() blocks while the inserts are behind
+        BlockingQueue<Future<Chunk>> pending = new ArrayBlockingQueue<>(CHUNKS_IN_FLIGHT);
+        Thread readerThread = new Thread(() -> {
+            try {
+                List<Record> records = new ArrayList<>(CHUNK_ROWS);
+                Record record;
+                while ((record = readRecord(reader, line)) != null) {
+                    if (record.text.isBlank()) {
+                        continue;
+                    }
+                    records.add(record);
+                    if (records.size() == CHUNK_ROWS) {
+                        List<Record> chunk = records;
+                        pending.put(parsers.submit(() -> parse(chunk, delimiter, columns, farmerId)));
+                        records = new ArrayList<>(CHUNK_ROWS);
+                    }
+                }
+                List<Record> rest = records;
+                pending.put(parsers.submit(() -> {
+                    Chunk chunk = parse(rest, delimiter, columns, farmerId);
+                    chunk.last = true;
+                    return chunk;
+                }));
+            } catch (IOException | RuntimeException e) {
+                try {
+                    pending.put(CompletableFuture.failedFuture(e));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "product-import-reader");
+        readerThread.setDaemon(true);
+        readerThread.start();
+
+        List<Product> imported = new ArrayList<>();
+        List<RowError> errors = new ArrayList<>();
+        int failedRows = 0;
+        int rowsRead = 0;
+        String stopReason = null;
+        try {
+            Chunk chunk;
+            do {
+                chunk = pending.take().get();
+                for (RowError error : chunk.errors) {
+                    report(errors, error);
+                }
+                failedRows += chunk.errors.size();
+                rowsRead += chunk.rows;
+                try {
+                    store.insertAll(chunk.products);
+                    imported.addAll(chunk.products);
+                } catch (SQLException e) {
+                    // The chunk's transaction rolled back. Later chunks would most likely fail
+                    // the same way, so keep what was saved and stop here.
+                    System.err.println("Failed to insert imported products: " + e.getMessage());
+                    report(errors, new RowError(chunk.productLines.isEmpty() ? line[0] : chunk.productLines.get(0),
+                            "Import stopped, this and later rows were not saved: " + e.getMessage()));
+                    failedRows += chunk.products.size();
+                    stopReason = "Database error: " + e.getMessage();
+                    break;
+                }
+                progress.update(rowsRead, imported.size());
+            } while (!chunk.last);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopReason = "Cancelled";
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof InterruptedIOException) {
+                stopReason = "Cancelled";
+            } else {
+                System.err.println("Failed to read imported products: " + cause.getMessage());
+                stopReason = cause instanceof IOException
+                        ? "Could not read the file: " + cause.getMessage()
+                        : "Could not parse the file: " + cause;
+            }
+        } finally {
+            readerThread.interrupt();
+            parsers.shutdownNow();
+        }
+        errors.sort((a, b) -> Integer.compare(a.line, b.line));
+        return new Result(imported, errors, failedRows, stopReason);
+    }
+
+    // Keeps the first MAX_REPORTED_ERRORS; the rest are only counted
+    private static void report(List<RowError> errors, RowError error) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(error);
+        }
+    }
+
+    private static Chunk parse(List<Record> records, char delimiter, Map<String, Integer> columns, String farmerId) {
+        Chunk chunk = new Chunk();
+        chunk.rows = records.size();
+        for (Record record : records) {
+            try {
+                List<String> fields = splitFields(record.text, delimiter);
+                String name = required(fields, columns, NAME);
+                String unit = required(fields, columns, UNIT);
+                double price = parsePrice(required(fields, columns, PRICE));
+                int quantity = parseQuantity(required(fields, columns, QUANTITY));
+                String description = optional(fields, columns, DESCRIPTION);
+                if (name.length() > 255 || unit.length() > 50 || (description != null && description.length() > 1024)) {
+                    throw new IllegalArgumentException("Name, unit or description is too long");
+                }
+                Product product = new Product(name, price, description != null ? description : "", unit, quantity,
+                        farmerId);
+                product.setImagePath(optional(fields, columns, IMAGE_PATH));
+                chunk.products.add(product);
+                chunk.productLines.add(record.line);
+            } catch (IllegalArgumentException e) {
+                chunk.errors.add(new RowError(record.line, e.getMessage()));
+            }
+        }
+        return chunk;
+    }
+
+    private static String required(List<String> fields, Map<String, Integer> columns, String column) {
+        String value = optional(fields, columns, column);
+        if (value == null || value.isEmpty()) {
+            throw new IllegalArgumentException("Missing " + column);
+        }
+        return value;
+    }
+
+    // Trimmed value, or null when the row has no such field
+    private static String optional(List<String> fields, Map<String, Integer> columns, String column) {
+        Integer index = columns.get(column);
+        if (index == null || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        // Undo the apostrophe TableExport puts in front of formula-like text
+        if (value.length() > 1 && value.charAt(0) == '\'' && "=+-@".indexOf(value.charAt(1)) >= 0) {
+            value = value.substring(1);
+        }
+        return value;
+    }
+
+    private static double parsePrice(String text) {
+        try {
+            double price = Double.parseDouble(text.startsWith("$") ? text.substring(1) : text);
+            if (Double.isNaN(price) || Double.isInfinite(price) || price < 0) {
+                throw new IllegalArgumentException("Invalid price '" + text + "'");
+            }
+            return price;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid price '" + text + "'");
+        }
+    }
+
+    private static int parseQuantity(String text) {
+        try {
+            int quantity = Integer.parseInt(text);
+            if (quantity < 0) {
+                throw new IllegalArgumentException("Invalid quantity '" + text + "'");
+            }
+            return quantity;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid quantity '" + text + "'");
+        }
+    }
+
+    // One record, which spans several lines when a quoted field contains line breaks
+    private static Record readRecord(BufferedReader reader, int[] line) throws IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Import cancelled");
+        }
+        String text = reader.readLine();
+        if (text == null) {
+            return null;
+        }
+        int firstLine = ++line[0];
+        StringBuilder record = null;
+        // An odd number of quotes leaves a quoted field open; only each new line is counted
+        boolean open = countQuotes(text) % 2 != 0;
+        while (open) {
+            String next = reader.readLine();
+            if (next == null) {
+                break;
+            }
+            line[0]++;
+            if (record == null) {
+                record = new StringBuilder(text);
+            }
+            record.append('\n').append(next);
+            open = countQuotes(next) % 2 == 0;
+        }
+        return new Record(firstLine, record != null ? record.toString() : text);
+    }
+
+    private static int countQuotes(CharSequence text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes;
+    }
+
+    // RFC 4180 fields: quoted fields may contain the delimiter, line breaks and "" for a quote
+    private static List<String> splitFields(String record, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c != '\r') {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
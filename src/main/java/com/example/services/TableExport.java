@@ -0,0 +1,224 @@
+package com.example.services;
+
+import com.example.db.RowSink;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+
+// Writes a streamed query to a CSV or JSON file as the rows arrive, so an export holds one
+// row and one write buffer in memory whatever its size. The file is written under a
+// ".part" name and moved into place when complete; a failed or cancelled export leaves
+// nothing behind.
+public final class TableExport implements RowSink {
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int PROGRESS_EVERY = 1000;
+
+    public enum Format {
+        CSV, JSON;
+
+        // JSON for *.json, CSV for anything else
+        public static Format forFile(Path file) {
+            return file.getFileName().toString().toLowerCase().endsWith(".json") ? JSON : CSV;
+        }
+    }
+
+    public interface Source {
+        long stream(RowSink sink) throws SQLException, IOException;
+    }
+
+    public interface Progress {
+        // Called on the exporting thread every PROGRESS_EVERY rows and once at the end
+        void update(long rowsWritten, long totalRows);
+    }
+
+    private final Writer out;
+    private final Format format;
+    private final Progress progress;
+    private String[] names;
+    private boolean[] quoted;
+    private long rows;
+    private long total;
+
+    private TableExport(Writer out, Format format, Progress progress) {
+        this.out = out;
+        this.format = format;
+        this.progress = progress;
+    }
+
+    // Exports on the calling thread and returns the number of rows written. Interrupting
+    // the thread cancels the export.
+    public static long write(Path file, Format format, Source source, Progress progress)
+            throws SQLException, IOException {
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            TableExport export;
+            try (Writer out = new BufferedWriter(
+                    new OutputStreamWriter(Files.newOutputStream(part), StandardCharsets.UTF_8), BUFFER_SIZE)) {
+                export = new TableExport(out, format, progress);
+                source.stream(export);
+                export.finish();
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING);
+            return export.rows;
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+    }
+
+    @Override
+    public void begin(ResultSetMetaData columns, long totalRows) throws SQLException, IOException {
+        total = totalRows;
+        names = new String[columns.getColumnCount()];
+        quoted = new boolean[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = columns.getColumnLabel(i + 1);
+            quoted[i] = !isNumeric(columns.getColumnType(i + 1));
+        }
+        if (format == Format.CSV) {
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                writeCsv(names[i], true);
+            }
+            out.write("\r\n");
+        } else {
+            out.write('[');
+        }
+        progress.update(0, total);
+    }
+
+    @Override
+    public void row(ResultSet row) throws SQLException, IOException {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new InterruptedIOException("Export cancelled");
+        }
+        if (format == Format.CSV) {
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    out.write(',');
+                }
+                String value = value(row, i);
+                if (value != null) {
+                    writeCsv(value, quoted[i]);
+                }
+            }
+            out.write("\r\n");
+        } else {
+            out.write(rows == 0 ? "\n  {" : ",\n  {");
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    out.write(", ");
+                }
+                writeJsonString(names[i]);
+                out.write(": ");
+                String value = value(row, i);
+                if (value == null) {
+                    out.write("null");
+                } else if (quoted[i]) {
+                    writeJsonString(value);
+                } else {
+                    out.write(value);
+                }
+            }
+            out.write('}');
+        }
+        rows++;
+        if (rows % PROGRESS_EVERY == 0) {
+            progress.update(rows, Math.max(rows, total));
+        }
+    }
+
+    private void finish() throws IOException {
+        if (format == Format.JSON) {
+            out.write(rows == 0 ? "]\n" : "\n]\n");
+        }
+        progress.update(rows, rows);
+    }
+
+    private String value(ResultSet row, int column) throws SQLException {
+        Object value = row.getObject(column + 1);
+        if (value == null) {
+            return null;
+        }
+        if (value instanceof Timestamp) {
+            return ((Timestamp) value).toLocalDateTime().toString();
+        }
+        return value.toString();
+    }
+
+    // Text that a spreadsheet would read as a formula gets a leading apostrophe
+    private void writeCsv(String value, boolean text) throws IOException {
+        if (text && !value.isEmpty() && "=+-@".indexOf(value.charAt(0)) >= 0) {
+            value = "'" + value;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+
+    private void writeJsonString(String value) throws IOException {
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.write("\\\"");
+                    break;
+                case '\\':
+                    out.write("\\\\");
+                    break;
+                case '\n':
+                    out.write("\\n");
+                    break;
+                case '\r':
+                    out.write("\\r");
+                    break;
+                case '\t':
+                    out.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        out.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.write(c);
+                    }
+            }
+        }
+        out.write('"');
+    }
+
+    private static boolean isNumeric(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
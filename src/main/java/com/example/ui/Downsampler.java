@@ -0,0 +1,70 @@
+package com.example.ui;
+
+// Largest-Triangle-Three-Buckets downsampling for line charts. Picks the points that keep
+// the shape of the line: the first and last point, plus from each bucket in between the
+// point that spans the largest triangle with the previously kept point and the average of
+// the next bucket. Peaks and dips survive, so a chart drawn from 'threshold' points looks
+// like one drawn from all of them.
+public final class Downsampler {
+    private Downsampler() {
+    }
+
+    // Indices of the points to keep from x[from..to) (x ascending), in order. Ranges with no
+    // more than 'threshold' points, or thresholds below 3, come back whole.
+    public static int[] largestTriangleThreeBuckets(long[] x, double[] y, int from, int to, int threshold) {
+        int length = to - from;
+        if (threshold < 3 || length <= threshold) {
+            int[] all = new int[Math.max(length, 0)];
+            for (int i = 0; i < all.length; i++) {
+                all[i] = from + i;
+            }
+            return all;
+        }
+
+        int[] kept = new int[threshold];
+        int keptCount = 0;
+        kept[keptCount++] = from;
+        // The first and last points are kept as they are; the rest share threshold - 2 buckets
+        double bucketSize = (double) (length - 2) / (threshold - 2);
+        int previous = from;
+        for (int bucket = 0; bucket < threshold - 2; bucket++) {
+            int start = from + 1 + (int) Math.floor(bucket * bucketSize);
+            int end = from + 1 + (int) Math.floor((bucket + 1) * bucketSize);
+
+            // Average of the next bucket; for the last bucket that is just the final point
+            int nextStart = end;
+            int nextEnd = Math.min(from + 1 + (int) Math.floor((bucket + 2) * bucketSize), to);
+            if (bucket == threshold - 3) {
+                nextStart = to - 1;
+                nextEnd = to;
+            }
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            int nextCount = Math.max(nextEnd - nextStart, 1);
+            averageX /= nextCount;
+            averageY /= nextCount;
+
+            double previousX = x[previous];
+            double previousY = y[previous];
+            double largestArea = -1;
+            int chosen = start;
+            for (int i = start; i < end; i++) {
+                // Twice the triangle's area; only the comparison matters
+                double area = Math.abs((previousX - averageX) * (y[i] - previousY)
+                        - (previousX - x[i]) * (averageY - previousY));
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = i;
+                }
+            }
+            kept[keptCount++] = chosen;
+            previous = chosen;
+        }
+        kept[keptCount] = to - 1;
+        return kept;
+    }
+}
@@ -0,0 +1,250 @@
+package com.example.ui;
+
+import com.example.models.Message;
+import com.example.models.Order;
+import javafx.animation.Animation;
+import javafx.animation.PauseTransition;
+import javafx.beans.property.ReadOnlyStringProperty;
+import javafx.beans.property.SimpleStringProperty;
+import javafx.beans.property.StringProperty;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.util.Duration;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Numbers and recent activity for an open farmer dashboard. Callers report that something
+// changed; changes are collected and applied at most once per refresh interval, data is
+// loaded off the FX thread, and only values that actually differ reach the bound labels.
+// A quiet dashboard does no work at all.
+public class LiveFarmerDashboard {
+    private static final Duration REFRESH_INTERVAL = Duration.millis(250);
+    private static final int MAX_ACTIVITY = 8;
+
+    public static final class Snapshot {
+        private final int pendingOrders;
+        private final int fulfilledOrders;
+        private final double revenue;
+        private final double recentRevenue;
+        private final int unreadMessages;
+        private final List<Order> latestOrders;
+        private final Message latestMessage;
+
+        // 'latestOrders' newest first; 'latestMessage' may be null
+        public Snapshot(int pendingOrders, int fulfilledOrders, double revenue, double recentRevenue,
+                int unreadMessages, List<Order> latestOrders, Message latestMessage) {
+            this.pendingOrders = pendingOrders;
+            this.fulfilledOrders = fulfilledOrders;
+            this.revenue = revenue;
+            this.recentRevenue = recentRevenue;
+            this.unreadMessages = unreadMessages;
+            this.latestOrders = latestOrders;
+            this.latestMessage = latestMessage;
+        }
+    }
+
+    public interface Source {
+        // Called on a background thread
+        Snapshot load() throws Exception;
+    }
+
+    public static final class Activity {
+        private final String text;
+        private final LocalDateTime time;
+        private final boolean highlighted;
+
+        private Activity(String text, LocalDateTime time, boolean highlighted) {
+            this.text = text;
+            this.time = time;
+            this.highlighted = highlighted;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public LocalDateTime getTime() {
+            return time;
+        }
+
+        public boolean isHighlighted() {
+            return highlighted;
+        }
+    }
+
+    private final Source source;
+    private final StringProperty productCount = new SimpleStringProperty("–");
+    private final StringProperty pendingOrders = new SimpleStringProperty("–");
+    private final StringProperty fulfilledOrders = new SimpleStringProperty("–");
+    private final StringProperty revenue = new SimpleStringProperty("–");
+    private final StringProperty recentRevenue = new SimpleStringProperty("–");
+    private final StringProperty unreadMessages = new SimpleStringProperty("–");
+    private final ObservableList<Activity> activity = FXCollections.observableArrayList();
+    private final PauseTransition throttle = new PauseTransition(REFRESH_INTERVAL);
+    // Product name -> latest stock level, folded until the next refresh
+    private final Map<String, Long> stockChanges = new LinkedHashMap<>();
+    private boolean dataStale;
+    private boolean loading;
+    private boolean disposed;
+    private Runnable onDispose;
+    // The first load only sets the baseline for what counts as new
+    private boolean baselineLoaded;
+    private long lastOrderId;
+    private long lastMessageId;
+
+    public LiveFarmerDashboard(Source source) {
+        this.source = source;
+        throttle.setOnFinished(e -> flush());
+    }
+
+    public ReadOnlyStringProperty productCountProperty() {
+        return productCount;
+    }
+
+    public ReadOnlyStringProperty pendingOrdersProperty() {
+        return pendingOrders;
+    }
+
+    public ReadOnlyStringProperty fulfilledOrdersProperty() {
+        return fulfilledOrders;
+    }
+
+    public ReadOnlyStringProperty revenueProperty() {
+        return revenue;
+    }
+
+    public ReadOnlyStringProperty recentRevenueProperty() {
+        return recentRevenue;
+    }
+
+    public ReadOnlyStringProperty unreadMessagesProperty() {
+        return unreadMessages;
+    }
+
+    // Newest first, at most MAX_ACTIVITY entries
+    public ObservableList<Activity> getActivity() {
+        return activity;
+    }
+
+    public void setProductCount(int count) {
+        productCount.set(String.valueOf(count));
+    }
+
+    // Orders or messages changed somewhere; reloaded on the next refresh
+    public void dataChanged() {
+        dataStale = true;
+        schedule();
+    }
+
+    public void stockChanged(String productName, long quantity) {
+        stockChanges.put(productName, quantity);
+        schedule();
+    }
+
+    // Runs once, when the dashboard is disposed
+    public void setOnDispose(Runnable onDispose) {
+        this.onDispose = onDispose;
+    }
+
+    public void dispose() {
+        if (disposed) {
+            return;
+        }
+        disposed = true;
+        throttle.stop();
+        if (onDispose != null) {
+            onDispose.run();
+        }
+    }
+
+    private void schedule() {
+        if (!disposed && throttle.getStatus() != Animation.Status.RUNNING) {
+            throttle.playFromStart();
+        }
+    }
+
+    private void flush() {
+        for (Map.Entry<String, Long> change : stockChanges.entrySet()) {
+            addActivity("Stock of '" + change.getKey() + "' is now " + change.getValue(), LocalDateTime.now(), false);
+        }
+        stockChanges.clear();
+        if (!dataStale || loading) {
+            return;
+        }
+        dataStale = false;
+        loading = true;
+        Task<Snapshot> task = new Task<>() {
+            @Override
+            protected Snapshot call() throws Exception {
+                return source.load();
+            }
+        };
+        task.setOnSucceeded(e -> {
+            loading = false;
+            if (!disposed) {
+                apply(task.getValue());
+            }
+            if (dataStale) {
+                schedule();
+            }
+        });
+        task.setOnFailed(e -> {
+            loading = false;
+            System.err.println("Failed to load dashboard: " + task.getException().getMessage());
+        });
+        Thread thread = new Thread(task, "dashboard-refresh");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void apply(Snapshot snapshot) {
+        pendingOrders.set(String.valueOf(snapshot.pendingOrders));
+        fulfilledOrders.set(String.valueOf(snapshot.fulfilledOrders));
+        revenue.set(String.format("$%,.2f", snapshot.revenue));
+        recentRevenue.set(String.format("$%,.2f", snapshot.recentRevenue));
+        unreadMessages.set(String.valueOf(snapshot.unreadMessages));
+
+        boolean baseline = !baselineLoaded;
+        baselineLoaded = true;
+        List<Order> orders = snapshot.latestOrders;
+        for (int i = orders.size() - 1; i >= 0; i--) {
+            Order order = orders.get(i);
+            if (order.getId() > lastOrderId) {
+                if (!baseline) {
+                    addActivity("New order from " + order.getCustomerName() + ": " + order.getQuantity() + " × "
+                            + order.getProductName(), order.getOrderDate(), true);
+                }
+                lastOrderId = order.getId();
+            }
+        }
+        Message message = snapshot.latestMessage;
+        if (message != null && message.getId() > lastMessageId) {
+            if (!baseline) {
+                addActivity("New message from " + message.getSenderName(), message.getSentAt(), true);
+            }
+            lastMessageId = message.getId();
+        }
+        if (baseline) {
+            // Something to show on a fresh dashboard: the latest order and message
+            if (message != null) {
+                addActivity("Message from " + message.getSenderName(), message.getSentAt(), false);
+            }
+            if (!orders.isEmpty()) {
+                Order order = orders.get(0);
+                addActivity("Order from " + order.getCustomerName() + ": " + order.getQuantity() + " × "
+                        + order.getProductName(), order.getOrderDate(), false);
+            }
+        }
+    }
+
+    private void addActivity(String text, LocalDateTime time, boolean highlighted) {
+        activity.add(0, new Activity(text, time != null ? time : LocalDateTime.now(), highlighted));
+        if (activity.size() > MAX_ACTIVITY) {
+            activity.remove(MAX_ACTIVITY, activity.size());
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.ui;
+
+import com.example.models.Message;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.concurrent.Task;
+import javafx.css.PseudoClass;
+import javafx.geometry.Pos;
+import javafx.scene.control.Button;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.Region;
+import javafx.scene.layout.VBox;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.FontWeight;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Inbox rendered through a recycling ListView: only the visible rows have cells, and each
+// cell builds its nodes once and only swaps text and a pseudo-class when reused. Newest
+// messages are on top; older pages are fetched off the FX thread when the last row scrolls
+// into view.
+public class MessageListView extends ListView<Message> {
+    private static final PseudoClass UNREAD = PseudoClass.getPseudoClass("unread");
+    private static final double CELL_HEIGHT = 150;
+
+    public interface PageLoader {
+        // Returns up to 'limit' messages older than 'before' (newest first); null means the newest page
+        List<Message> load(Message before, int limit) throws Exception;
+    }
+
+    private final ObservableList<Message> messages = FXCollections.observableArrayList();
+    private final PageLoader loader;
+    private final int pageSize;
+    private boolean loading;
+    private boolean hasMore = true;
+
+    public MessageListView(PageLoader loader, int pageSize, Function<LocalDateTime, String> timeFormatter,
+            Consumer<Message> onOpen, Consumer<Message> onReply) {
+        super();
+        this.loader = loader;
+        this.pageSize = pageSize;
+        setItems(messages);
+        getStyleClass().add("message-list");
+        setFixedCellSize(CELL_HEIGHT);
+        setPlaceholder(new Label("No messages yet."));
+        setCellFactory(list -> new MessageCell(timeFormatter, onOpen, onReply));
+        loadOlder();
+    }
+
+    // Inserts newly arrived messages (oldest first) at the top without moving what the user
+    // is currently reading
+    public void addNewest(List<Message> arrivals) {
+        if (arrivals.isEmpty()) {
+            return;
+        }
+        int firstVisible = firstVisibleIndex();
+        List<Message> newestFirst = new ArrayList<>(arrivals);
+        Collections.reverse(newestFirst);
+        messages.addAll(0, newestFirst);
+        if (firstVisible > 0) {
+            scrollTo(firstVisible + newestFirst.size());
+        }
+    }
+
+    public Message newest() {
+        return messages.isEmpty() ? null : messages.get(0);
+    }
+
+    private void loadOlder() {
+        if (loading || !hasMore) {
+            return;
+        }
+        loading = true;
+        Message before = messages.isEmpty() ? null : messages.get(messages.size() - 1);
+        Task<List<Message>> task = new Task<>() {
+            @Override
+            protected List<Message> call() throws Exception {
+                return loader.load(before, pageSize);
+            }
+        };
+        task.setOnSucceeded(e -> {
+            List<Message> page = task.getValue();
+            hasMore = page.size() == pageSize;
+            // Appending below the viewport never shifts the rows already on screen
+            messages.addAll(page);
+            loading = false;
+        });
+        task.setOnFailed(e -> {
+            System.err.println("Failed to load messages: " + task.getException().getMessage());
+            loading = false;
+        });
+        Thread thread = new Thread(task, "inbox-loader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private int firstVisibleIndex() {
+        VirtualFlow<?> flow = (VirtualFlow<?>) lookup(".virtual-flow");
+        if (flow == null) {
+            return 0;
+        }
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        return first == null ? 0 : first.getIndex();
+    }
+
+    private class MessageCell extends ListCell<Message> {
+        private final Label unreadDot = new Label("•");
+        private final Label senderLabel = new Label();
+        private final Label timeLabel = new Label();
+        private final Label bodyLabel = new Label();
+        private final Button replyBtn = new Button("Reply");
+        private final VBox content;
+        private final Function<LocalDateTime, String> timeFormatter;
+
+        private MessageCell(Function<LocalDateTime, String> timeFormatter, Consumer<Message> onOpen,
+                Consumer<Message> onReply) {
+            this.timeFormatter = timeFormatter;
+            getStyleClass().add("message-cell");
+
+            unreadDot.setTextFill(Color.web("#22c55e"));
+            unreadDot.setFont(Font.font("Roboto", FontWeight.BOLD, 25));
+            unreadDot.setManaged(false);
+            senderLabel.setFont(Font.font("Roboto", FontWeight.BOLD, 19));
+            senderLabel.setTextFill(Color.BLACK);
+            timeLabel.setFont(Font.font("Roboto", 17));
+            timeLabel.setTextFill(Color.BLACK);
+            bodyLabel.setFont(Font.font("Roboto", 19));
+            bodyLabel.setTextFill(Color.BLACK);
+            bodyLabel.setWrapText(true);
+            bodyLabel.setMaxHeight(52);
+            replyBtn.getStyleClass().add("button-primary");
+            replyBtn.setMaxWidth(100);
+
+            Region spacer = new Region();
+            HBox.setHgrow(spacer, Priority.ALWAYS);
+            HBox header = new HBox(10, unreadDot, senderLabel, spacer, timeLabel);
+            header.setAlignment(Pos.CENTER_LEFT);
+            content = new VBox(10, header, bodyLabel, replyBtn);
+
+            setOnMouseClicked(e -> {
+                Message message = getItem();
+                if (message != null && !message.isRead()) {
+                    onOpen.accept(message);
+                    updateUnread(message);
+                }
+            });
+            replyBtn.setOnAction(e -> {
+                if (getItem() != null) {
+                    onReply.accept(getItem());
+                    updateUnread(getItem());
+                }
+            });
+        }
+
+        @Override
+        protected void updateItem(Message message, boolean empty) {
+            super.updateItem(message, empty);
+            if (empty || message == null) {
+                setGraphic(null);
+                pseudoClassStateChanged(UNREAD, false);
+                return;
+            }
+            senderLabel.setText(message.getSenderName());
+            timeLabel.setText(timeFormatter.apply(message.getSentAt()));
+            bodyLabel.setText(message.getBody());
+            updateUnread(message);
+            setGraphic(content);
+
+            if (getIndex() == messages.size() - 1 && hasMore) {
+                Platform.runLater(MessageListView.this::loadOlder);
+            }
+        }
+
+        private void updateUnread(Message message) {
+            boolean unread = !message.isRead();
+            unreadDot.setVisible(unread);
+            unreadDot.setManaged(unread);
+            pseudoClassStateChanged(UNREAD, unread);
+        }
+    }
+}
@@ -0,0 +1,338 @@
+package com.example.ui;
+
+import javafx.animation.PauseTransition;
+import javafx.concurrent.Task;
+import javafx.geometry.VPos;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.TextAlignment;
+import javafx.util.Duration;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.Callable;
+import java.util.function.Consumer;
+
+// Sales over time drawn straight onto a Canvas. Each frame downsamples the visible part of
+// the series to about one point per pixel, so drawing costs the same for a week or for
+// years of history. Scrolling zooms around the pointer, dragging pans and a double click
+// shows everything again. The overview series is drawn at once; when the view is narrow
+// enough a finer series is fetched in the background and replaces it once it arrives.
+public class SalesChart extends Region {
+    private static final double LEFT = 72;
+    private static final double RIGHT = 16;
+    private static final double TOP = 12;
+    private static final double BOTTOM = 28;
+    private static final double ZOOM_STEP = 1.25;
+    private static final long MIN_SPAN = 6L * 60 * 60 * 1000;
+    private static final int GRID_LINES = 4;
+    private static final Duration REFINE_DELAY = Duration.millis(200);
+    private static final Color LINE = Color.web("#22c55e");
+    private static final Color AREA = Color.web("#22c55e", 0.15);
+    private static final Color GRID = Color.web("#e5e7eb");
+    private static final Color TEXT = Color.web("#6b7280");
+    private static final DateTimeFormatter DAY_FORMAT = DateTimeFormatter.ofPattern("d MMM yyyy");
+    private static final DateTimeFormatter HOUR_FORMAT = DateTimeFormatter.ofPattern("d MMM HH:mm");
+
+    // Values per time bucket; times are epoch milliseconds, ascending
+    public static final class Series {
+        private final long[] times;
+        private final double[] values;
+
+        public Series(long[] times, double[] values) {
+            this.times = times;
+            this.values = values;
+        }
+
+        boolean isEmpty() {
+            return times.length == 0;
+        }
+    }
+
+    public interface Source {
+        // Called on a background thread. The whole history at a coarse grain.
+        Series loadOverview() throws Exception;
+
+        // Called on a background thread. A finer series covering [from, to), or null if
+        // there is nothing finer for that range.
+        Series loadDetail(long from, long to) throws Exception;
+    }
+
+    private final Source source;
+    // Views no wider than this are worth refining
+    private final long detailSpan;
+    private final Canvas canvas = new Canvas();
+    private final PauseTransition refineTimer = new PauseTransition(REFINE_DELAY);
+    private Series overview;
+    private Series detail;
+    private long detailFrom;
+    private long detailTo;
+    private double viewStart;
+    private double viewEnd;
+    private boolean zoomed;
+    // Bumped whenever loaded data may be outdated, so late results are dropped
+    private int generation;
+    private double dragX;
+    private double dragViewStart;
+
+    public SalesChart(Source source, java.time.Duration detailSpan) {
+        this.source = source;
+        this.detailSpan = detailSpan.toMillis();
+        getChildren().add(canvas);
+        setPrefHeight(260);
+        setMinHeight(160);
+        refineTimer.setOnFinished(e -> refine());
+
+        setOnScroll(e -> {
+            if (overview == null || overview.isEmpty() || e.getDeltaY() == 0) {
+                return;
+            }
+            double span = viewEnd - viewStart;
+            double newSpan = span * (e.getDeltaY() > 0 ? 1 / ZOOM_STEP : ZOOM_STEP);
+            newSpan = Math.max(MIN_SPAN, Math.min(newSpan, fullEnd() - fullStart()));
+            double anchor = xToTime(e.getX());
+            setView(anchor - (anchor - viewStart) * newSpan / span, newSpan);
+        });
+        setOnMousePressed(e -> {
+            dragX = e.getX();
+            dragViewStart = viewStart;
+        });
+        setOnMouseDragged(e -> {
+            if (overview == null || overview.isEmpty()) {
+                return;
+            }
+            double span = viewEnd - viewStart;
+            setView(dragViewStart - (e.getX() - dragX) / plotWidth() * span, span);
+        });
+        setOnMouseClicked(e -> {
+            if (e.getClickCount() == 2) {
+                zoomed = false;
+                showAll();
+            }
+        });
+    }
+
+    // Fetches the overview: once to show anything at all, then again after new sales.
+    // The current zoom is kept.
+    public void reload() {
+        int loadGeneration = ++generation;
+        detail = null;
+        load(source::loadOverview, series -> {
+            if (loadGeneration != generation) {
+                return;
+            }
+            overview = series;
+            if (zoomed && !series.isEmpty()) {
+                setView(viewStart, viewEnd - viewStart);
+            } else {
+                showAll();
+            }
+        });
+    }
+
+    @Override
+    protected void layoutChildren() {
+        canvas.setWidth(getWidth());
+        canvas.setHeight(getHeight());
+        draw();
+    }
+
+    private void showAll() {
+        if (overview != null && !overview.isEmpty()) {
+            viewStart = fullStart();
+            viewEnd = fullEnd();
+        }
+        draw();
+        refineTimer.playFromStart();
+    }
+
+    private void setView(double start, double span) {
+        start = Math.max(fullStart(), Math.min(start, fullEnd() - span));
+        viewStart = start;
+        viewEnd = start + span;
+        zoomed = span < fullEnd() - fullStart();
+        draw();
+        refineTimer.playFromStart();
+    }
+
+    private double fullStart() {
+        return Math.min(overview.times[0], fullEnd() - MIN_SPAN);
+    }
+
+    private double fullEnd() {
+        return Math.max(overview.times[overview.times.length - 1], System.currentTimeMillis());
+    }
+
+    private void refine() {
+        double span = viewEnd - viewStart;
+        if (overview == null || overview.isEmpty() || span > detailSpan) {
+            return;
+        }
+        if (detail != null && detailFrom <= viewStart && detailTo >= viewEnd) {
+            return;
+        }
+        // A span either side, so short pans do not need another fetch
+        long from = (long) (viewStart - span);
+        long to = (long) (viewEnd + span);
+        int loadGeneration = generation;
+        load(() -> source.loadDetail(from, to), series -> {
+            if (loadGeneration != generation || series == null) {
+                return;
+            }
+            detail = series;
+            detailFrom = from;
+            detailTo = to;
+            draw();
+        });
+    }
+
+    private <T> void load(Callable<T> loader, Consumer<T> onLoaded) {
+        Task<T> task = new Task<>() {
+            @Override
+            protected T call() throws Exception {
+                return loader.call();
+            }
+        };
+        task.setOnSucceeded(e -> onLoaded.accept(task.getValue()));
+        task.setOnFailed(e -> System.err.println("Failed to load sales chart: " + task.getException().getMessage()));
+        Thread thread = new Thread(task, "sales-chart");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void draw() {
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        double width = canvas.getWidth();
+        double height = canvas.getHeight();
+        gc.clearRect(0, 0, width, height);
+        gc.setFont(Font.font("Roboto", 12));
+        gc.setFill(TEXT);
+        gc.setTextBaseline(VPos.CENTER);
+        if (plotWidth() <= 0 || plotHeight() <= 0) {
+            return;
+        }
+        if (overview == null || overview.isEmpty()) {
+            gc.setTextAlign(TextAlignment.CENTER);
+            gc.fillText(overview == null ? "Loading sales…" : "No sales yet", width / 2, height / 2);
+            return;
+        }
+
+        Series series = detail != null && detailFrom <= viewStart && detailTo >= viewEnd ? detail : overview;
+        // One point either side of the view so the line runs off the edges
+        int from = Math.max(0, lowerBound(series.times, viewStart) - 1);
+        int to = Math.min(series.times.length, lowerBound(series.times, viewEnd) + 1);
+        int[] points = Downsampler.largestTriangleThreeBuckets(series.times, series.values, from, to,
+                (int) plotWidth());
+
+        double max = 0;
+        for (int i : points) {
+            max = Math.max(max, series.values[i]);
+        }
+        double yMax = niceCeiling(max);
+
+        gc.setStroke(GRID);
+        gc.setLineWidth(1);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        for (int line = 0; line <= GRID_LINES; line++) {
+            double value = yMax * line / GRID_LINES;
+            double y = valueToY(value, yMax);
+            gc.strokeLine(LEFT, y, width - RIGHT, y);
+            gc.fillText(String.format("$%,.0f", value), LEFT - 8, y);
+        }
+        DateTimeFormatter format = viewEnd - viewStart <= 2 * 24 * 60 * 60 * 1000L ? HOUR_FORMAT : DAY_FORMAT;
+        gc.setTextBaseline(VPos.BOTTOM);
+        gc.setTextAlign(TextAlignment.LEFT);
+        gc.fillText(formatTime(viewStart, format), LEFT, height - 4);
+        gc.setTextAlign(TextAlignment.RIGHT);
+        gc.fillText(formatTime(viewEnd, format), width - RIGHT, height - 4);
+        if (points.length == 0) {
+            return;
+        }
+
+        gc.save();
+        gc.beginPath();
+        gc.rect(LEFT, TOP, plotWidth(), plotHeight());
+        gc.clip();
+        double baseline = valueToY(0, yMax);
+        gc.beginPath();
+        gc.moveTo(timeToX(series.times[points[0]]), baseline);
+        for (int i : points) {
+            gc.lineTo(timeToX(series.times[i]), valueToY(series.values[i], yMax));
+        }
+        gc.lineTo(timeToX(series.times[points[points.length - 1]]), baseline);
+        gc.closePath();
+        gc.setFill(AREA);
+        gc.fill();
+        gc.beginPath();
+        for (int p = 0; p < points.length; p++) {
+            double x = timeToX(series.times[points[p]]);
+            double y = valueToY(series.values[points[p]], yMax);
+            if (p == 0) {
+                gc.moveTo(x, y);
+            } else {
+                gc.lineTo(x, y);
+            }
+        }
+        gc.setStroke(LINE);
+        gc.setLineWidth(2);
+        gc.stroke();
+        gc.restore();
+    }
+
+    private double plotWidth() {
+        return canvas.getWidth() - LEFT - RIGHT;
+    }
+
+    private double plotHeight() {
+        return canvas.getHeight() - TOP - BOTTOM;
+    }
+
+    private double timeToX(double time) {
+        return LEFT + (time - viewStart) / (viewEnd - viewStart) * plotWidth();
+    }
+
+    private double xToTime(double x) {
+        return viewStart + (x - LEFT) / plotWidth() * (viewEnd - viewStart);
+    }
+
+    private double valueToY(double value, double yMax) {
+        return TOP + plotHeight() * (1 - value / yMax);
+    }
+
+    // First index whose time is >= 'time'
+    private static int lowerBound(long[] times, double time) {
+        int low = 0;
+        int high = times.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (times[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    // 1, 2 or 5 times a power of ten, so grid labels are round numbers
+    private static double niceCeiling(double value) {
+        if (value <= 0) {
+            return 10;
+        }
+        double magnitude = Math.pow(10, Math.floor(Math.log10(value)));
+        for (double step : new double[] {1, 2, 5, 10}) {
+            if (step * magnitude >= value) {
+                return step * magnitude;
+            }
+        }
+        return 10 * magnitude;
+    }
+
+    private static String formatTime(double time, DateTimeFormatter format) {
+        return Instant.ofEpochMilli((long) time).atZone(ZoneId.systemDefault()).format(format);
+    }
+}
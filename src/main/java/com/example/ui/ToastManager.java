@@ -0,0 +1,129 @@
+package com.example.ui;
+
+import javafx.animation.KeyFrame;
+import javafx.animation.KeyValue;
+import javafx.animation.Timeline;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.Scene;
+import javafx.scene.control.Label;
+import javafx.stage.Popup;
+import javafx.stage.Window;
+import javafx.util.Duration;
+
+import java.util.ArrayDeque;
+import java.util.function.IntFunction;
+
+// Toasts shown one at a time in the top-right corner of whatever scene the window is
+// showing. Each scene gets one overlay that is reused for every toast, a single timeline
+// drives the fade, and a toast repeated while it is still visible or queued only bumps a
+// counter, so a burst of events costs the same UI work as one.
+public class ToastManager {
+    private static final int MAX_QUEUED = 5;
+    private static final Duration FADE_IN = Duration.millis(200);
+    private static final Duration HOLD = Duration.millis(2500);
+    private static final Duration FADE_OUT = Duration.millis(300);
+    private static final double MARGIN = 20;
+    private static final String OVERLAY_KEY = ToastManager.class.getName();
+
+    private final Window window;
+    private final ArrayDeque<Toast> queue = new ArrayDeque<>();
+    private final DoubleProperty opacity = new SimpleDoubleProperty(0);
+    private final Timeline timeline;
+    private Toast current;
+    private Overlay overlay;
+
+    private static class Toast {
+        private final String key;
+        private final IntFunction<String> text;
+        private int count = 1;
+
+        private Toast(String key, IntFunction<String> text) {
+            this.key = key;
+            this.text = text;
+        }
+    }
+
+    private static class Overlay {
+        private final Popup popup = new Popup();
+        private final Label label = new Label();
+
+        private Overlay(DoubleProperty opacity) {
+            label.setStyle("-fx-background-color: #2E7D32; -fx-text-fill: white; -fx-font-size: 14px; "
+                    + "-fx-padding: 15px; -fx-background-radius: 5px;");
+            label.setMaxWidth(300);
+            label.setWrapText(true);
+            label.setMouseTransparent(true);
+            label.opacityProperty().bind(opacity);
+            popup.getContent().add(label);
+        }
+    }
+
+    public ToastManager(Window window) {
+        this.window = window;
+        Duration holdEnd = FADE_IN.add(HOLD);
+        timeline = new Timeline(
+                new KeyFrame(Duration.ZERO, new KeyValue(opacity, 0)),
+                new KeyFrame(FADE_IN, new KeyValue(opacity, 1)),
+                new KeyFrame(holdEnd, new KeyValue(opacity, 1)),
+                new KeyFrame(holdEnd.add(FADE_OUT), new KeyValue(opacity, 0)));
+        timeline.setOnFinished(e -> showNext());
+    }
+
+    // Repeats of the same message coalesce into one toast with a count
+    public void show(String message) {
+        show(message, count -> count == 1 ? message : message + " (x" + count + ")");
+    }
+
+    // Toasts with the same key coalesce; 'text' renders the toast for how many times it was raised
+    public void show(String key, IntFunction<String> text) {
+        if (current != null && current.key.equals(key)) {
+            current.count++;
+            overlay.label.setText(current.text.apply(current.count));
+            // Back to fully visible and restart the hold, even if it was already fading out
+            timeline.playFrom(FADE_IN);
+            return;
+        }
+        for (Toast queued : queue) {
+            if (queued.key.equals(key)) {
+                queued.count++;
+                return;
+            }
+        }
+        if (queue.size() == MAX_QUEUED) {
+            // Older pending toasts are the least relevant ones
+            queue.removeFirst();
+        }
+        queue.addLast(new Toast(key, text));
+        if (current == null) {
+            showNext();
+        }
+    }
+
+    private void showNext() {
+        current = queue.pollFirst();
+        Overlay next = current == null ? null : overlayFor(window.getScene());
+        if (overlay != null && overlay != next) {
+            overlay.popup.hide();
+        }
+        overlay = next;
+        if (current == null || overlay == null) {
+            current = null;
+            return;
+        }
+        overlay.label.setText(current.text.apply(current.count));
+        if (!overlay.popup.isShowing()) {
+            overlay.popup.show(window);
+        }
+        overlay.popup.setX(window.getX() + window.getWidth() - overlay.popup.getWidth() - MARGIN);
+        overlay.popup.setY(window.getY() + MARGIN * 3);
+        timeline.playFromStart();
+    }
+
+    private Overlay overlayFor(Scene scene) {
+        if (scene == null || !window.isShowing()) {
+            return null;
+        }
+        return (Overlay) scene.getProperties().computeIfAbsent(OVERLAY_KEY, k -> new Overlay(opacity));
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.ui;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Read-only list of a query's rows that keeps only pages near the rows being looked at.
+// get() on a row that is not loaded returns null and queues its page; when the page
+// arrives the rows are replaced in one change, so a TableView simply fills them in. Pages
+// ahead in the direction of scrolling are prefetched, and once more than maxPages are held
+// the ones farthest away are dropped. Memory is bounded by maxPages * pageSize rows,
+// whatever the row count. Must only be used on the FX thread.
+public class WindowedList<T> extends ObservableListBase<T> {
+    private static final int PREFETCH_PAGES = 2;
+
+    public interface Source<T> {
+        // Called on a background thread
+        int count() throws Exception;
+
+        // Called on a background thread; rows [offset, offset + limit) of the query.
+        // 'previous' is the row just before offset and 'next' the row just after the page,
+        // when those are loaded, else null; a source can carry on from either instead of
+        // counting offset rows.
+        List<T> load(int offset, int limit, T previous, T next) throws Exception;
+    }
+
+    private final int pageSize;
+    private final int maxPages;
+    private final ThreadPoolExecutor loader;
+    private Source<T> source;
+    private int size;
+    private final Map<Integer, List<T>> pages = new HashMap<>();
+    // Pages from before a refresh, shown until their replacement arrives
+    private final Map<Integer, List<T>> stalePages = new HashMap<>();
+    private final Set<Integer> loading = new HashSet<>();
+    // Bumped when the source changes or is refreshed; older loads are dropped
+    private int generation;
+    private volatile int currentPage;
+
+    public WindowedList(Source<T> source, int pageSize, int maxPages) {
+        this.pageSize = pageSize;
+        this.maxPages = Math.max(maxPages, 2 * PREFETCH_PAGES + 1);
+        this.loader = new ThreadPoolExecutor(1, 1, 5, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "windowed-list");
+            t.setDaemon(true);
+            return t;
+        });
+        loader.allowCoreThreadTimeOut(true);
+        setSource(source);
+    }
+
+    // Switches to another query, e.g. a new sort order or filter; rows reload from the top
+    public void setSource(Source<T> source) {
+        this.source = source;
+        stalePages.clear();
+        reload();
+    }
+
+    // Reloads the same query after its rows changed; rows already shown stay until their
+    // page is reloaded, so the table does not flash empty
+    public void refresh() {
+        stalePages.putAll(pages);
+        reload();
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + size);
+        }
+        int page = index / pageSize;
+        int previousPage = currentPage;
+        currentPage = page;
+        List<T> rows = pages.get(page);
+        if (rows == null) {
+            request(page);
+            rows = stalePages.get(page);
+        }
+        // Prefetch ahead of the scroll
+        int direction = Integer.signum(page - previousPage);
+        for (int i = 1; direction != 0 && i <= PREFETCH_PAGES; i++) {
+            request(page + i * direction);
+        }
+        int offset = index % pageSize;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    // The row at 'index' if its page is loaded, else null. Unlike get, never loads or
+    // prefetches, so it is safe for walking a large selection.
+    public T getLoaded(int index) {
+        List<T> rows = index < 0 ? null : pages.get(index / pageSize);
+        int offset = index % pageSize;
+        return rows != null && offset < rows.size() ? rows.get(offset) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // Searches loaded rows only; scanning the whole list would load every page
+    @Override
+    public int indexOf(Object o) {
+        for (Map.Entry<Integer, List<T>> page : pages.entrySet()) {
+            int offset = page.getValue().indexOf(o);
+            if (offset >= 0) {
+                return page.getKey() * pageSize + offset;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    private void reload() {
+        int loadGeneration = ++generation;
+        pages.clear();
+        loading.clear();
+        Source<T> query = source;
+        loader.execute(() -> {
+            try {
+                int count = query.count();
+                Platform.runLater(() -> applyCount(loadGeneration, count));
+            } catch (Exception e) {
+                System.err.println("Failed to count rows: " + e.getMessage());
+            }
+        });
+    }
+
+    private void applyCount(int loadGeneration, int count) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        int oldSize = size;
+        size = count;
+        int kept = Math.min(oldSize, count);
+        beginChange();
+        if (kept > 0) {
+            nextReplace(0, kept, Collections.nCopies(kept, null));
+        }
+        if (count > oldSize) {
+            nextAdd(oldSize, count);
+        } else if (count < oldSize) {
+            nextRemove(count, Collections.nCopies(oldSize - count, null));
+        }
+        endChange();
+    }
+
+    private void request(int page) {
+        if (page < 0 || page * pageSize >= size || pages.containsKey(page) || !loading.add(page)) {
+            return;
+        }
+        int loadGeneration = generation;
+        Source<T> query = source;
+        List<T> before = pages.get(page - 1);
+        List<T> after = pages.get(page + 1);
+        T previous = before != null && before.size() == pageSize ? before.get(pageSize - 1) : null;
+        T next = after != null && !after.isEmpty() ? after.get(0) : null;
+        loader.execute(() -> {
+            // Scrolled far past this page while it waited in the queue
+            if (Math.abs(page - currentPage) > maxPages / 2) {
+                Platform.runLater(() -> {
+                    if (loadGeneration == generation) {
+                        loading.remove(page);
+                    }
+                });
+                return;
+            }
+            try {
+                List<T> rows = query.load(page * pageSize, pageSize, previous, next);
+                Platform.runLater(() -> applyPage(loadGeneration, page, rows));
+            } catch (Exception e) {
+                System.err.println("Failed to load rows: " + e.getMessage());
+                Platform.runLater(() -> {
+                    if (loadGeneration == generation) {
+                        loading.remove(page);
+                    }
+                });
+            }
+        });
+    }
+
+    private void applyPage(int loadGeneration, int page, List<T> rows) {
+        if (loadGeneration != generation) {
+            return;
+        }
+        loading.remove(page);
+        List<T> stale = stalePages.remove(page);
+        pages.put(page, new ArrayList<>(rows));
+        evictDistantPages();
+
+        int from = page * pageSize;
+        int to = Math.min(from + pageSize, size);
+        if (from >= to) {
+            return;
+        }
+        List<T> removed = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            int offset = i - from;
+            removed.add(stale != null && offset < stale.size() ? stale.get(offset) : null);
+        }
+        beginChange();
+        nextReplace(from, to, removed);
+        endChange();
+    }
+
+    private void evictDistantPages() {
+        while (pages.size() > maxPages) {
+            int farthest = -1;
+            for (int page : pages.keySet()) {
+                if (farthest < 0 || Math.abs(page - currentPage) > Math.abs(farthest - currentPage)) {
+                    farthest = page;
+                }
+            }
+            pages.remove(farthest);
+        }
+        for (Iterator<Integer> it = stalePages.keySet().iterator(); it.hasNext(); ) {
+            if (Math.abs(it.next() - currentPage) > maxPages / 2) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.db;
+
+import com.example.models.Product;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+
+class QueryCacheTest {
+    private static final String SQL = "SELECT * FROM Product";
+
+    @Test
+    void editingServedRowsDoesNotChangeTheCachedResult() throws Exception {
+        QueryCache cache = new QueryCache(4);
+        AtomicInteger runs = new AtomicInteger();
+        QueryCache.Query<Product> query = () -> {
+            runs.incrementAndGet();
+            List<Product> rows = new ArrayList<>();
+            rows.add(new Product("Apples", 2.5, "", "kg", 10, "1"));
+            return rows;
+        };
+
+        List<Product> first = cache.get(SQL, List.of(), Set.of("Product"), Product::new, query);
+        first.get(0).setQuantity(3);
+        first.clear();
+        List<Product> second = cache.get(SQL, List.of(), Set.of("Product"), Product::new, query);
+
+        assertEquals(1, runs.get());
+        assertEquals(1, second.size());
+        assertEquals(10, second.get(0).getQuantity());
+        assertNotSame(second.get(0), cache.get(SQL, List.of(), Set.of("Product"), Product::new, query).get(0));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.net;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.fail;
+
+// RelayServer and RelayClient over loopback on an ephemeral port
+class RelayTest {
+    private static final String TOPIC = "test-topic";
+    private static final long TIMEOUT_MILLIS = 5000;
+
+    private final List<RelayClient> clients = new ArrayList<>();
+    private RelayServer server;
+
+    @AfterEach
+    void tearDown() {
+        for (RelayClient client : clients) {
+            client.close();
+        }
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Test
+    void subscribesFromTheEndAndResumesAfterReconnect() throws Exception {
+        server = RelayServer.startIfAbsent(0);
+        assertNotNull(server);
+        RelayClient publisher = client(server.getPort(), false, new LinkedBlockingQueue<>());
+        for (int i = 0; i < 5; i++) {
+            publisher.publish(TOPIC, "old-" + i);
+        }
+
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        RelayClient subscriber = client(server.getPort(), false, received);
+        subscriber.subscribe(TOPIC);
+        String first = awaitSubscribed(publisher, received);
+        assertFalse(first.startsWith("old-"), "replayed " + first);
+
+        subscriber.dropConnection();
+        for (int i = 0; i < 3; i++) {
+            publisher.publish(TOPIC, "missed-" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals("missed-" + i, take(received));
+        }
+        assertEquals(null, received.poll(300, TimeUnit.MILLISECONDS), "delivered twice");
+    }
+
+    @Test
+    void aClientTakesOverWhenTheHostingRelayExits() throws Exception {
+        server = RelayServer.startIfAbsent(0);
+        assertNotNull(server);
+        int port = server.getPort();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        RelayClient subscriber = client(port, true, received);
+        subscriber.subscribe(TOPIC);
+        RelayClient publisher = client(port, false, new LinkedBlockingQueue<>());
+        awaitSubscribed(publisher, received);
+
+        // Publishes racing the shutdown may be lost, so the subscriber is only expected to
+        // receive again once the replacement relay is up
+        server.close();
+        server = null;
+        awaitSubscribed(publisher, received);
+    }
+
+    private RelayClient client(int port, boolean hostIfAbsent, BlockingQueue<String> received) {
+        RelayClient client = new RelayClient(port, hostIfAbsent, (topic, offset, payload) -> received.add(payload));
+        clients.add(client);
+        return client;
+    }
+
+    // Publishes until the subscriber sees one; the subscription is live from then on
+    private static String awaitSubscribed(RelayClient publisher, BlockingQueue<String> received) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            publisher.publish(TOPIC, "ping");
+            String payload = received.poll(50, TimeUnit.MILLISECONDS);
+            if (payload != null) {
+                // Pings still in flight would be mistaken for later events
+                while (received.poll(200, TimeUnit.MILLISECONDS) != null) {
+                    // drain
+                }
+                return payload;
+            }
+        }
+        return fail("subscriber never received an event");
+    }
+
+    private static String take(BlockingQueue<String> received) throws InterruptedException {
+        String payload = received.poll(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        if (payload == null) {
+            fail("timed out waiting for an event");
+        }
+        return payload;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchLoaderTest {
+    // A write-through put while the batch query runs must not be overwritten by what the
+    // query read before it
+    @Test
+    void aWriteDuringTheQueryWinsOverTheLoadedValue() throws Exception {
+        EntityCache<String, String> cache = new EntityCache<>(100, 30_000);
+        CountDownLatch queryStarted = new CountDownLatch(1);
+        CountDownLatch writeDone = new CountDownLatch(1);
+        BatchLoader<String, String> loader = new BatchLoader<>("test", cache, ids -> {
+            queryStarted.countDown();
+            assertTrue(writeDone.await(5, TimeUnit.SECONDS));
+            return Map.of("1", "stale");
+        }, Runnable::run);
+        try {
+            CompletableFuture<Optional<String>> loaded = loader.load("1");
+            assertTrue(queryStarted.await(5, TimeUnit.SECONDS));
+            cache.put("1", "fresh");
+            writeDone.countDown();
+
+            assertEquals(Optional.of("fresh"), loaded.get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of("fresh"), cache.get("1"));
+        } finally {
+            loader.close();
+        }
+    }
+
+    @Test
+    void loadedValuesAndMissesAreCachedWhenNothingWasWritten() throws Exception {
+        EntityCache<String, String> cache = new EntityCache<>(100, 30_000);
+        BatchLoader<String, String> loader = new BatchLoader<>("test", cache, ids -> Map.of("1", "one"),
+                Runnable::run);
+        try {
+            assertEquals(Optional.of("one"), loader.load("1").get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.empty(), loader.load("2").get(5, TimeUnit.SECONDS));
+            assertEquals(Optional.of("one"), cache.get("1"));
+            assertEquals(Optional.empty(), cache.get("2"));
+        } finally {
+            loader.close();
+        }
+    }
+}
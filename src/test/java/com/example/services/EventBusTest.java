@@ -0,0 +1,35 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class EventBusTest {
+    private static final int CAPACITY = 16;
+
+    // The pulse thread publishing more than the ring holds before its first pulse has run,
+    // as the FX thread does while the queued runLater task waits behind it
+    @Test
+    @Timeout(value = 5, threadMode = Timeout.ThreadMode.SEPARATE_THREAD)
+    void publishingOnThePulseThreadBeforeTheFirstPulseDoesNotBlock() {
+        EventBus bus = new EventBus(CAPACITY);
+        List<Runnable> queued = new ArrayList<>();
+        AtomicInteger handled = new AtomicInteger();
+        bus.subscribe((event, endOfBatch) -> handled.incrementAndGet(), queued::add);
+
+        for (int i = 0; i < CAPACITY * 3; i++) {
+            bus.publish(DomainEvent.Type.ITEM_ADDED_TO_CART, "apples", 1);
+        }
+        for (Runnable task : queued) {
+            task.run();
+        }
+
+        assertEquals(CAPACITY * 3, handled.get());
+        bus.close();
+    }
+}
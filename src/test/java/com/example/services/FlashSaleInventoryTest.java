@@ -0,0 +1,91 @@
+package com.example.services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FlashSaleInventoryTest {
+    private static final int BUYERS = 8;
+    private static final int ROUNDS = 2000;
+
+    private final FlashSaleInventory inventory = new FlashSaleInventory(null);
+
+    @AfterEach
+    void tearDown() {
+        inventory.close();
+    }
+
+    // Exactly enough stock for everyone, spread over the stripes, so most buyers have to
+    // piece their units together from several stripes at once
+    @Test
+    void concurrentBuyersGetAllTheStockThereIs() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(BUYERS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                String productId = "p" + round;
+                inventory.startSale(productId, BUYERS * 3);
+                CyclicBarrier start = new CyclicBarrier(BUYERS);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < BUYERS; i++) {
+                    String customer = "c" + i;
+                    results.add(pool.submit(() -> {
+                        start.await();
+                        return inventory.reserve(customer, productId, 3);
+                    }));
+                }
+                for (Future<Boolean> result : results) {
+                    assertTrue(result.get(), "a buyer was told sold out in round " + round);
+                }
+                assertEquals(0, inventory.available(productId));
+                assertFalse(inventory.reserve("late", productId, 1));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void startingASaleTwiceKeepsTheUnitsCustomersHold() {
+        assertTrue(inventory.startSale("p", 10));
+        assertTrue(inventory.reserve("c", "p", 4));
+
+        assertFalse(inventory.startSale("p", 10));
+        assertEquals(6, inventory.available("p"));
+        inventory.release("c", "p", 4);
+        assertEquals(10, inventory.available("p"));
+    }
+
+    @Test
+    void aHoldInCheckoutCanBeReleasedWhenTheOrderFails() {
+        inventory.startSale("p", 10);
+        assertTrue(inventory.reserve("c", "p", 3));
+        assertFalse(inventory.holdForCheckout("other", "p"));
+
+        assertTrue(inventory.holdForCheckout("c", "p"));
+        inventory.release("c", "p", 3);
+        assertEquals(10, inventory.available("p"));
+        assertFalse(inventory.holdForCheckout("c", "p"));
+    }
+
+    @Test
+    void stoppingASaleReportsTheUnreservedStock() {
+        inventory.startSale("p", 10);
+        assertTrue(inventory.reserve("c", "p", 4));
+
+        assertEquals(6, inventory.stopSale("p"));
+        assertFalse(inventory.isOnSale("p"));
+        assertFalse(inventory.reserve("c", "p", 1));
+        assertEquals(0, inventory.stopSale("p"));
+        assertTrue(inventory.startSale("p", 5));
+    }
+}
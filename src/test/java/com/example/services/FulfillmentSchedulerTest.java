@@ -0,0 +1,33 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FulfillmentSchedulerTest {
+    private static final double DAYS = 1.0;
+    private static final double WEEKS = 0.6;
+    private static final double MONTHS = 0.1;
+    private static final double UNKNOWN = 0.4;
+
+    @Test
+    void perishabilityMatchesWholeWordsAndPrefersTheLongestStem() {
+        assertEquals(MONTHS, FulfillmentScheduler.perishability("Pears"));
+        assertEquals(MONTHS, FulfillmentScheduler.perishability("Bartlett pear"));
+        assertEquals(WEEKS, FulfillmentScheduler.perishability("Snap peas"));
+        assertEquals(MONTHS, FulfillmentScheduler.perishability("Roasted peanuts"));
+        assertEquals(UNKNOWN, FulfillmentScheduler.perishability("Eggplant"));
+        assertEquals(WEEKS, FulfillmentScheduler.perishability("Free-range eggs"));
+        assertEquals(DAYS, FulfillmentScheduler.perishability("Strawberries"));
+        assertEquals(WEEKS, FulfillmentScheduler.perishability("Cherry tomatoes"));
+        assertEquals(WEEKS, FulfillmentScheduler.perishability("Peaches"));
+    }
+
+    @Test
+    void perishabilityFollowsTheLastKnownWord() {
+        assertEquals(MONTHS, FulfillmentScheduler.perishability("Corn flour"));
+        assertEquals(MONTHS, FulfillmentScheduler.perishability("Strawberry jam"));
+        assertEquals(UNKNOWN, FulfillmentScheduler.perishability("Maple syrup"));
+        assertEquals(UNKNOWN, FulfillmentScheduler.perishability(null));
+    }
+}